@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.apache.nifi.utils.BatchArtifactResolver;
+import org.apache.nifi.utils.DaemonExecutors;
+import org.apache.nifi.utils.DuplicateClassDetector;
+import org.apache.nifi.utils.NarDependencyUtils;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.inject.Inject;
+
+/**
+ * Generates a list of the classes that the nar bundles although a nar of its Nar-Dependency chain already provides them, and of the
+ * packages that are split between the nar and its chain. Unlike <code>duplicate-nar-dependencies</code>, which compares coordinates,
+ * this goal compares the classes inside the jars, so copies of a library that are shaded into jars with other coordinates are found
+ * as well. Relocated copies have other class names and are not found.
+ */
+@Mojo(name = "duplicate-nar-classes", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyResolution = ResolutionScope.RUNTIME)
+public class NarDuplicateClassesMojo extends AbstractMojo {
+
+    /**
+     * The Maven project.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * The {@link RepositorySystemSession} used for resolving the nars of the Nar-Dependency chain.
+     */
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repoSession;
+
+    /**
+     * Whether the build fails when duplicate classes or split packages are found. By default they are only reported.
+     */
+    @Parameter(property = "nar.failOnDuplicateClasses", defaultValue = "false")
+    private boolean failOnDuplicateClasses;
+
+    /**
+     * Number of threads used to scan the jars of the nar and of its Nar-Dependency chain. The default value of 0 uses one thread per
+     * available processor.
+     */
+    @Parameter(property = "nar.scanThreads", defaultValue = "0")
+    private int scanThreads;
+
+    @Inject
+    private RepositorySystem repoSystem;
+
+    @Inject
+    private ArtifactHandlerManager artifactHandlerManager;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        NarDependencyUtils.ensureSingleNarDependencyExists(project);
+
+        final List<Artifact> narChain = getNarChain();
+        final List<Artifact> bundledArtifacts = getBundledArtifacts();
+        getLog().info("Analyzing classes of " + project.getId() + " against Nar-Dependency chain " + narChain);
+
+        final List<List<DuplicateClassDetector.JarClasses>> scannedNars = new ArrayList<>();
+        final List<DuplicateClassDetector.JarClasses> bundledJars = new ArrayList<>();
+        scan(narChain, bundledArtifacts, scannedNars, bundledJars);
+
+        // the chain is added from the nearest nar, so that duplicates are reported against the nearest copy
+        final DuplicateClassDetector detector = new DuplicateClassDetector();
+        for (final List<DuplicateClassDetector.JarClasses> narJars : scannedNars) {
+            for (final DuplicateClassDetector.JarClasses jar : narJars) {
+                detector.addProvided(jar);
+            }
+        }
+
+        final DuplicateClassDetector.Report report = detector.check(bundledJars);
+        for (final DuplicateClassDetector.DuplicateClasses duplicates : report.getDuplicateClasses()) {
+            final int differentClassCount = duplicates.getClassNames().size() - duplicates.getIdenticalClassCount();
+            getLog().warn(duplicates.getClassNames().size() + " classes of " + duplicates.getBundledJar() + " are already provided by " + duplicates.getProvidedJar()
+                    + " (" + duplicates.getWastedBytes() + " bytes" + (differentClassCount > 0 ? ", " + differentClassCount + " with different content" : "") + ")");
+            if (getLog().isDebugEnabled()) {
+                getLog().debug("Duplicate classes of " + duplicates.getBundledJar() + ": " + duplicates.getClassNames());
+            }
+        }
+        for (final DuplicateClassDetector.SplitPackage splitPackage : report.getSplitPackages()) {
+            getLog().warn("Package " + splitPackage.getPackageName() + " is split between " + splitPackage.getBundledJars() + " and " + splitPackage.getProvidedJars());
+        }
+
+        if (report.isEmpty()) {
+            getLog().info("No duplicate classes or split packages found");
+            return;
+        }
+
+        getLog().info("Found " + report.getDuplicateClassCount() + " duplicate classes wasting " + report.getWastedBytes() + " bytes, and "
+                + report.getSplitPackages().size() + " split packages");
+        if (failOnDuplicateClasses) {
+            getLog().info("Consider changing the scope of the dependencies that contain these classes from \"compile\" to \"provided\" or excluding them.");
+            throw new MojoFailureException("Found duplicate classes");
+        }
+    }
+
+    private List<Artifact> getNarChain() throws MojoExecutionException {
+        Artifact current = null;
+        for (final Artifact artifact : project.getArtifacts()) {
+            if (NarDependencyUtils.NAR.equals(artifact.getType())) {
+                current = artifact;
+                break;
+            }
+        }
+
+        final BatchArtifactResolver artifactResolver = new BatchArtifactResolver(repoSystem, repoSession, project.getRemoteProjectRepositories());
+        final List<Artifact> narChain = new ArrayList<>();
+        final Set<String> coordinates = new HashSet<>();
+        while (current != null && coordinates.add(current.getGroupId() + ":" + current.getArtifactId())) {
+            artifactResolver.resolveFiles(Collections.singleton(current));
+            narChain.add(current);
+
+            try {
+                current = NarDependencyUtils.getNarDependency(current.getFile(), artifactHandlerManager.getArtifactHandler(NarDependencyUtils.NAR));
+            } catch (final IOException e) {
+                throw new MojoExecutionException("Failed to read the Nar-Dependency of " + current, e);
+            }
+        }
+        return narChain;
+    }
+
+    private List<Artifact> getBundledArtifacts() {
+        final List<Artifact> bundledArtifacts = new ArrayList<>();
+        for (final Artifact artifact : project.getArtifacts()) {
+            final boolean bundledScope = Artifact.SCOPE_COMPILE.equals(artifact.getScope()) || Artifact.SCOPE_RUNTIME.equals(artifact.getScope());
+            if (bundledScope && !NarDependencyUtils.NAR.equals(artifact.getType()) && artifact.getFile() != null && artifact.getFile().isFile()) {
+                bundledArtifacts.add(artifact);
+            }
+        }
+        return bundledArtifacts;
+    }
+
+    private void scan(final List<Artifact> narChain, final List<Artifact> bundledArtifacts, final List<List<DuplicateClassDetector.JarClasses>> scannedNars,
+                      final List<DuplicateClassDetector.JarClasses> bundledJars) throws MojoExecutionException {
+        final int threads = scanThreads > 0 ? scanThreads : Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = DaemonExecutors.newFixedThreadPool(Math.min(threads, narChain.size() + bundledArtifacts.size()), "nar-class-scan-");
+
+        try {
+            final List<Future<List<DuplicateClassDetector.JarClasses>>> narFutures = new ArrayList<>();
+            for (final Artifact nar : narChain) {
+                narFutures.add(executor.submit(() -> DuplicateClassDetector.scanNar(nar.getArtifactId(), nar.getFile())));
+            }
+
+            final List<Future<DuplicateClassDetector.JarClasses>> jarFutures = new ArrayList<>();
+            for (final Artifact artifact : bundledArtifacts) {
+                jarFutures.add(executor.submit(() -> DuplicateClassDetector.scanJar(artifact.getFile().getName(), artifact.getFile())));
+            }
+
+            // results are collected in submission order so that reports do not depend on scheduling
+            for (final Future<List<DuplicateClassDetector.JarClasses>> future : narFutures) {
+                scannedNars.add(future.get());
+            }
+            for (final Future<DuplicateClassDetector.JarClasses> future : jarFutures) {
+                bundledJars.add(future.get());
+            }
+        } catch (final ExecutionException e) {
+            throw new MojoExecutionException("Failed to scan the classes of the nar", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while scanning the classes of the nar", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
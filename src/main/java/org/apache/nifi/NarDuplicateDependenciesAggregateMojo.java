@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.nifi.utils.DaemonExecutors;
+import org.apache.nifi.utils.DuplicateDependencyDetector;
+import org.apache.nifi.utils.NarDependencyUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Generates one list of the duplicate dependencies with compile scope of every nar module of the reactor. The dependency graph of each
+ * distinct nar is collected once for the whole reactor: the graphs of the nar modules are collected concurrently first and shared with
+ * the modules that depend on them, after which every module is checked against its Nar-Dependency chain, whose nars from outside the
+ * reactor are collected once as well.
+ */
+@Mojo(name = "duplicate-nar-dependencies-aggregate", aggregator = true, threadSafe = true)
+public class NarDuplicateDependenciesAggregateMojo extends NarDuplicateDependenciesMojo {
+
+    /**
+     * The projects of the reactor.
+     */
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * Number of threads used to collect and check the dependency graphs of the nar modules. The default value of 0 uses one thread
+     * per available processor.
+     */
+    @Parameter(property = "nar.collectionThreads", defaultValue = "0")
+    private int collectionThreads;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final List<MavenProject> narModules = new ArrayList<>();
+        for (final MavenProject reactorProject : reactorProjects) {
+            if (NarDependencyUtils.NAR.equals(reactorProject.getPackaging())) {
+                narModules.add(reactorProject);
+            }
+        }
+
+        if (narModules.isEmpty()) {
+            getLog().info("No nar modules found in the reactor");
+            return;
+        }
+
+        getLog().info("Analyzing dependencies of " + narModules.size() + " nar modules");
+
+        final int threads = collectionThreads > 0 ? collectionThreads : Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = DaemonExecutors.newFixedThreadPool(Math.min(threads, narModules.size()), "nar-duplicates-");
+
+        final List<DuplicateDependencyDetector> detectors = new ArrayList<>();
+        try {
+            // collect the graph of every module, sharing what each nar bundles with the modules that depend on it
+            final List<Future<DependencyNode>> graphFutures = new ArrayList<>();
+            for (final MavenProject narModule : narModules) {
+                graphFutures.add(executor.submit(() -> {
+                    final DependencyNode root = collectDependencyGraph(narModule);
+                    cacheBundledDependencies(root, narModule);
+                    return root;
+                }));
+            }
+            final List<DependencyNode> roots = getAll(narModules, graphFutures);
+
+            // check every module that depends on a nar against its chain
+            final List<Future<DuplicateDependencyDetector>> checkFutures = new ArrayList<>();
+            for (int i = 0; i < narModules.size(); i++) {
+                checkFutures.add(executor.submit(createCheck(narModules.get(i), roots.get(i))));
+            }
+            detectors.addAll(getAll(narModules, checkFutures));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while analyzing the dependencies of the nar modules", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // report in reactor order, once every module is checked
+        int modulesWithDuplicates = 0;
+        int duplicateCount = 0;
+        for (final DuplicateDependencyDetector detector : detectors) {
+            if (detector != null && logDuplicates(detector)) {
+                modulesWithDuplicates++;
+                duplicateCount += detector.getDuplicates().size();
+            }
+        }
+
+        if (modulesWithDuplicates > 0) {
+            getLog().info("Found " + duplicateCount + " duplicate dependencies in " + modulesWithDuplicates + " of " + narModules.size() + " nar modules");
+            getLog().info("Consider changing the scope from \"compile\" to \"provided\" or exclude it in case it's a transitive dependency.");
+            throw new MojoFailureException("Found duplicate dependencies");
+        }
+        getLog().info("No duplicate dependencies found in " + narModules.size() + " nar modules");
+    }
+
+    private Callable<DuplicateDependencyDetector> createCheck(final MavenProject narModule, final DependencyNode root) throws MojoExecutionException {
+        if (!hasNarDependency(narModule)) {
+            return () -> null;
+        }
+        NarDependencyUtils.ensureSingleNarDependencyExists(narModule);
+
+        final Optional<DependencyNode> narParent = getNarParent(root);
+        if (narParent.isEmpty()) {
+            return () -> null;
+        }
+
+        return () -> {
+            final DuplicateDependencyDetector detector = new DuplicateDependencyDetector(root);
+            checkNarChain(detector, narParent.get().getArtifact(), narModule);
+            return detector;
+        };
+    }
+
+    private boolean hasNarDependency(final MavenProject narModule) {
+        for (final Dependency dependency : narModule.getDependencies()) {
+            if (NarDependencyUtils.NAR.equals(dependency.getType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T> List<T> getAll(final List<MavenProject> narModules, final List<Future<T>> futures) throws MojoExecutionException, InterruptedException {
+        final List<T> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (final ExecutionException e) {
+                throw new MojoExecutionException("Cannot build project dependency tree of " + narModules.get(i).getId(), e.getCause());
+            }
+        }
+        return results;
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.nifi;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.handler.ArtifactHandler;
 import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -31,22 +32,25 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuilder;
 import org.apache.maven.project.ProjectBuildingException;
 import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.project.ProjectBuildingResult;
 import org.apache.maven.shared.dependency.graph.DependencyCollectorBuilder;
 import org.apache.maven.shared.dependency.graph.DependencyCollectorBuilderException;
 import org.apache.maven.shared.dependency.graph.DependencyNode;
-import org.apache.maven.shared.dependency.graph.traversal.DependencyNodeVisitor;
+import org.apache.nifi.utils.BundledDependenciesCache;
+import org.apache.nifi.utils.DuplicateDependencyDetector;
 import org.apache.nifi.utils.NarDependencyUtils;
 import org.eclipse.aether.RepositorySystemSession;
 
-import javax.inject.Inject;
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
-import java.util.HashMap;
+import java.util.Optional;
+import java.util.Set;
+import javax.inject.Inject;
 
 /**
- * Generates a list of duplicate dependencies with compile scope in the nar.
+ * Generates a list of duplicate dependencies with compile scope in the nar. The nar is checked against every nar of its Nar-Dependency
+ * chain, since jars bundled by any of them are already available to its ClassLoader.
  */
 @Mojo(name = "duplicate-nar-dependencies", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyResolution = ResolutionScope.RUNTIME)
 public class NarDuplicateDependenciesMojo extends AbstractMojo {
@@ -91,108 +95,20 @@ public class NarDuplicateDependenciesMojo extends AbstractMojo {
     public void execute() throws MojoExecutionException, MojoFailureException {
         try {
             NarDependencyUtils.ensureSingleNarDependencyExists(project);
-            // build the project for the nar artifact
-            final ProjectBuildingRequest narRequest = new DefaultProjectBuildingRequest();
-            narRequest.setRepositorySession(repoSession);
-            narRequest.setSystemProperties(System.getProperties());
-
-            artifactHandlerManager.addHandlers(NarDependencyUtils.createNarHandlerMap(narRequest, project, projectBuilder));
 
             // get the dependency tree
-            final DependencyNode root = dependencyCollectorBuilder.collectDependencyGraph(narRequest, null);
+            final DependencyNode root = collectDependencyGraph(project);
 
-            DependencyNode narParent = root.getChildren()
-                    .stream()
-                    .filter(child -> NarDependencyUtils.NAR.equals(child.getArtifact().getType()))
-                    .findFirst()
+            DependencyNode narParent = getNarParent(root)
                     .orElseThrow(() -> new MojoExecutionException("Project does not have any NAR dependencies."));
 
-            getLog().info("Analyzing dependencies of " + narRequest.getProject().getFile().getPath());
+            getLog().info("Analyzing dependencies of " + project.getFile().getPath());
 
             // all compiled dependencies except inherited from parent
-            Map<String, List<Artifact>> directDependencies = new HashMap<>();
-
-            root.accept(new DependencyNodeVisitor() {
-                final Stack<Artifact> hierarchy = new Stack<>();
-
-                @Override
-                public boolean visit(DependencyNode node) {
-                    if (node == root) {
-                        return true;
-                    }
-                    Artifact artifact = node.getArtifact();
-                    hierarchy.push(artifact);
-                    if (NarDependencyUtils.COMPILE_STRING.equals(artifact.getScope()) && !NarDependencyUtils.NAR.equals(artifact.getType())) {
-                        directDependencies.put(artifact.toString(), new ArrayList<>(hierarchy));
-                        return true;
-                    }
-                    return false;
-                }
-
-                @Override
-                public boolean endVisit(DependencyNode node) {
-                    if (node != root) {
-                        hierarchy.pop();
-                    }
-                    return true;
-                }
-            });
-
-            Map<String, List<String>> errors = new HashMap<>();
-
-            narParent.accept(new DependencyNodeVisitor() {
-                final Stack<Artifact> hierarchy = new Stack<>();
-
-                @Override
-                public boolean visit(DependencyNode node) {
-                    Artifact artifact = node.getArtifact();
-                    hierarchy.push(artifact);
-                    if (NarDependencyUtils.COMPILE_STRING.equals(artifact.getScope()) && directDependencies.containsKey(artifact.toString())) {
-                        StringBuilder sb = new StringBuilder().append(root.getArtifact()).append(" (this nar)").append(System.lineSeparator());
-                        List<Artifact> otherHierarchy = directDependencies.get(artifact.toString());
-                        // print other hierarchy
-                        for (int i = 0; i < otherHierarchy.size(); i++) {
-                            sb.append(indent(i)).append(otherHierarchy.get(i));
-                            // print the last artifact in the hierarchy
-                            if (i == otherHierarchy.size() - 1) {
-                                sb.append(" (duplicate)");
-                            }
-                            sb.append(System.lineSeparator());
-                        }
-                        // print this hierarchy
-                        for (int i = 0; i < hierarchy.size(); i++) {
-                            sb.append(indent(i)).append(hierarchy.get(i));
-                            // print the last artifact in the hierarchy
-                            if (i == hierarchy.size() - 1) {
-                                sb.append(" (already included here)");
-                            }
-                            sb.append(System.lineSeparator());
-                        }
-                        errors.computeIfAbsent(artifact.toString(), k -> new ArrayList<>()).add(sb.toString());
-                    }
-                    return true;
-                }
-
-                @Override
-                public boolean endVisit(DependencyNode node) {
-                    hierarchy.pop();
-                    return true;
-                }
-            });
-
-            for (Map.Entry<String, List<String>> entry : errors.entrySet()) {
-                StringBuilder sb = new StringBuilder().append(entry.getKey()).append(" is already included in the nar");
-                if (entry.getValue().size() > 1) {
-                    sb.append(" multiple times");
-                }
-                sb.append(":");
-                for (String error : entry.getValue()) {
-                    sb.append(System.lineSeparator()).append(error);
-                }
-                getLog().error(sb.toString());
-            }
+            final DuplicateDependencyDetector detector = new DuplicateDependencyDetector(root);
+            checkNarChain(detector, narParent.getArtifact(), project);
 
-            if (!errors.isEmpty()) {
+            if (logDuplicates(detector)) {
                 getLog().info("Consider changing the scope from \"compile\" to \"provided\" or exclude it in case it's a transitive dependency.");
                 throw new MojoFailureException("Found duplicate dependencies");
             }
@@ -202,6 +118,122 @@ public class NarDuplicateDependenciesMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Collects the dependency graph of the given nar project, with the dependencies of nars listed rather than included.
+     */
+    protected DependencyNode collectDependencyGraph(final MavenProject narProject) throws ProjectBuildingException, DependencyCollectorBuilderException {
+        // build the project for the nar artifact
+        final ProjectBuildingRequest narRequest = new DefaultProjectBuildingRequest();
+        narRequest.setRepositorySession(repoSession);
+        narRequest.setSystemProperties(System.getProperties());
+
+        // the handlers are shared by the build, and modules may be collected concurrently by the aggregate goal
+        synchronized (artifactHandlerManager) {
+            artifactHandlerManager.addHandlers(NarDependencyUtils.createNarHandlerMap(narRequest, narProject, projectBuilder));
+        }
+
+        return dependencyCollectorBuilder.collectDependencyGraph(narRequest, null);
+    }
+
+    protected Optional<DependencyNode> getNarParent(final DependencyNode root) {
+        return root.getChildren()
+                .stream()
+                .filter(child -> NarDependencyUtils.NAR.equals(child.getArtifact().getType()))
+                .findFirst();
+    }
+
+    /**
+     * Checks the nar against every nar of its Nar-Dependency chain, each of which is collected once per build.
+     */
+    protected void checkNarChain(final DuplicateDependencyDetector detector, final Artifact narParent, final MavenProject narProject)
+            throws ProjectBuildingException, DependencyCollectorBuilderException, MojoExecutionException {
+        final BundledDependenciesCache bundledDependenciesCache = BundledDependenciesCache.getInstance(repoSession);
+        final Set<String> checkedNars = new HashSet<>();
+        Artifact narDependency = narParent;
+        while (narDependency != null && checkedNars.add(narDependency.getId())) {
+            final DuplicateDependencyDetector.BundledDependencies bundledDependencies = getBundledDependencies(bundledDependenciesCache, narDependency, narProject);
+            getLog().debug("Checking against " + bundledDependencies.size() + " dependencies bundled by " + narDependency);
+            detector.check(bundledDependencies);
+            narDependency = bundledDependencies.getNarDependency();
+        }
+    }
+
+    /**
+     * Shares the dependencies bundled by the nar at the root of the given graph with the nars of the build that depend on it and use the
+     * same remote repositories, so that its graph is not collected again.
+     */
+    protected void cacheBundledDependencies(final DependencyNode root, final MavenProject narProject)
+            throws ProjectBuildingException, DependencyCollectorBuilderException, MojoExecutionException {
+        BundledDependenciesCache.getInstance(repoSession).getBundledDependencies(getBundledDependenciesKey(root.getArtifact(), narProject),
+                () -> DuplicateDependencyDetector.getBundledDependencies(root));
+    }
+
+    /**
+     * Logs the duplicates found by the given detector.
+     *
+     * @return <code>true</code> if any duplicates were found
+     */
+    protected boolean logDuplicates(final DuplicateDependencyDetector detector) {
+        final Map<Artifact, List<DuplicateDependencyDetector.Duplicate>> errors = detector.getDuplicates();
+        for (Map.Entry<Artifact, List<DuplicateDependencyDetector.Duplicate>> entry : errors.entrySet()) {
+            StringBuilder sb = new StringBuilder().append(entry.getKey()).append(" is already included in the nar");
+            if (entry.getValue().size() > 1) {
+                sb.append(" multiple times");
+            }
+            sb.append(":");
+            for (DuplicateDependencyDetector.Duplicate duplicate : entry.getValue()) {
+                sb.append(System.lineSeparator()).append(detector.getRoot().getArtifact()).append(" (this nar)").append(System.lineSeparator());
+                // print other hierarchy
+                appendHierarchy(sb, duplicate.getBundledPath(), " (duplicate)");
+                // print this hierarchy
+                appendHierarchy(sb, duplicate.getProvidedPath(), " (already included here)");
+            }
+            getLog().error(sb.toString());
+        }
+        return !errors.isEmpty();
+    }
+
+    private DuplicateDependencyDetector.BundledDependencies getBundledDependencies(final BundledDependenciesCache bundledDependenciesCache, final Artifact narArtifact,
+                                                                                  final MavenProject narProject)
+            throws ProjectBuildingException, DependencyCollectorBuilderException, MojoExecutionException {
+        return bundledDependenciesCache.getBundledDependencies(getBundledDependenciesKey(narArtifact, narProject), () -> {
+            // the nar is examined as its own build bundled it, rather than as it is managed by this project
+            final ProjectBuildingRequest narDependencyRequest = new DefaultProjectBuildingRequest();
+            narDependencyRequest.setRepositorySession(repoSession);
+            narDependencyRequest.setSystemProperties(System.getProperties());
+            narDependencyRequest.setRemoteRepositories(narProject.getRemoteArtifactRepositories());
+
+            final ProjectBuildingResult narDependencyResult = projectBuilder.build(narArtifact, narDependencyRequest);
+            narDependencyRequest.setProject(narDependencyResult.getProject());
+
+            final DependencyNode narDependencyRoot = dependencyCollectorBuilder.collectDependencyGraph(narDependencyRequest, null);
+            return DuplicateDependencyDetector.getBundledDependencies(narDependencyRoot);
+        });
+    }
+
+    /**
+     * The dependencies bundled by a nar are resolved from the remote repositories of the project that depends on it, so they are
+     * shared only with projects that use the same repositories.
+     */
+    private String getBundledDependenciesKey(final Artifact narArtifact, final MavenProject narProject) {
+        final StringBuilder key = new StringBuilder(narArtifact.getId());
+        for (final ArtifactRepository remoteRepository : narProject.getRemoteArtifactRepositories()) {
+            key.append(' ').append(remoteRepository.getId()).append('=').append(remoteRepository.getUrl());
+        }
+        return key.toString();
+    }
+
+    private void appendHierarchy(final StringBuilder sb, final List<Artifact> hierarchy, final String lastArtifactSuffix) {
+        for (int i = 0; i < hierarchy.size(); i++) {
+            sb.append(indent(i)).append(hierarchy.get(i));
+            // print the last artifact in the hierarchy
+            if (i == hierarchy.size() - 1) {
+                sb.append(lastArtifactSuffix);
+            }
+            sb.append(System.lineSeparator());
+        }
+    }
+
     private String indent(int indent) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < indent; i++) {
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.nifi.extension.definition.extraction.ExtensionClassLoaderCache;
+
+import java.io.IOException;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Releases the resources that the NAR goals share between the modules of a build once the build ends. Maven only calls lifecycle
+ * participants of plugins that are declared with <code>&lt;extensions&gt;true&lt;/extensions&gt;</code>.
+ */
+@Named("nar")
+@Singleton
+public class NarLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+    @Override
+    public void afterSessionEnd(final MavenSession session) throws MavenExecutionException {
+        try {
+            ExtensionClassLoaderCache.close(session.getRepositorySession());
+        } catch (final IOException e) {
+            throw new MavenExecutionException("Failed to close the shared NAR ClassLoaders", e);
+        }
+    }
+}
@@ -28,7 +28,6 @@ import org.apache.maven.artifact.repository.ArtifactRepositoryFactory;
 import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
 import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
-import org.apache.maven.artifact.resolver.DefaultArtifactResolver;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -60,50 +59,69 @@ import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
 import org.apache.nifi.extension.definition.ExtensionDefinition;
 import org.apache.nifi.extension.definition.ExtensionType;
 import org.apache.nifi.extension.definition.ServiceAPIDefinition;
+import org.apache.nifi.extension.definition.extraction.DependencyGraphStore;
 import org.apache.nifi.extension.definition.extraction.ExtensionClassLoader;
+import org.apache.nifi.extension.definition.extraction.ExtensionClassLoaderCache;
 import org.apache.nifi.extension.definition.extraction.ExtensionClassLoaderFactory;
 import org.apache.nifi.extension.definition.extraction.ExtensionDefinitionFactory;
+import org.apache.nifi.extension.definition.extraction.ExtensionDocumentationBinding;
+import org.apache.nifi.extension.definition.extraction.ExtensionDocumentationCache;
+import org.apache.nifi.extension.definition.extraction.ExtensionDocumentationIndex;
 import org.apache.nifi.extension.definition.extraction.StandardServiceAPIDefinition;
+import org.apache.nifi.utils.BatchArtifactResolver;
+import org.apache.nifi.utils.BundledDependenciesManifest;
+import org.apache.nifi.utils.DaemonExecutors;
+import org.apache.nifi.utils.FileCopyStrategy;
+import org.apache.nifi.utils.NarDependenciesDescriptor;
+import org.codehaus.plexus.archiver.Archiver;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.jar.JarArchiver;
 import org.codehaus.plexus.archiver.util.DefaultFileSet;
 import org.codehaus.plexus.archiver.jar.ManifestException;
 import org.codehaus.plexus.archiver.manager.ArchiverManager;
-import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.StringUtils;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.repository.WorkspaceReader;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
+import java.security.CodeSource;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -118,12 +136,15 @@ import java.util.stream.Collectors;
 @Mojo(name = "nar", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyResolution = ResolutionScope.RUNTIME)
 public class NarMojo extends AbstractMojo {
     private static final String CONTROLLER_SERVICE_CLASS_NAME = "org.apache.nifi.controller.ControllerService";
-    private static final String CONNECTOR_CLASS_NAME = "org.apache.nifi.components.connector.Connector";
     private static final String DOCUMENTATION_WRITER_CLASS_NAME = "org.apache.nifi.documentation.xml.XmlDocumentationWriter";
     private static final String CONNECTOR_DOCUMENTATION_WRITER_CLASS_NAME = "org.apache.nifi.documentation.xml.XmlConnectorDocumentationWriter";
 
     private static final String[] DEFAULT_EXCLUDES = new String[]{"**/package.html"};
     private static final String[] DEFAULT_INCLUDES = new String[]{"**/**"};
+    private static final String BUNDLED_DEPENDENCIES_PATH = "META-INF/bundled-dependencies/";
+
+    private static final List<ExtensionType> DOCUMENTED_EXTENSION_TYPES = List.of(ExtensionType.PROCESSOR, ExtensionType.CONTROLLER_SERVICE, ExtensionType.REPORTING_TASK,
+            ExtensionType.PARAMETER_PROVIDER, ExtensionType.FLOW_ANALYSIS_RULE, ExtensionType.FLOW_REGISTRY_CLIENT);
 
     private static final DateTimeFormatter BUILD_TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(ZoneOffset.UTC);
 
@@ -352,6 +373,12 @@ public class NarMojo extends AbstractMojo {
     @Inject
     protected ArtifactResolver resolver;
 
+    /**
+     * Used to resolve Artifacts through the repository session of the build.
+     */
+    @Inject
+    protected org.eclipse.aether.RepositorySystem repoSystem;
+
     /**
      * Location of the local repository.
      *
@@ -398,7 +425,7 @@ public class NarMojo extends AbstractMojo {
      * The {@link ArtifactHandlerManager} into which any extension {@link ArtifactHandler} instances should have been injected when the extensions were loaded.
      */
     @Inject
-    private ArtifactHandlerManager artifactHandlerManager;
+    protected ArtifactHandlerManager artifactHandlerManager;
 
 
     /**
@@ -408,6 +435,138 @@ public class NarMojo extends AbstractMojo {
     @Parameter(property = "outputAbsoluteArtifactFilename", defaultValue = "false")
     protected boolean outputAbsoluteArtifactFilename;
 
+    /**
+     * Number of threads used to copy bundled dependencies into the NAR. The default value of 1 copies
+     * dependencies sequentially; larger values copy dependencies concurrently while logging them in a stable order.
+     */
+    @Parameter(property = "nar.copyThreads", defaultValue = "1")
+    protected int copyThreads;
+
+    /**
+     * The copies logged by the current worker thread of a concurrent copy, which are logged in artifact order once copied
+     */
+    private final ThreadLocal<List<String>> deferredCopyLog = new ThreadLocal<>();
+
+    /**
+     * How bundled dependencies are placed into the NAR staging directory. <code>COPY</code> (default) performs a regular byte copy.
+     * <code>LINK</code> creates hard links into the local repository, <code>CLONE</code> uses the operating system's copy facilities,
+     * which produce copy-on-write reflinks on file systems that support them, and <code>TRANSFER</code> performs a kernel-side
+     * channel transfer. Each of <code>LINK</code> and <code>CLONE</code> falls back to the next strategy when it is not supported.
+     */
+    @Parameter(property = "nar.copyStrategy", defaultValue = "COPY")
+    protected FileCopyStrategy copyStrategy = FileCopyStrategy.COPY;
+
+    /**
+     * Set this to <code>true</code> to synchronize the bundled dependencies incrementally. A manifest of the copied artifacts,
+     * holding their coordinates, sizes and SHA-256 digests, is kept in the <code>markersDirectory</code>. Only artifacts whose
+     * content changed are copied, and files copied by an earlier build in this mode that no longer belong to the NAR are deleted, so
+     * building without <code>clean</code> produces the same NAR as a clean build. Files that the project itself places in
+     * <code>META-INF/bundled-dependencies</code> are never deleted. The overWrite* parameters are ignored in this mode.
+     */
+    @Parameter(property = "nar.syncDependencies", defaultValue = "false")
+    protected boolean syncDependencies;
+
+    /**
+     * Set this to <code>false</code> to add the bundled dependencies to the NAR straight from their resolved locations instead of
+     * first copying them into <code>META-INF/bundled-dependencies</code> under the classes directory. The entries in the NAR keep
+     * the same names; only the staging copy is skipped.
+     */
+    @Parameter(property = "nar.stageDependencies", defaultValue = "true")
+    protected boolean stageDependencies = true;
+
+    /**
+     * Number of threads used to generate the documentation of the extensions in the NAR. The default value of 1 documents
+     * extensions sequentially; larger values document extensions concurrently. The generated <code>extension-manifest.xml</code>
+     * is the same in either case.
+     */
+    @Parameter(property = "nar.docThreads", defaultValue = "1")
+    protected int docThreads = 1;
+
+    /**
+     * Set this to <code>true</code> to keep the documentation rendered for each extension under <code>nar-documentation-cache</code>
+     * in the build directory. Subsequent builds render only the extensions whose classes changed, and do not create the NAR's
+     * ClassLoader at all when no extension changed. Changes to the dependencies of parent NARs that do not change the parent NAR
+     * artifacts are not detected and require a clean build.
+     */
+    @Parameter(property = "nar.cacheDocumentation", defaultValue = "false")
+    protected boolean cacheDocumentation;
+
+    /**
+     * Set this to <code>true</code> to share the ClassLoaders of parent NARs, and of the provided NiFi API, framework API and SLF4J API
+     * entities, between all of the modules of a build, instead of creating them again for every NAR. The shared ClassLoaders are closed
+     * when the build ends if the plugin is declared with <code>&lt;extensions&gt;true&lt;/extensions&gt;</code>, and when Maven exits
+     * otherwise.
+     */
+    @Parameter(property = "nar.shareClassLoaders", defaultValue = "false")
+    protected boolean shareClassLoaders;
+
+    /**
+     * Set this to <code>true</code> to create the ClassLoader used to document the extensions from the dependencies that Maven already
+     * resolved for this project, instead of building the project's dependency graph again. The resolved dependencies only include the
+     * runtime scope, so provided and test dependencies that the rebuilt graph places on the NAR's ClassLoader are left out. Only the
+     * parent NARs are resolved separately in either case.
+     */
+    @Parameter(property = "nar.reuseResolvedProject", defaultValue = "false")
+    protected boolean reuseResolvedProject;
+
+    /**
+     * Number of threads used to build the dependency graphs of the NAR's dependencies when the versions of the provided NiFi API,
+     * NiFi Framework API and SLF4J API cannot be determined from the NAR and its parents. The default value of 1 builds the graphs
+     * sequentially; the versions found are the same for any number of threads.
+     */
+    @Parameter(property = "nar.resolutionThreads", defaultValue = "1")
+    protected int resolutionThreads = 1;
+
+    /**
+     * Set this to <code>true</code> to resolve all levels of a chain of parent NARs concurrently. The parent NARs are found from the
+     * <code>Nar-Dependency</code> entries of their manifests, and the ClassLoaders are assembled in order once every level is resolved.
+     * The resulting ClassLoaders are the same as with sequential construction.
+     */
+    @Parameter(property = "nar.parallelClassLoaderChain", defaultValue = "false")
+    protected boolean parallelClassLoaderChain;
+
+    /**
+     * Set this to <code>true</code> to keep the dependency graphs of the parent NARs under <code>.cache/nifi-nar-maven-plugin</code>
+     * in the local repository, so that later builds do not have to build them again. Graphs of releases are kept permanently, while
+     * graphs with SNAPSHOT artifacts are used only as long as the POMs of those artifacts, along with their parents and imported BOMs,
+     * are unchanged, and never when SNAPSHOT updates are forced. POMs of modules in the reactor are read from the reactor, and the
+     * graphs of those modules are never kept.
+     */
+    @Parameter(property = "nar.cacheDependencyGraphs", defaultValue = "false")
+    protected boolean cacheDependencyGraphs;
+
+    /**
+     * Set this to <code>true</code> to attach a descriptor of the NAR's dependency graph with the classifier <code>nar-dependencies</code>.
+     * Builds of child NARs that enable <code>useDependenciesDescriptors</code> read the descriptor instead of building the project and
+     * dependency graph of this NAR. The descriptor is not attached to NARs with a classifier.
+     */
+    @Parameter(property = "nar.attachDependenciesDescriptor", defaultValue = "false")
+    protected boolean attachDependenciesDescriptor;
+
+    /**
+     * Set this to <code>true</code> to read the artifacts of parent NARs from their <code>nar-dependencies</code> descriptors when they
+     * were published with one. The descriptors also name the parent of each NAR and its NiFi API version. Parent NARs without a
+     * descriptor are examined by building their project and dependency graph.
+     */
+    @Parameter(property = "nar.useDependenciesDescriptors", defaultValue = "false")
+    protected boolean useDependenciesDescriptors;
+
+    /**
+     * Set this to <code>true</code> to index the packages of the jars of each ClassLoader used for documenting extensions when it is
+     * created. Classes are then read directly from the jars that contain their package, lookups of missing classes and resources are
+     * remembered, and classes of the provided entities such as the NiFi API are loaded without delegating through every parent NAR.
+     */
+    @Parameter(property = "nar.indexedClassLoaders", defaultValue = "false")
+    protected boolean indexedClassLoaders;
+
+    /**
+     * Set this to <code>true</code> to read the jars of the ClassLoaders used for documenting extensions through memory-mapped views,
+     * which keeps their central directories and entry buffers off the heap. This implies <code>indexedClassLoaders</code>. Signed and
+     * multi-release jars are read as usual.
+     */
+    @Parameter(property = "nar.memoryMappedJars", defaultValue = "false")
+    protected boolean memoryMappedJars;
+
     /* The values to use for populating the Nar-Group, Nar-Id, and Nar-Version in the MANIFEST file. By default
      * these values will be set to the standard Maven project equivalents, but they may be overridden through properties.
      *
@@ -481,7 +640,7 @@ public class NarMojo extends AbstractMojo {
      * The {@link RepositorySystemSession} used for obtaining the local and remote artifact repositories.
      */
     @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
-    private RepositorySystemSession repoSession;
+    protected RepositorySystemSession repoSession;
 
 
     /**
@@ -531,6 +690,11 @@ public class NarMojo extends AbstractMojo {
     private void generateDocumentation() throws MojoExecutionException {
         getLog().info("Generating documentation for NiFi extensions in the NAR...");
 
+        final ExtensionDocumentationCache documentationCache = cacheDocumentation ? createDocumentationCache() : null;
+        if (documentationCache != null && writeCachedDocumentation(documentationCache)) {
+            return;
+        }
+
         // Create the ClassLoader for the NAR
         final ExtensionClassLoaderFactory classLoaderFactory = createClassLoaderFactory();
 
@@ -552,6 +716,23 @@ public class NarMojo extends AbstractMojo {
         }
 
 
+        try {
+            documentExtensions(extensionClassLoader, documentationCache);
+        } finally {
+            try {
+                classLoaderFactory.closeExtensionClassLoader(extensionClassLoader);
+            } catch (final IOException e) {
+                getLog().warn("Failed to close the ClassLoader used for documenting extensions", e);
+            }
+
+            if (getLog().isDebugEnabled()) {
+                getLog().debug("Open Extension ClassLoaders: " + ExtensionClassLoader.getOpenClassLoaderCount() + ", jars: " + ExtensionClassLoader.getOpenJarCount()
+                        + ", defined classes: " + ExtensionClassLoader.getDefinedClassCount());
+            }
+        }
+    }
+
+    private void documentExtensions(final ExtensionClassLoader extensionClassLoader, final ExtensionDocumentationCache documentationCache) throws MojoExecutionException {
         final File docsFile = getExtensionsDocumentationFile();
         createDirectory(docsFile.getParentFile());
 
@@ -563,43 +744,11 @@ public class NarMojo extends AbstractMojo {
 
         try (final OutputStream out = new FileOutputStream(docsFile)) {
 
-            final XMLStreamWriter xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+            final XMLStreamWriter xmlWriter = xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
             try {
-                xmlWriter.writeStartElement("extensionManifest");
-
-                // Write current NAR information
-                writeXmlTag(xmlWriter, "groupId", narGroup);
-                writeXmlTag(xmlWriter, "artifactId", narId);
-                writeXmlTag(xmlWriter, "version", narVersion);
-
-                // Write parent NAR information
-                final NarDependency narDependency = getNarDependency();
-                if (narDependency != null) {
-                    xmlWriter.writeStartElement("parentNar");
-                    writeXmlTag(xmlWriter, "groupId", notEmpty(this.narDependencyGroup) ? this.narDependencyGroup : narDependency.getGroupId());
-                    writeXmlTag(xmlWriter, "artifactId", notEmpty(this.narDependencyId) ? this.narDependencyId : narDependency.getArtifactId());
-                    writeXmlTag(xmlWriter, "version", notEmpty(this.narDependencyVersion) ? this.narDependencyVersion : narDependency.getVersion());
-                    xmlWriter.writeEndElement();
-                }
-
-                // Write system API version
                 final String nifiApiVersion = extensionClassLoader.getNiFiApiVersion();
-                xmlWriter.writeStartElement("systemApiVersion");
-                xmlWriter.writeCharacters(nifiApiVersion);
-                xmlWriter.writeEndElement();
-
-                // Write build info
-                xmlWriter.writeStartElement("buildInfo");
-                if (notEmpty(buildTag)) {
-                    writeXmlTag(xmlWriter, "tag", buildTag);
-                }
-                if (notEmpty(buildBranch)) {
-                    writeXmlTag(xmlWriter, "branch", buildBranch);
-                }
-                if (notEmpty(buildRevision)) {
-                    writeXmlTag(xmlWriter, "revision", buildRevision);
-                }
-                xmlWriter.writeEndElement();
+                writeManifestHeader(xmlWriter, nifiApiVersion);
 
                 // Write extensions
                 xmlWriter.writeStartElement("extensions");
@@ -615,40 +764,56 @@ public class NarMojo extends AbstractMojo {
                 getLog().debug("Creating Extension Definition Factory for NiFi API version " + nifiApiVersion);
 
                 final ExtensionDefinitionFactory extensionDefinitionFactory = new ExtensionDefinitionFactory(extensionClassLoader);
+                final ExtensionDocumentationBinding documentationBinding = new ExtensionDocumentationBinding(extensionClassLoader, docWriterClass);
 
                 final ClassLoader currentContextClassLoader = Thread.currentThread().getContextClassLoader();
                 try {
                     Thread.currentThread().setContextClassLoader(extensionClassLoader);
 
-                    final Set<ExtensionDefinition> processorDefinitions = extensionDefinitionFactory.discoverExtensions(ExtensionType.PROCESSOR);
-                    writeDocumentation(processorDefinitions, extensionClassLoader, docWriterClass, xmlWriter, additionalDetailsDir);
-
-                    final Set<ExtensionDefinition> controllerServiceDefinitions = extensionDefinitionFactory.discoverExtensions(ExtensionType.CONTROLLER_SERVICE);
-                    writeDocumentation(controllerServiceDefinitions, extensionClassLoader, docWriterClass, xmlWriter, additionalDetailsDir);
-
-                    final Set<ExtensionDefinition> reportingTaskDefinitions = extensionDefinitionFactory.discoverExtensions(ExtensionType.REPORTING_TASK);
-                    writeDocumentation(reportingTaskDefinitions, extensionClassLoader, docWriterClass, xmlWriter, additionalDetailsDir);
-
-                    final Set<ExtensionDefinition> parameterProviderDefinitions = extensionDefinitionFactory.discoverExtensions(ExtensionType.PARAMETER_PROVIDER);
-                    writeDocumentation(parameterProviderDefinitions, extensionClassLoader, docWriterClass, xmlWriter, additionalDetailsDir);
-
-                    final Set<ExtensionDefinition> flowAnalysisRuleDefinitions = extensionDefinitionFactory.discoverExtensions(ExtensionType.FLOW_ANALYSIS_RULE);
-                    writeDocumentation(flowAnalysisRuleDefinitions, extensionClassLoader, docWriterClass, xmlWriter, additionalDetailsDir);
+                    final Map<ExtensionType, Set<ExtensionDefinition>> discoveredDefinitions = extensionDefinitionFactory.discoverExtensions();
 
-                    final Set<ExtensionDefinition> flowRegistryClientDefinitions = extensionDefinitionFactory.discoverExtensions(ExtensionType.FLOW_REGISTRY_CLIENT);
-                    writeDocumentation(flowRegistryClientDefinitions, extensionClassLoader, docWriterClass, xmlWriter, additionalDetailsDir);
+                    final List<DocumentationRenderer> renderers = new ArrayList<>();
+                    final List<ExtensionDefinition> renderedDefinitions = new ArrayList<>();
+                    final List<Set<ExtensionDefinition>> documentedDefinitions = new ArrayList<>();
+                    for (final ExtensionType extensionType : DOCUMENTED_EXTENSION_TYPES) {
+                        final Set<ExtensionDefinition> definitions = sortDefinitions(discoveredDefinitions.get(extensionType));
+                        for (final ExtensionDefinition definition : definitions) {
+                            renderers.add(writer -> writeDocumentation(definition, extensionClassLoader, documentationBinding, writer));
+                            renderedDefinitions.add(definition);
+                        }
+                        documentedDefinitions.add(definitions);
+                    }
 
                     // Connectors use a separate documentation writer since they are not ConfigurableComponents
-                    final Set<ExtensionDefinition> connectorDefinitions = extensionDefinitionFactory.discoverExtensions(ExtensionType.CONNECTOR);
+                    Set<ExtensionDefinition> connectorDefinitions = sortDefinitions(discoveredDefinitions.get(ExtensionType.CONNECTOR));
                     if (!connectorDefinitions.isEmpty()) {
-                        Class<?> connectorDocWriterClass = null;
-                        try {
-                            connectorDocWriterClass = Class.forName(CONNECTOR_DOCUMENTATION_WRITER_CLASS_NAME, false, extensionClassLoader);
-                        } catch (ClassNotFoundException e) {
+                        if (documentationBinding.isConnectorDocumentationSupported()) {
+                            for (final ExtensionDefinition definition : connectorDefinitions) {
+                                renderers.add(writer -> writeConnectorDocumentation(definition, extensionClassLoader, documentationBinding, writer));
+                                renderedDefinitions.add(definition);
+                            }
+                        } else {
                             getLog().warn("Cannot locate class " + CONNECTOR_DOCUMENTATION_WRITER_CLASS_NAME + ", so no documentation will be generated for Connectors in this NAR");
+                            connectorDefinitions = Collections.emptySet();
+                        }
+                    }
+
+                    final List<byte[]> fragments;
+                    if (documentationCache == null) {
+                        fragments = renderDocumentation(renderers, xmlOutputFactory, extensionClassLoader);
+                    } else {
+                        fragments = renderDocumentation(documentationCache, nifiApiVersion, renderedDefinitions, renderers, xmlOutputFactory, extensionClassLoader);
+                    }
+                    writeFragments(xmlWriter, out, fragments);
+
+                    final List<ExtensionDefinition> indexedDefinitions = new ArrayList<>(connectorDefinitions);
+                    documentedDefinitions.forEach(indexedDefinitions::addAll);
+                    try (final ExtensionDocumentationIndex documentationIndex = createDocumentationIndex(extensionClassLoader, indexedDefinitions)) {
+                        for (final Set<ExtensionDefinition> definitions : documentedDefinitions) {
+                            writeAdditionalDetails(documentationIndex, definitions, additionalDetailsDir);
                         }
-                        if (connectorDocWriterClass != null) {
-                            writeConnectorDocumentation(connectorDefinitions, extensionClassLoader, connectorDocWriterClass, xmlWriter, stepDocumentationDir);
+                        if (!connectorDefinitions.isEmpty()) {
+                            writeStepDocumentation(documentationIndex, connectorDefinitions, stepDocumentationDir);
                         }
                     }
                 } finally {
@@ -667,162 +832,350 @@ public class NarMojo extends AbstractMojo {
         }
     }
 
+    private void writeManifestHeader(final XMLStreamWriter xmlWriter, final String nifiApiVersion) throws XMLStreamException, MojoExecutionException {
+        xmlWriter.writeStartElement("extensionManifest");
+
+        // Write current NAR information
+        writeXmlTag(xmlWriter, "groupId", narGroup);
+        writeXmlTag(xmlWriter, "artifactId", narId);
+        writeXmlTag(xmlWriter, "version", narVersion);
+
+        // Write parent NAR information
+        final NarDependency narDependency = getNarDependency();
+        if (narDependency != null) {
+            xmlWriter.writeStartElement("parentNar");
+            writeXmlTag(xmlWriter, "groupId", notEmpty(this.narDependencyGroup) ? this.narDependencyGroup : narDependency.getGroupId());
+            writeXmlTag(xmlWriter, "artifactId", notEmpty(this.narDependencyId) ? this.narDependencyId : narDependency.getArtifactId());
+            writeXmlTag(xmlWriter, "version", notEmpty(this.narDependencyVersion) ? this.narDependencyVersion : narDependency.getVersion());
+            xmlWriter.writeEndElement();
+        }
+
+        // Write system API version
+        xmlWriter.writeStartElement("systemApiVersion");
+        xmlWriter.writeCharacters(nifiApiVersion);
+        xmlWriter.writeEndElement();
+
+        // Write build info
+        xmlWriter.writeStartElement("buildInfo");
+        if (notEmpty(buildTag)) {
+            writeXmlTag(xmlWriter, "tag", buildTag);
+        }
+        if (notEmpty(buildBranch)) {
+            writeXmlTag(xmlWriter, "branch", buildBranch);
+        }
+        if (notEmpty(buildRevision)) {
+            writeXmlTag(xmlWriter, "revision", buildRevision);
+        }
+        xmlWriter.writeEndElement();
+    }
+
+    /**
+     * Writes the given fragments as the content of the open <code>extensions</code> element. The start tag is closed and flushed
+     * first, so that the fragments directly follow it in the output.
+     */
+    void writeFragments(final XMLStreamWriter xmlWriter, final OutputStream out, final List<byte[]> fragments) throws XMLStreamException, IOException {
+        xmlWriter.writeCharacters("");
+        xmlWriter.flush();
+        for (final byte[] fragment : fragments) {
+            out.write(fragment);
+        }
+    }
+
+    private ExtensionDocumentationCache createDocumentationCache() {
+        final List<String> classpathDescription = new ArrayList<>();
+        classpathDescription.add("plugin:" + NarMojo.class.getPackage().getImplementationVersion());
+        classpathDescription.add("java:" + System.getProperty("java.specification.version"));
+        classpathDescription.add("nar:" + narGroup + ":" + narId + ":" + narVersion);
+        classpathDescription.add("narDependency:" + narDependencyGroup + ":" + narDependencyId + ":" + narDependencyVersion);
+        classpathDescription.add("reuseResolvedProject:" + reuseResolvedProject);
+
+        for (final Dependency dependency : project.getDependencies()) {
+            classpathDescription.add("dependency:" + describe(dependency));
+        }
+        if (project.getDependencyManagement() != null) {
+            for (final Dependency dependency : project.getDependencyManagement().getDependencies()) {
+                classpathDescription.add("managed:" + describe(dependency));
+            }
+        }
+
+        final List<File> classpathFiles = new ArrayList<>();
+        for (final Artifact artifact : new TreeSet<>(project.getArtifacts())) {
+            classpathDescription.add("artifact:" + artifact.getId() + ":" + artifact.getScope());
+            if (artifact.getFile() != null) {
+                classpathFiles.add(artifact.getFile());
+            }
+        }
+
+        return new ExtensionDocumentationCache(new File(projectBuildDirectory, "nar-documentation-cache"), classpathDescription, classpathFiles);
+    }
+
+    private String describe(final Dependency dependency) {
+        final String exclusions = dependency.getExclusions().stream()
+                .map(exclusion -> exclusion.getGroupId() + ":" + exclusion.getArtifactId())
+                .sorted()
+                .collect(Collectors.joining(","));
+        return dependency.getManagementKey() + ":" + dependency.getVersion() + ":" + dependency.getScope() + ":" + dependency.isOptional() + ":" + exclusions;
+    }
+
+    /**
+     * Writes the extension manifest from the cache if the documentation of every extension is up to date.
+     *
+     * @return <code>true</code> if the manifest was written from the cache
+     */
+    private boolean writeCachedDocumentation(final ExtensionDocumentationCache documentationCache) throws MojoExecutionException {
+        final File docsFile = getExtensionsDocumentationFile();
+        final List<byte[]> fragments;
+        try {
+            documentationCache.load();
+            fragments = documentationCache.getAllFragments();
+        } catch (final IOException e) {
+            getLog().debug("Unable to read cached documentation", e);
+            return false;
+        }
+
+        // Additional details and step documentation are extracted alongside the manifest, so they must still be present
+        if (fragments == null || !new File(docsFile.getParentFile(), "additional-details").isDirectory()) {
+            return false;
+        }
+
+        getLog().info("Documentation of the " + fragments.size() + " extensions in the NAR is up to date, using cached documentation");
+        try (final OutputStream out = new FileOutputStream(docsFile)) {
+            final XMLStreamWriter xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            try {
+                writeManifestHeader(xmlWriter, documentationCache.getSystemApiVersion());
+                xmlWriter.writeStartElement("extensions");
+                writeFragments(xmlWriter, out, fragments);
+                xmlWriter.writeEndElement();
+                xmlWriter.writeEndElement();
+            } finally {
+                xmlWriter.close();
+            }
+        } catch (final Exception e) {
+            throw new MojoExecutionException("Failed to create Extension Documentation", e);
+        }
+
+        return true;
+    }
+
     private void writeXmlTag(final XMLStreamWriter xmlWriter, final String tagName, final String value) throws XMLStreamException {
         xmlWriter.writeStartElement(tagName);
         xmlWriter.writeCharacters(value);
         xmlWriter.writeEndElement();
     }
 
-    private void writeDocumentation(final Set<ExtensionDefinition> extensionDefinitions, final ExtensionClassLoader classLoader,
-                                    final Class<?> docWriterClass, final XMLStreamWriter xmlWriter, final File additionalDetailsDir)
-        throws InvocationTargetException, NoSuchMethodException, ClassNotFoundException, InstantiationException, IllegalAccessException, IOException {
-
+    private Set<ExtensionDefinition> sortDefinitions(final Set<ExtensionDefinition> extensionDefinitions) {
         final Set<ExtensionDefinition> sorted = new TreeSet<>(Comparator.comparing(ExtensionDefinition::getExtensionName));
         sorted.addAll(extensionDefinitions);
+        return sorted;
+    }
+
+    /**
+     * Renders the documentation of each extension into its own buffer. When {@link #docThreads} is greater than 1, the fragments are
+     * rendered concurrently and the first failure cancels the outstanding ones. The fragments are returned in the order of the given
+     * renderers, regardless of the order in which they complete.
+     */
+    List<byte[]> renderDocumentation(final List<DocumentationRenderer> renderers, final XMLOutputFactory xmlOutputFactory, final ClassLoader classLoader)
+        throws Exception {
 
-        for (final ExtensionDefinition definition : sorted) {
-            writeDocumentation(definition, classLoader, docWriterClass, xmlWriter);
+        final byte[][] fragments = new byte[renderers.size()][];
+        if (docThreads <= 1 || renderers.size() <= 1) {
+            for (int i = 0; i < renderers.size(); i++) {
+                fragments[i] = renderFragment(renderers.get(i), xmlOutputFactory, classLoader);
+            }
+            return Arrays.asList(fragments);
         }
 
-        final Set<String> extensionNames = sorted.stream()
-            .map(ExtensionDefinition::getExtensionName)
-            .collect(Collectors.toSet());
+        final int threads = Math.min(docThreads, renderers.size());
+        getLog().debug("Generating documentation for " + renderers.size() + " extensions using " + threads + " threads");
 
+        final ExecutorService executor = DaemonExecutors.newFixedThreadPool(threads, "nar-docs-");
         try {
-            writeAdditionalDetails(classLoader, extensionNames, additionalDetailsDir);
-        } catch (final Exception e) {
-            throw new IOException("Unable to extract Additional Details", e);
+            final CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < renderers.size(); i++) {
+                final int index = i;
+                completionService.submit(() -> {
+                    fragments[index] = renderFragment(renderers.get(index), xmlOutputFactory, classLoader);
+                    return index;
+                });
+            }
+
+            for (int i = 0; i < renderers.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw e;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while generating documentation", e);
+        } finally {
+            executor.shutdownNow();
         }
 
+        return Arrays.asList(fragments);
     }
 
-    private void writeDocumentation(final ExtensionDefinition extensionDefinition, final ExtensionClassLoader classLoader,
-                                    final Class<?> docWriterClass, final XMLStreamWriter xmlWriter)
-        throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, ClassNotFoundException {
+    /**
+     * Renders the documentation of the extensions whose classes changed since the fragments in the cache were rendered, and takes
+     * the fragments of the other extensions from the cache. The cache is then updated with the fragments of all extensions.
+     */
+    private List<byte[]> renderDocumentation(final ExtensionDocumentationCache documentationCache, final String nifiApiVersion, final List<ExtensionDefinition> definitions,
+                                             final List<DocumentationRenderer> renderers, final XMLOutputFactory xmlOutputFactory, final ClassLoader classLoader) throws Exception {
 
-        getLog().debug("Generating documentation for " + extensionDefinition.getExtensionName() + " using ClassLoader:" + System.lineSeparator() + classLoader.toTree());
-        final Object docWriter = docWriterClass.getConstructor(XMLStreamWriter.class).newInstance(xmlWriter);
-        final Class<?> configurableComponentClass = Class.forName("org.apache.nifi.components.ConfigurableComponent", false, classLoader);
+        final Set<File> extensionFiles = getExtensionFiles(classLoader, definitions);
+        if (extensionFiles == null || !documentationCache.isCacheable(extensionFiles)) {
+            getLog().debug("Not caching documentation because the extensions are not located in the artifacts of the NAR");
+            return renderDocumentation(renderers, xmlOutputFactory, classLoader);
+        }
 
-        final Class<?> extensionClass = Class.forName(extensionDefinition.getExtensionName(), false, classLoader);
-        final Object extensionInstance = extensionClass.getDeclaredConstructor().newInstance();
+        final Map<String, String> digests = documentationCache.digest(definitions.stream().map(ExtensionDefinition::getExtensionName).toList(), extensionFiles);
+        final boolean fingerprintMatch = documentationCache.isFingerprintMatch(extensionFiles);
+
+        final byte[][] fragments = new byte[definitions.size()][];
+        final List<ExtensionDocumentationCache.CachedExtension> cachedExtensions = new ArrayList<>();
+        final List<DocumentationRenderer> pendingRenderers = new ArrayList<>();
+        final List<Integer> pendingIndexes = new ArrayList<>();
+        for (int i = 0; i < definitions.size(); i++) {
+            final ExtensionDefinition definition = definitions.get(i);
+            final String digest = digests.get(definition.getExtensionName());
+            cachedExtensions.add(new ExtensionDocumentationCache.CachedExtension(definition.getExtensionType(), definition.getExtensionName(), digest));
+
+            fragments[i] = fingerprintMatch ? documentationCache.getFragment(definition.getExtensionType(), definition.getExtensionName(), digest) : null;
+            if (fragments[i] == null) {
+                pendingRenderers.add(renderers.get(i));
+                pendingIndexes.add(i);
+            }
+        }
 
-        final Method initMethod = docWriterClass.getMethod("initialize", configurableComponentClass);
-        initMethod.invoke(docWriter, extensionInstance);
+        getLog().info("Rendering documentation for " + pendingRenderers.size() + " of " + definitions.size() + " extensions, using cached documentation for the others");
+        final List<byte[]> rendered = renderDocumentation(pendingRenderers, xmlOutputFactory, classLoader);
+        for (int i = 0; i < rendered.size(); i++) {
+            fragments[pendingIndexes.get(i)] = rendered.get(i);
+        }
 
-        final Map<String,ServiceAPIDefinition> propertyServiceDefinitions = getRequiredServiceDefinitions(extensionClass, extensionInstance);
-        final Set<ServiceAPIDefinition> providedServiceDefinitions = extensionDefinition.getProvidedServiceAPIs();
+        final List<byte[]> allFragments = Arrays.asList(fragments);
+        try {
+            documentationCache.store(nifiApiVersion, extensionFiles, cachedExtensions, allFragments);
+        } catch (final IOException e) {
+            getLog().warn("Unable to cache the documentation of the extensions in this NAR", e);
+        }
 
-        if ((providedServiceDefinitions == null || providedServiceDefinitions.isEmpty())
-                && (propertyServiceDefinitions == null || propertyServiceDefinitions.isEmpty())) {
-            final Method writeMethod = docWriterClass.getMethod("write", configurableComponentClass);
-            writeMethod.invoke(docWriter, extensionInstance);
-        } else {
-            final Class<?> serviceApiClass = Class.forName("org.apache.nifi.documentation.StandardServiceAPI", false, classLoader);
-            final List<Object> providedServices = getDocumentationServiceAPIs(serviceApiClass, providedServiceDefinitions);
-            final Map<String,Object> propertyServices = getDocumentationServiceAPIs(serviceApiClass, propertyServiceDefinitions);
+        return allFragments;
+    }
 
-            final Method writeMethod = docWriterClass.getMethod("write", configurableComponentClass, Collection.class, Map.class);
-            writeMethod.invoke(docWriter, extensionInstance, providedServices, propertyServices);
+    private byte[] renderFragment(final DocumentationRenderer renderer, final XMLOutputFactory xmlOutputFactory, final ClassLoader classLoader) throws Exception {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader previousContextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final XMLStreamWriter xmlWriter = xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
+            try {
+                renderer.render(xmlWriter);
+                xmlWriter.flush();
+            } finally {
+                xmlWriter.close();
+            }
+            return out.toByteArray();
+        } finally {
+            thread.setContextClassLoader(previousContextClassLoader);
         }
     }
 
-    private void writeConnectorDocumentation(final Set<ExtensionDefinition> extensionDefinitions, final ExtensionClassLoader classLoader,
-                                             final Class<?> connectorDocWriterClass, final XMLStreamWriter xmlWriter, final File stepDocumentationDir)
-        throws InvocationTargetException, NoSuchMethodException, ClassNotFoundException, InstantiationException, IllegalAccessException, IOException {
-
-        final Set<ExtensionDefinition> sorted = new TreeSet<>(Comparator.comparing(ExtensionDefinition::getExtensionName));
-        sorted.addAll(extensionDefinitions);
+    private void writeDocumentation(final ExtensionDefinition extensionDefinition, final ExtensionClassLoader classLoader,
+                                    final ExtensionDocumentationBinding documentationBinding, final XMLStreamWriter xmlWriter) throws Exception {
 
-        for (final ExtensionDefinition definition : sorted) {
-            writeConnectorDocumentation(definition, classLoader, connectorDocWriterClass, xmlWriter);
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("Generating documentation for " + extensionDefinition.getExtensionName() + " using ClassLoader:" + System.lineSeparator() + classLoader.toTree());
         }
 
-        final Set<String> connectorNames = sorted.stream()
-            .map(ExtensionDefinition::getExtensionName)
-            .collect(Collectors.toSet());
+        final Class<?> extensionClass = Class.forName(extensionDefinition.getExtensionName(), false, classLoader);
+        final Object extensionInstance = extensionClass.getDeclaredConstructor().newInstance();
 
-        try {
-            writeStepDocumentation(classLoader, connectorNames, stepDocumentationDir);
-        } catch (final Exception e) {
-            throw new IOException("Unable to extract Step Documentation", e);
+        final Map<String,ServiceAPIDefinition> propertyServiceDefinitions = getRequiredServiceDefinitions(documentationBinding, extensionInstance);
+        final Set<ServiceAPIDefinition> providedServiceDefinitions = extensionDefinition.getProvidedServiceAPIs();
+
+        if ((providedServiceDefinitions == null || providedServiceDefinitions.isEmpty())
+                && (propertyServiceDefinitions == null || propertyServiceDefinitions.isEmpty())) {
+            documentationBinding.writeDocumentation(xmlWriter, extensionInstance);
+        } else {
+            final List<Object> providedServices = getDocumentationServiceAPIs(documentationBinding, providedServiceDefinitions);
+            final Map<String,Object> propertyServices = getDocumentationServiceAPIs(documentationBinding, propertyServiceDefinitions);
+
+            documentationBinding.writeDocumentation(xmlWriter, extensionInstance, providedServices, propertyServices);
         }
     }
 
     private void writeConnectorDocumentation(final ExtensionDefinition extensionDefinition, final ExtensionClassLoader classLoader,
-                                             final Class<?> connectorDocWriterClass, final XMLStreamWriter xmlWriter)
-        throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, ClassNotFoundException {
+                                             final ExtensionDocumentationBinding documentationBinding, final XMLStreamWriter xmlWriter) throws Exception {
 
-        getLog().debug("Generating Connector documentation for " + extensionDefinition.getExtensionName() + " using ClassLoader:" + System.lineSeparator() + classLoader.toTree());
-        final Object connectorDocWriter = connectorDocWriterClass.getConstructor(XMLStreamWriter.class).newInstance(xmlWriter);
-        final Class<?> connectorClass = Class.forName(CONNECTOR_CLASS_NAME, false, classLoader);
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("Generating Connector documentation for " + extensionDefinition.getExtensionName() + " using ClassLoader:" + System.lineSeparator() + classLoader.toTree());
+        }
 
         final Class<?> extensionClass = Class.forName(extensionDefinition.getExtensionName(), false, classLoader);
         final Object connectorInstance = extensionClass.getDeclaredConstructor().newInstance();
 
-        final Method initMethod = connectorDocWriterClass.getMethod("initialize", connectorClass);
-        initMethod.invoke(connectorDocWriter, connectorInstance);
-
-        final Method writeMethod = connectorDocWriterClass.getMethod("write", connectorClass);
-        writeMethod.invoke(connectorDocWriter, connectorInstance);
+        documentationBinding.writeConnectorDocumentation(xmlWriter, connectorInstance);
     }
 
-    private List<Object> getDocumentationServiceAPIs(Class<?> serviceApiClass, Set<ServiceAPIDefinition> serviceDefinitions)
-            throws NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException {
-        final Constructor<?> ctr = serviceApiClass.getConstructor(String.class, String.class, String.class, String.class);
-
+    private List<Object> getDocumentationServiceAPIs(final ExtensionDocumentationBinding documentationBinding, final Set<ServiceAPIDefinition> serviceDefinitions)
+            throws Exception {
         final List<Object> providedServices = new ArrayList<>();
 
         for (final ServiceAPIDefinition definition : serviceDefinitions) {
-            final Object serviceApi = ctr.newInstance(definition.getServiceAPIClassName(), definition.getServiceGroupId(), definition.getServiceArtifactId(), definition.getServiceVersion());
+            final Object serviceApi = documentationBinding.createServiceAPI(definition.getServiceAPIClassName(), definition.getServiceGroupId(),
+                    definition.getServiceArtifactId(), definition.getServiceVersion());
             providedServices.add(serviceApi);
         }
         return providedServices;
     }
 
-    private Map<String,Object> getDocumentationServiceAPIs(Class<?> serviceApiClass, Map<String,ServiceAPIDefinition> serviceDefinitions)
-            throws NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException {
-        final Constructor<?> ctr = serviceApiClass.getConstructor(String.class, String.class, String.class, String.class);
-
+    private Map<String,Object> getDocumentationServiceAPIs(final ExtensionDocumentationBinding documentationBinding, final Map<String,ServiceAPIDefinition> serviceDefinitions)
+            throws Exception {
         final Map<String,Object> providedServices = new HashMap<>();
 
         for (final Map.Entry<String,ServiceAPIDefinition> entry : serviceDefinitions.entrySet()) {
             final String propName = entry.getKey();
             final ServiceAPIDefinition definition = entry.getValue();
 
-            final Object serviceApi = ctr.newInstance(definition.getServiceAPIClassName(), definition.getServiceGroupId(), definition.getServiceArtifactId(), definition.getServiceVersion());
+            final Object serviceApi = documentationBinding.createServiceAPI(definition.getServiceAPIClassName(), definition.getServiceGroupId(),
+                    definition.getServiceArtifactId(), definition.getServiceVersion());
             providedServices.put(propName, serviceApi);
         }
         return providedServices;
     }
 
-    private Map<String,ServiceAPIDefinition> getRequiredServiceDefinitions(final Class<?> extensionClass, final Object extensionInstance)
-            throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+    private Map<String,ServiceAPIDefinition> getRequiredServiceDefinitions(final ExtensionDocumentationBinding documentationBinding, final Object extensionInstance)
+            throws Exception {
         final Map<String,ServiceAPIDefinition> requiredServiceAPIDefinitions = new HashMap<>();
 
-        final Method writeMethod = extensionClass.getMethod("getPropertyDescriptors");
-        final List<Object> propertyDescriptors = (List<Object>) writeMethod.invoke(extensionInstance);
+        final List<?> propertyDescriptors = documentationBinding.getPropertyDescriptors(extensionInstance);
 
         if (propertyDescriptors == null) {
             return requiredServiceAPIDefinitions;
         }
 
         for (final Object propDescriptor : propertyDescriptors) {
-            final Method nameMethod = propDescriptor.getClass().getMethod("getName");
-            final String propName = (String) nameMethod.invoke(propDescriptor);
-
-            final Method serviceDefinitionMethod = propDescriptor.getClass().getMethod("getControllerServiceDefinition");
-            final Object serviceDefinition = serviceDefinitionMethod.invoke(propDescriptor);
+            final Class<?> serviceDefinitionClass = documentationBinding.getControllerServiceDefinition(propDescriptor);
 
-            if (serviceDefinition == null) {
+            if (serviceDefinitionClass == null) {
                 continue;
             }
 
-            final Class<?> serviceDefinitionClass = (Class<?>) serviceDefinition;
             if (CONTROLLER_SERVICE_CLASS_NAME.equals(serviceDefinitionClass.getName())) {
                 continue;
             }
 
+            final String propName = documentationBinding.getPropertyName(propDescriptor);
             final ExtensionClassLoader extensionClassLoader = (ExtensionClassLoader) serviceDefinitionClass.getClassLoader();
             final Artifact narArtifact = extensionClassLoader.getNarArtifact();
 
@@ -845,60 +1198,99 @@ public class NarMojo extends AbstractMojo {
         return requiredServiceAPIDefinitions;
     }
 
-    private void writeAdditionalDetails(final ExtensionClassLoader classLoader, final Set<String> extensionNames, final File additionalDetailsDir)
-        throws URISyntaxException, IOException, MojoExecutionException {
+    /**
+     * Creates the index of the documentation provided by the jars of the given ClassLoader. Documentation is expected alongside the
+     * extension classes, so only the jars that contain one of the given extensions are indexed, unless the location of an extension
+     * class cannot be determined, in which case all jars of the ClassLoader are indexed.
+     */
+    private ExtensionDocumentationIndex createDocumentationIndex(final ExtensionClassLoader classLoader, final Collection<ExtensionDefinition> extensionDefinitions)
+        throws IOException {
 
-        for (final URL url : classLoader.getURLs()) {
-            final File file = new File(url.toURI());
-            final String filename = file.getName();
-            if (!filename.endsWith(".jar")) {
-                continue;
+        try {
+            final Set<File> jarFiles = new LinkedHashSet<>();
+            for (final URL url : classLoader.getURLs()) {
+                final File file = new File(url.toURI());
+                if (file.getName().endsWith(".jar")) {
+                    jarFiles.add(file);
+                }
             }
 
-            writeAdditionalDetails(file, extensionNames, additionalDetailsDir);
+            final Set<File> extensionJarFiles = getExtensionFiles(classLoader, extensionDefinitions);
+            if (extensionJarFiles != null) {
+                jarFiles.retainAll(extensionJarFiles);
+            }
+            return ExtensionDocumentationIndex.create(jarFiles);
+        } catch (final URISyntaxException | ClassNotFoundException e) {
+            throw new IOException("Unable to index extension documentation", e);
         }
     }
 
-    private void writeAdditionalDetails(final File file, final Set<String> extensionNames, final File additionalDetailsDir) throws IOException, MojoExecutionException {
-        final JarFile jarFile = new JarFile(file);
-
-        for (final Enumeration<JarEntry> jarEnumeration = jarFile.entries(); jarEnumeration.hasMoreElements();) {
-            final JarEntry jarEntry = jarEnumeration.nextElement();
-
-            final String entryName = jarEntry.getName();
-            if (!entryName.startsWith("docs/")) {
-                continue;
+    /**
+     * @return the files that contain the classes of the given extensions, or <code>null</code> if the location of any class cannot be determined
+     */
+    private Set<File> getExtensionFiles(final ClassLoader classLoader, final Collection<ExtensionDefinition> extensionDefinitions) throws ClassNotFoundException, URISyntaxException {
+        final Set<File> extensionFiles = new LinkedHashSet<>();
+        for (final ExtensionDefinition extensionDefinition : extensionDefinitions) {
+            final Class<?> extensionClass = Class.forName(extensionDefinition.getExtensionName(), false, classLoader);
+            final CodeSource codeSource = extensionClass.getProtectionDomain().getCodeSource();
+            if (codeSource == null || codeSource.getLocation() == null) {
+                return null;
             }
+            extensionFiles.add(new File(codeSource.getLocation().toURI()));
+        }
+        return extensionFiles;
+    }
 
-            final int nextSlashIndex = entryName.indexOf("/", 5);
-            if (nextSlashIndex < 0) {
-                continue;
+    private void writeAdditionalDetails(final ExtensionDocumentationIndex documentationIndex, final Set<ExtensionDefinition> extensionDefinitions,
+                                        final File additionalDetailsDir) throws IOException {
+        try {
+            for (final ExtensionDefinition extensionDefinition : extensionDefinitions) {
+                final String componentName = extensionDefinition.getExtensionName();
+                for (final ExtensionDocumentationIndex.DocumentationEntry entry : documentationIndex.getEntries(componentName)) {
+                    getLog().debug("Found file " + entry.getEntryName() + " in " + entry.getFile() + " that consists of documentation for " + componentName);
+                    final File componentDirectory = new File(additionalDetailsDir, componentName);
+                    writeDocumentationEntry(entry, new File(componentDirectory, entry.getRelativePath()));
+                }
             }
+        } catch (final Exception e) {
+            throw new IOException("Unable to extract Additional Details", e);
+        }
+    }
 
-            final String componentName = entryName.substring(5, nextSlashIndex);
-            if (!extensionNames.contains(componentName)) {
-                continue;
-            }
+    private void writeStepDocumentation(final ExtensionDocumentationIndex documentationIndex, final Set<ExtensionDefinition> connectorDefinitions,
+                                        final File stepDocumentationDir) throws IOException {
+        try {
+            for (final ExtensionDefinition connectorDefinition : connectorDefinitions) {
+                final String connectorName = connectorDefinition.getExtensionName();
+                for (final ExtensionDocumentationIndex.DocumentationEntry entry : documentationIndex.getEntries(connectorName)) {
+                    // Look for step documentation under docs/<ConnectorClassName>/steps/
+                    final String relativePath = entry.getRelativePath();
+                    if (!relativePath.startsWith("steps/")) {
+                        continue;
+                    }
 
-            if (jarEntry.isDirectory()) {
-                continue;
-            }
+                    // Get the step documentation filename (e.g., "Configure_Connection.md")
+                    final String stepFileName = relativePath.substring(6);
+                    if (stepFileName.isEmpty()) {
+                        continue;
+                    }
 
-            if (entryName.length() < nextSlashIndex + 1) {
-                continue;
+                    getLog().debug("Found step documentation file " + entry.getEntryName() + " in " + entry.getFile() + " for connector " + connectorName);
+                    final File connectorDirectory = new File(stepDocumentationDir, connectorName);
+                    writeDocumentationEntry(entry, new File(connectorDirectory, stepFileName));
+                }
             }
+        } catch (final Exception e) {
+            throw new IOException("Unable to extract Step Documentation", e);
+        }
+    }
 
-            getLog().debug("Found file " + entryName + " in " + file + " that consists of documentation for " + componentName);
-            final File componentDirectory = new File(additionalDetailsDir, componentName);
-            final String remainingPath = entryName.substring(nextSlashIndex + 1);
-            final File destinationFile = new File(componentDirectory, remainingPath);
-
-            createDirectory(destinationFile.getParentFile());
+    private void writeDocumentationEntry(final ExtensionDocumentationIndex.DocumentationEntry entry, final File destinationFile) throws IOException, MojoExecutionException {
+        createDirectory(destinationFile.getParentFile());
 
-            try (final InputStream in = jarFile.getInputStream(jarEntry);
-                 final OutputStream out = new FileOutputStream(destinationFile)) {
-                copy(in, out);
-            }
+        try (final InputStream in = entry.open();
+             final OutputStream out = new FileOutputStream(destinationFile)) {
+            copy(in, out);
         }
     }
 
@@ -910,74 +1302,10 @@ public class NarMojo extends AbstractMojo {
         }
     }
 
-    private void writeStepDocumentation(final ExtensionClassLoader classLoader, final Set<String> connectorNames, final File stepDocumentationDir)
-        throws URISyntaxException, IOException, MojoExecutionException {
-
-        for (final URL url : classLoader.getURLs()) {
-            final File file = new File(url.toURI());
-            final String filename = file.getName();
-            if (!filename.endsWith(".jar")) {
-                continue;
-            }
-
-            writeStepDocumentation(file, connectorNames, stepDocumentationDir);
-        }
-    }
-
-    private void writeStepDocumentation(final File file, final Set<String> connectorNames, final File stepDocumentationDir) throws IOException, MojoExecutionException {
-        final JarFile jarFile = new JarFile(file);
-
-        for (final Enumeration<JarEntry> jarEnumeration = jarFile.entries(); jarEnumeration.hasMoreElements();) {
-            final JarEntry jarEntry = jarEnumeration.nextElement();
-
-            final String entryName = jarEntry.getName();
-            // Look for step documentation under docs/<ConnectorClassName>/steps/
-            if (!entryName.startsWith("docs/")) {
-                continue;
-            }
-
-            final int nextSlashIndex = entryName.indexOf("/", 5);
-            if (nextSlashIndex < 0) {
-                continue;
-            }
-
-            final String connectorName = entryName.substring(5, nextSlashIndex);
-            if (!connectorNames.contains(connectorName)) {
-                continue;
-            }
-
-            // Check if this is under the steps/ subdirectory
-            final String afterConnector = entryName.substring(nextSlashIndex + 1);
-            if (!afterConnector.startsWith("steps/")) {
-                continue;
-            }
-
-            if (jarEntry.isDirectory()) {
-                continue;
-            }
-
-            // Get the step documentation filename (e.g., "Configure_Connection.md")
-            final String stepFileName = afterConnector.substring(6); // Remove "steps/"
-            if (stepFileName.isEmpty()) {
-                continue;
-            }
-
-            getLog().debug("Found step documentation file " + entryName + " in " + file + " for connector " + connectorName);
-            final File connectorDirectory = new File(stepDocumentationDir, connectorName);
-            final File destinationFile = new File(connectorDirectory, stepFileName);
-
-            createDirectory(destinationFile.getParentFile());
-
-            try (final InputStream in = jarFile.getInputStream(jarEntry);
-                 final OutputStream out = new FileOutputStream(destinationFile)) {
-                copy(in, out);
-            }
-        }
-    }
-
     private ExtensionClassLoaderFactory createClassLoaderFactory() {
         return new ExtensionClassLoaderFactory.Builder()
-                .artifactResolver(resolver)
+                .repositorySystem(repoSystem)
+                .remoteProjectRepositories(project.getRemoteProjectRepositories())
                 .dependencyGraphBuilder(dependencyGraphBuilder)
                 .localRepository(local)
                 .remoteRepositories(remoteRepos)
@@ -986,9 +1314,54 @@ public class NarMojo extends AbstractMojo {
                 .projectBuilder(projectBuilder)
                 .repositorySession(repoSession)
                 .artifactHandlerManager(artifactHandlerManager)
+                .classLoaderCache(shareClassLoaders ? ExtensionClassLoaderCache.getInstance(repoSession) : null)
+                .useResolvedProject(reuseResolvedProject)
+                .resolutionThreads(resolutionThreads)
+                .parallelChainConstruction(parallelClassLoaderChain)
+                .dependencyGraphStore(cacheDependencyGraphs ? createDependencyGraphStore() : null)
+                .useDependenciesDescriptors(useDependenciesDescriptors)
+                .indexedClassLoaders(indexedClassLoaders)
+                .memoryMappedJars(memoryMappedJars)
                 .build();
     }
 
+    private DependencyGraphStore createDependencyGraphStore() {
+        final LocalRepositoryManager localRepositoryManager = repoSession.getLocalRepositoryManager();
+        if (localRepositoryManager == null) {
+            return null;
+        }
+
+        final File localRepositoryDirectory = localRepositoryManager.getRepository().getBasedir();
+        final File directory = new File(localRepositoryDirectory, ".cache/nifi-nar-maven-plugin/dependency-graphs");
+        final boolean updateSnapshots = RepositoryPolicy.UPDATE_POLICY_ALWAYS.equals(repoSession.getUpdatePolicy());
+        final WorkspaceReader workspaceReader = repoSession.getWorkspaceReader();
+        final DependencyGraphStore.PomFileLocator pomFileLocator = new DependencyGraphStore.PomFileLocator() {
+            @Override
+            public File getPomFile(final String groupId, final String artifactId, final String version) {
+                final File reactorPomFile = getReactorPomFile(groupId, artifactId, version);
+                if (reactorPomFile != null) {
+                    return reactorPomFile;
+                }
+
+                final org.eclipse.aether.artifact.Artifact pom = new org.eclipse.aether.artifact.DefaultArtifact(groupId, artifactId, "pom", version);
+                return new File(localRepositoryDirectory, localRepositoryManager.getPathForLocalArtifact(pom));
+            }
+
+            @Override
+            public boolean isReactorArtifact(final String groupId, final String artifactId, final String version) {
+                return getReactorPomFile(groupId, artifactId, version) != null;
+            }
+
+            private File getReactorPomFile(final String groupId, final String artifactId, final String version) {
+                if (workspaceReader == null) {
+                    return null;
+                }
+                return workspaceReader.findArtifact(new org.eclipse.aether.artifact.DefaultArtifact(groupId, artifactId, "pom", version));
+            }
+        };
+        return new DependencyGraphStore(directory, artifactHandlerManager, pomFileLocator, updateSnapshots);
+    }
+
 
     private void createDirectory(final File file) throws MojoExecutionException {
         if (!file.exists()) {
@@ -1002,12 +1375,20 @@ public class NarMojo extends AbstractMojo {
 
 
     private void copyDependencies() throws MojoExecutionException {
+        if (!stageDependencies) {
+            getLog().debug("Skipping staging of bundled dependencies; they will be added to the NAR from their resolved locations");
+            return;
+        }
+
+        if (syncDependencies) {
+            syncDependencies();
+            return;
+        }
+
         DependencyStatusSets dss = getDependencySets();
         Set<Artifact> artifacts = dss.getResolvedDependencies();
 
-        for (Artifact artifact : artifacts) {
-            copyArtifact(artifact);
-        }
+        copyArtifacts(artifacts);
 
         artifacts = dss.getSkippedDependencies();
         for (Artifact artifact : artifacts) {
@@ -1015,7 +1396,167 @@ public class NarMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Brings the bundled dependencies directory in line with the current set of dependencies in a single pass: artifacts whose
+     * content differs from the manifest of the previous build are copied and files that the previous build copied for a dependency
+     * that no longer belongs to the NAR are deleted.
+     */
+    private void syncDependencies() throws MojoExecutionException {
+        final File manifestFile = getBundledDependenciesManifestFile();
+        final BundledDependenciesManifest previousManifest = BundledDependenciesManifest.load(manifestFile);
+        final BundledDependenciesManifest manifest = BundledDependenciesManifest.empty();
+
+        final Map<String, Artifact> artifactsByFileName = new TreeMap<>();
+        for (final Artifact artifact : getBundledArtifacts()) {
+            artifactsByFileName.put(getDestinationFile(artifact).getName(), artifact);
+        }
+
+        final List<Artifact> changedArtifacts = new ArrayList<>();
+        for (final Map.Entry<String, Artifact> entry : artifactsByFileName.entrySet()) {
+            final String fileName = entry.getKey();
+            final Artifact artifact = entry.getValue();
+            final BundledDependenciesManifest.Entry previousEntry = previousManifest.get(fileName);
+
+            final BundledDependenciesManifest.Entry manifestEntry;
+            try {
+                manifestEntry = BundledDependenciesManifest.createEntry(artifact.getId(), artifact.getFile(), previousEntry);
+            } catch (final IOException e) {
+                throw new MojoExecutionException("Failed to compute digest of " + artifact.getFile(), e);
+            }
+            manifest.put(fileName, manifestEntry);
+
+            final File destFile = getDestinationFile(artifact);
+            if (manifestEntry.isSameContent(previousEntry) && destFile.isFile() && destFile.length() == manifestEntry.getSize()) {
+                getLog().debug(fileName + " is up to date in destination.");
+            } else {
+                changedArtifacts.add(artifact);
+            }
+        }
+
+        // only files copied by an earlier sync are pruned, so files that the project ships in the directory itself are kept
+        for (final String removedFileName : previousManifest.getRemovedFileNames(manifest)) {
+            final File stagedFile = new File(getDependenciesDirectory(), removedFileName);
+            if (stagedFile.isFile()) {
+                getLog().info("Removing " + removedFileName + " from " + getDependenciesDirectory() + " because it is no longer a dependency");
+                if (!stagedFile.delete()) {
+                    throw new MojoExecutionException("Could not delete stale dependency " + stagedFile);
+                }
+            }
+        }
+
+        copyArtifacts(changedArtifacts);
+
+        try {
+            manifest.store(manifestFile);
+        } catch (final IOException e) {
+            throw new MojoExecutionException("Failed to write bundled dependencies manifest " + manifestFile, e);
+        }
+    }
+
+    private File getBundledDependenciesManifestFile() {
+        return new File(markersDirectory, "bundled-dependencies.sha256");
+    }
+
+    private void copyArtifacts(final Collection<Artifact> artifacts) throws MojoExecutionException {
+        if (copyThreads > 1 && artifacts.size() > 1) {
+            copyArtifactsConcurrently(artifacts);
+        } else {
+            for (Artifact artifact : artifacts) {
+                copyArtifact(artifact);
+            }
+        }
+    }
+
+    /**
+     * Copies the given artifacts through {@link #copyArtifact(Artifact)} using a pool of {@link #copyThreads} workers. The first failure
+     * cancels the copies that have not started and waits for the running ones to finish, as interrupting a copy would leave a truncated
+     * file that is newer than its artifact and therefore not copied again by the next build. The copies logged by {@link #copyFile(File, File)} are held back per artifact and logged in sorted
+     * artifact order as soon as every preceding artifact has been copied, so the build output does not depend on thread scheduling.
+     */
+    private void copyArtifactsConcurrently(final Collection<Artifact> artifacts) throws MojoExecutionException {
+        final List<Artifact> sorted = new ArrayList<>(artifacts);
+        Collections.sort(sorted);
+
+        createDirectory(getDependenciesDirectory());
+
+        final int threads = Math.min(copyThreads, sorted.size());
+        getLog().debug("Copying " + sorted.size() + " dependencies using " + threads + " threads");
+
+        final ExecutorService executor = DaemonExecutors.newFixedThreadPool(threads, "nar-copy-");
+        final List<Future<Integer>> futures = new ArrayList<>(sorted.size());
+
+        try {
+            final CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+            final List<List<String>> copyLogs = new ArrayList<>(Collections.nCopies(sorted.size(), null));
+            for (int i = 0; i < sorted.size(); i++) {
+                final int index = i;
+                futures.add(completionService.submit(() -> {
+                    final List<String> copyLog = new ArrayList<>();
+                    deferredCopyLog.set(copyLog);
+                    try {
+                        copyArtifact(sorted.get(index));
+                    } finally {
+                        deferredCopyLog.remove();
+                    }
+                    synchronized (copyLogs) {
+                        copyLogs.set(index, copyLog);
+                    }
+                    return index;
+                }));
+            }
+
+            int nextToLog = 0;
+            for (int i = 0; i < sorted.size(); i++) {
+                getCopyResult(completionService.take());
+
+                synchronized (copyLogs) {
+                    while (nextToLog < sorted.size() && copyLogs.get(nextToLog) != null) {
+                        copyLogs.get(nextToLog++).forEach(message -> getLog().info(message));
+                    }
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while copying dependencies", e);
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+    }
+
+    private void awaitTermination(final ExecutorService executor) {
+        boolean interrupted = false;
+        boolean terminated = false;
+        while (!terminated) {
+            try {
+                terminated = executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int getCopyResult(final Future<Integer> future) throws MojoExecutionException, InterruptedException {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof MojoExecutionException) {
+                throw (MojoExecutionException) cause;
+            }
+            throw new MojoExecutionException("Failed to copy dependencies", cause);
+        }
+    }
+
     protected void copyArtifact(Artifact artifact) throws MojoExecutionException {
+        copyFile(artifact.getFile(), getDestinationFile(artifact));
+    }
+
+    private File getDestinationFile(final Artifact artifact) {
         String destFileName = DependencyUtil.getFormattedFileName(artifact, false);
         final File destDir = DependencyUtil.getFormattedOutputDirectory(
                 false,
@@ -1026,8 +1567,7 @@ public class NarMojo extends AbstractMojo {
                 false,
                 getDependenciesDirectory(),
                 artifact);
-        final File destFile = new File(destDir, destFileName);
-        copyFile(artifact.getFile(), destFile);
+        return new File(destDir, destFileName);
     }
 
     protected Artifact getResolvedPomArtifact(Artifact artifact) {
@@ -1061,6 +1601,35 @@ public class NarMojo extends AbstractMojo {
 
 
     protected DependencyStatusSets getDependencySets() throws MojoExecutionException {
+        final Set<Artifact> artifacts = getFilteredArtifacts();
+
+        // transform artifacts if classifier is set
+        final DependencyStatusSets status;
+        if (StringUtils.isNotEmpty(copyDepClassifier)) {
+            status = getClassifierTranslatedDependencies(artifacts);
+        } else {
+            status = filterMarkedDependencies(artifacts);
+        }
+
+        return status;
+    }
+
+    /**
+     * @return every dependency that belongs in the NAR, regardless of what has already been copied to the staging directory
+     */
+    protected Set<Artifact> getBundledArtifacts() throws MojoExecutionException {
+        final Set<Artifact> artifacts = getFilteredArtifacts();
+        if (StringUtils.isNotEmpty(copyDepClassifier)) {
+            return getClassifierTranslatedDependencies(artifacts).getResolvedDependencies();
+        }
+
+        return artifacts;
+    }
+
+    /**
+     * @return the dependencies of the project that are bundled in the NAR according to the include and exclude parameters
+     */
+    protected Set<Artifact> getFilteredArtifacts() throws MojoExecutionException {
         // add filters in well known order, least specific to most specific
         FilterArtifacts filter = new FilterArtifacts();
 
@@ -1085,20 +1654,10 @@ public class NarMojo extends AbstractMojo {
 
         // perform filtering
         try {
-            artifacts = filter.filter(artifacts);
+            return filter.filter(artifacts);
         } catch (ArtifactFilterException e) {
             throw new MojoExecutionException(e.getMessage(), e);
         }
-
-        // transform artifacts if classifier is set
-        final DependencyStatusSets status;
-        if (StringUtils.isNotEmpty(copyDepClassifier)) {
-            status = getClassifierTranslatedDependencies(artifacts);
-        } else {
-            status = filterMarkedDependencies(artifacts);
-        }
-
-        return status;
     }
 
     protected DependencyStatusSets getClassifierTranslatedDependencies(Set<Artifact> artifacts) throws MojoExecutionException {
@@ -1111,23 +1670,38 @@ public class NarMojo extends AbstractMojo {
         // if this did something, we need to resolve the new artifacts
         if (StringUtils.isNotEmpty(copyDepClassifier)) {
             ArtifactTranslator translator = new ClassifierTypeTranslator(artifactHandlerManager, copyDepClassifier, type);
-            Set<org.eclipse.aether.artifact.Artifact> artifactCoordinates = translator.translate(artifacts, getLog());
+
+            // translate each artifact on its own so that each translated artifact can be traced back to the artifact it came from
+            final List<Artifact> sourceArtifacts = new ArrayList<>(artifacts);
+            final List<org.eclipse.aether.artifact.Artifact> artifactCoordinates = new ArrayList<>(sourceArtifacts.size());
+            for (final Artifact sourceArtifact : sourceArtifacts) {
+                artifactCoordinates.addAll(translator.translate(Collections.singleton(sourceArtifact), getLog()));
+            }
 
             status = filterMarkedDependencies(artifacts);
 
             // the unskipped artifacts are in the resolved set.
             artifacts = status.getResolvedDependencies();
-            unResolvedArtifacts.addAll(artifacts);
 
-            // resolve the rest of the artifacts
-            ArtifactResolver artifactResolver = new DefaultArtifactResolver();
-            for (Artifact artifact : artifacts) {
-                ArtifactResolutionRequest req = getArtifactResolutionRequest(artifact);
-                ArtifactResolutionResult result = artifactResolver.resolve(req);
-                if (result.getArtifacts() != null) {
-                    unResolvedArtifacts.removeAll(result.getArtifacts());
+            // resolve the translated artifacts in a single request
+            final BatchArtifactResolver artifactResolver = new BatchArtifactResolver(repoSystem, repoSession, project.getRemoteProjectRepositories());
+            final List<Artifact> translatedArtifacts = artifactResolver.resolve(artifactCoordinates);
+
+            // an unskipped artifact without the requested classifier would silently be left out of the NAR
+            resolvedArtifacts = new LinkedHashSet<>();
+            final List<org.eclipse.aether.artifact.Artifact> missingArtifacts = new ArrayList<>();
+            for (int i = 0; i < sourceArtifacts.size(); i++) {
+                final Artifact translatedArtifact = translatedArtifacts.get(i);
+                if (translatedArtifact != null) {
+                    resolvedArtifacts.add(translatedArtifact);
+                } else if (artifacts.contains(sourceArtifacts.get(i))) {
+                    missingArtifacts.add(artifactCoordinates.get(i));
                 }
             }
+
+            if (!missingArtifacts.isEmpty()) {
+                throw new MojoExecutionException("Could not resolve the " + copyDepClassifier + " classifier of dependencies " + missingArtifacts);
+            }
         }
 
         // return a bean of all 3 sets.
@@ -1158,9 +1732,26 @@ public class NarMojo extends AbstractMojo {
     }
 
     protected void copyFile(File artifact, File destFile) throws MojoExecutionException {
+        logCopy(artifact, destFile);
+        transferFile(artifact, destFile);
+    }
+
+    private void logCopy(final File artifact, final File destFile) {
+        final String message = "Copying " + (this.outputAbsoluteArtifactFilename ? artifact.getAbsolutePath() : artifact.getName()) + " to " + destFile;
+        final List<String> copyLog = deferredCopyLog.get();
+        if (copyLog == null) {
+            getLog().info(message);
+        } else {
+            copyLog.add(message);
+        }
+    }
+
+    private void transferFile(final File artifact, final File destFile) throws MojoExecutionException {
         try {
-            getLog().info("Copying " + (this.outputAbsoluteArtifactFilename ? artifact.getAbsolutePath() : artifact.getName()) + " to " + destFile);
-            FileUtils.copyFile(artifact, destFile);
+            final FileCopyStrategy usedStrategy = copyStrategy.copy(artifact, destFile);
+            if (usedStrategy != copyStrategy && getLog().isDebugEnabled()) {
+                getLog().debug("Copy strategy " + copyStrategy + " is not supported for " + destFile + "; used " + usedStrategy + " instead");
+            }
         } catch (Exception e) {
             throw new MojoExecutionException("Error copying artifact from " + artifact + " to " + destFile, e);
         }
@@ -1172,7 +1763,7 @@ public class NarMojo extends AbstractMojo {
     }
 
     private File getDependenciesDirectory() {
-        return new File(getClassesDirectory(), "META-INF/bundled-dependencies");
+        return new File(getClassesDirectory(), BUNDLED_DEPENDENCIES_PATH);
     }
 
     private void makeNar() throws MojoExecutionException {
@@ -1189,6 +1780,28 @@ public class NarMojo extends AbstractMojo {
         if (extensionDocsFile != null && !skipDocGeneration) {
             projectHelper.attachArtifact(project, "xml", "nar-extension-manifest", extensionDocsFile);
         }
+
+        if (attachDependenciesDescriptor) {
+            if (classifier == null) {
+                final File descriptorFile = createDependenciesDescriptor();
+                projectHelper.attachArtifact(project, NarDependenciesDescriptor.EXTENSION, NarDependenciesDescriptor.CLASSIFIER, descriptorFile);
+            } else {
+                getLog().info("Not attaching a NAR dependencies descriptor to the NAR with classifier " + classifier);
+            }
+        }
+    }
+
+    private File createDependenciesDescriptor() throws MojoExecutionException {
+        final Set<Artifact> graphArtifacts = createClassLoaderFactory().getProjectDependencyArtifacts();
+        final NarDependenciesDescriptor descriptor = NarDependenciesDescriptor.create(project.getArtifact(), graphArtifacts);
+
+        final File descriptorFile = new File(projectBuildDirectory, NarDependenciesDescriptor.CLASSIFIER + "." + NarDependenciesDescriptor.EXTENSION);
+        try {
+            descriptor.store(descriptorFile);
+        } catch (final IOException e) {
+            throw new MojoExecutionException("Failed to write NAR dependencies descriptor " + descriptorFile, e);
+        }
+        return descriptorFile;
     }
 
     private NarResult createArchive() throws MojoExecutionException {
@@ -1204,11 +1817,15 @@ public class NarMojo extends AbstractMojo {
         try {
             File contentDirectory = getClassesDirectory();
             if (contentDirectory.exists()) {
-                archiver.getArchiver().addFileSet(DefaultFileSet.fileSet(contentDirectory).include(getIncludes()).exclude(getExcludes()));
-            } else {
+                archiver.getArchiver().addFileSet(DefaultFileSet.fileSet(contentDirectory).include(getIncludes()).exclude(getContentExcludes()));
+            } else if (stageDependencies) {
                 getLog().warn("NAR will be empty - no content was marked for inclusion!");
             }
 
+            if (!stageDependencies) {
+                addBundledDependencies(archiver.getArchiver());
+            }
+
             File extensionDocsFile = getExtensionsDocumentationFile();
             if (extensionDocsFile.exists()) {
                 archiver.getArchiver().addFile(extensionDocsFile, "META-INF/docs/" + extensionDocsFile.getName());
@@ -1273,6 +1890,30 @@ public class NarMojo extends AbstractMojo {
         }
     }
 
+    private void addBundledDependencies(final Archiver archiver) throws MojoExecutionException {
+        final Map<String, File> dependencyFiles = new TreeMap<>();
+        for (final Artifact artifact : getBundledArtifacts()) {
+            dependencyFiles.put(BUNDLED_DEPENDENCIES_PATH + DependencyUtil.getFormattedFileName(artifact, false), artifact.getFile());
+        }
+
+        for (final Map.Entry<String, File> entry : dependencyFiles.entrySet()) {
+            getLog().debug("Adding " + entry.getValue() + " to NAR as " + entry.getKey());
+            archiver.addFile(entry.getValue(), entry.getKey());
+        }
+    }
+
+    private String[] getContentExcludes() {
+        final String[] contentExcludes = getExcludes();
+        if (stageDependencies) {
+            return contentExcludes;
+        }
+
+        // Dependencies are added from their resolved locations, so leftovers from a staged build must not be packaged
+        final String[] excludesWithDependencies = Arrays.copyOf(contentExcludes, contentExcludes.length + 1);
+        excludesWithDependencies[contentExcludes.length] = BUNDLED_DEPENDENCIES_PATH + "**";
+        return excludesWithDependencies;
+    }
+
     private boolean notEmpty(String value) {
         return value != null && !value.isEmpty();
     }
@@ -1364,6 +2005,13 @@ public class NarMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Writes the documentation of a single extension
+     */
+    interface DocumentationRenderer {
+        void render(XMLStreamWriter xmlWriter) throws Exception;
+    }
+
     private static class NarResult {
         private final File narFile;
         private final File extensionDocsFile;
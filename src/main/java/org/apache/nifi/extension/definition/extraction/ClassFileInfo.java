@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The names that a class file declares and references, read from its constant pool without loading the class. Class names are
+ * internal names, such as <code>org/apache/nifi/processor/Processor</code>.
+ */
+public class ClassFileInfo {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final String className;
+    private final String superClassName;
+    private final List<String> interfaceNames;
+    private final Set<String> referencedClassNames;
+
+    private ClassFileInfo(final String className, final String superClassName, final List<String> interfaceNames, final Set<String> referencedClassNames) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.interfaceNames = interfaceNames;
+        this.referencedClassNames = referencedClassNames;
+    }
+
+    /**
+     * Parses the given class file.
+     *
+     * @param classFile the bytes of the class file
+     * @return the names declared and referenced by the class
+     * @throws IOException if the bytes are not a valid class file
+     */
+    public static ClassFileInfo parse(final byte[] classFile) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        final int constantPoolCount = in.readUnsignedShort();
+        final String[] utf8 = new String[constantPoolCount];
+        final int[] classNameIndexes = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classNameIndexes[i] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipNBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipNBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipNBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipNBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Invalid constant pool tag " + tag);
+            }
+        }
+
+        in.readUnsignedShort(); // access flags
+        final String className = getClassName(in.readUnsignedShort(), classNameIndexes, utf8);
+        final String superClassName = getClassName(in.readUnsignedShort(), classNameIndexes, utf8);
+
+        final int interfacesCount = in.readUnsignedShort();
+        final List<String> interfaceNames = new ArrayList<>(interfacesCount);
+        for (int i = 0; i < interfacesCount; i++) {
+            interfaceNames.add(getClassName(in.readUnsignedShort(), classNameIndexes, utf8));
+        }
+
+        final Set<String> referencedClassNames = new HashSet<>();
+        for (int i = 1; i < constantPoolCount; i++) {
+            if (classNameIndexes[i] != 0) {
+                addReferencedClassNames(utf8[classNameIndexes[i]], referencedClassNames);
+            } else if (utf8[i] != null) {
+                // Descriptors, signatures and annotation types reference classes as L<internal name>;
+                addReferencedClassNames(utf8[i], referencedClassNames);
+            }
+        }
+        referencedClassNames.remove(className);
+
+        return new ClassFileInfo(className, superClassName, Collections.unmodifiableList(interfaceNames), Collections.unmodifiableSet(referencedClassNames));
+    }
+
+    private static String getClassName(final int classIndex, final int[] classNameIndexes, final String[] utf8) throws IOException {
+        if (classIndex == 0) {
+            return null;
+        }
+        if (classIndex >= classNameIndexes.length || classNameIndexes[classIndex] == 0) {
+            throw new IOException("Invalid class reference " + classIndex);
+        }
+        return utf8[classNameIndexes[classIndex]];
+    }
+
+    private static void addReferencedClassNames(final String value, final Set<String> referencedClassNames) {
+        if (value.isEmpty()) {
+            return;
+        }
+
+        if (value.charAt(0) != '[' && value.indexOf(';') < 0) {
+            referencedClassNames.add(value);
+            return;
+        }
+
+        int start = value.indexOf('L');
+        while (start >= 0) {
+            final int end = value.indexOf(';', start);
+            if (end < 0) {
+                return;
+            }
+
+            final String name = value.substring(start + 1, end);
+            final int typeArguments = name.indexOf('<');
+            referencedClassNames.add(typeArguments < 0 ? name : name.substring(0, typeArguments));
+            start = value.indexOf('L', start + 1);
+        }
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return the internal name of the superclass, or <code>null</code> for <code>java/lang/Object</code> and modules
+     */
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    public List<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * @return the internal names of the classes that this class references. The names are a superset of the references, since
+     *         they are gathered from every string of the constant pool that could name a class
+     */
+    public Set<String> getReferencedClassNames() {
+        return referencedClassNames;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.ProjectBuildingException;
+import org.apache.nifi.utils.SessionMemoizer;
+import org.eclipse.aether.RepositorySystemSession;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The artifacts of the dependency graphs of Maven projects built from artifacts, shared by every module of a build. Building the
+ * project of an artifact and its dependency graph is the most expensive step of creating an ExtensionClassLoader, and the same parent
+ * NARs and dependencies are examined by many modules, so each graph is gathered once per repository session. Concurrent requests for
+ * the same artifact wait for a single computation.
+ */
+public class DependencyArtifactsCache {
+    private final SessionMemoizer<Set<Artifact>> artifacts = new SessionMemoizer<>();
+
+    /**
+     * @param repositorySession the repository session of the build
+     * @return the cache shared by the build, or a new cache if the session cannot hold one
+     */
+    public static DependencyArtifactsCache getInstance(final RepositorySystemSession repositorySession) {
+        final DependencyArtifactsCache cache = SessionMemoizer.getSessionInstance(repositorySession, DependencyArtifactsCache.class, DependencyArtifactsCache::new);
+        return cache == null ? new DependencyArtifactsCache() : cache;
+    }
+
+    /**
+     * Returns the artifacts with the given key, gathering them if they have not been gathered yet. Failures are not cached.
+     *
+     * @param key the key that identifies the project whose artifacts are gathered
+     * @param gatherer gathers the artifacts if they are not cached
+     * @return a copy of the artifacts that the caller may modify
+     * @throws ProjectBuildingException if the project cannot be built
+     * @throws MojoExecutionException if the dependency graph of the project cannot be built
+     */
+    public Set<Artifact> getArtifacts(final String key, final ArtifactsGatherer gatherer) throws ProjectBuildingException, MojoExecutionException {
+        try {
+            return new TreeSet<>(artifacts.get(key, () -> Collections.unmodifiableSet(new TreeSet<>(gatherer.gather()))));
+        } catch (final ProjectBuildingException | MojoExecutionException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new MojoExecutionException("Failed to gather the dependencies of " + key, e);
+        }
+    }
+
+    public interface ArtifactsGatherer {
+        Set<Artifact> gather() throws ProjectBuildingException, MojoExecutionException;
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the artifacts of the dependency graphs of Maven projects on disk between builds, so that a build can skip building the
+ * projects and dependency graphs of NARs that an earlier build already examined.
+ * <p>
+ * Each graph is stored in its own file, named after a digest of its key. The graphs of release artifacts are trusted permanently.
+ * The graph of a project that contains any SNAPSHOT artifact is only used while every SNAPSHOT POM of its lineage has the digest that
+ * it had when the graph was stored, and never when SNAPSHOT updates are forced. The lineage of a SNAPSHOT artifact is its POM along
+ * with its parents and the BOMs they import, recursively. POMs are located in the reactor of the build before the local repository,
+ * so that a POM edited in the reactor is detected even though an outdated copy of it is installed.
+ * </p>
+ * <p>
+ * The graphs of artifacts that are modules of the reactor are never stored nor read, since the reactor may build them differently from
+ * any earlier build.
+ * </p>
+ */
+public class DependencyGraphStore {
+    private static final String HEADER = "# Apache NiFi NAR dependency graph cache";
+    private static final String SEPARATOR = "\t";
+    private static final String FILE_SUFFIX = ".graph";
+    private static final Pattern PROPERTY_REFERENCE = Pattern.compile("\\$\\{([^}]+)}");
+
+    private final File directory;
+    private final ArtifactHandlerManager artifactHandlerManager;
+    private final PomFileLocator pomFileLocator;
+    private final boolean updateSnapshots;
+
+    /**
+     * @param directory the directory holding the graphs
+     * @param artifactHandlerManager provides the handlers of the artifacts that are read
+     * @param pomFileLocator locates the POM of an artifact in the local repository
+     * @param updateSnapshots <code>true</code> if SNAPSHOT updates are forced, in which case no graph with SNAPSHOT artifacts is read
+     */
+    public DependencyGraphStore(final File directory, final ArtifactHandlerManager artifactHandlerManager, final PomFileLocator pomFileLocator,
+                                final boolean updateSnapshots) {
+        this.directory = directory;
+        this.artifactHandlerManager = artifactHandlerManager;
+        this.pomFileLocator = pomFileLocator;
+        this.updateSnapshots = updateSnapshots;
+    }
+
+    /**
+     * Reads the graph with the given key. A missing, unreadable or outdated graph results in <code>null</code>, as does the graph of
+     * a module of the reactor.
+     *
+     * @param artifact the artifact of the project whose artifacts were gathered
+     * @param key the key that identifies the project whose artifacts were gathered
+     * @return the artifacts of the graph, or <code>null</code> if the graph must be built
+     */
+    public Set<Artifact> load(final Artifact artifact, final String key) {
+        final File graphFile = getGraphFile(key);
+        if (!graphFile.isFile() || pomFileLocator.isReactorArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getBaseVersion())) {
+            return null;
+        }
+
+        final Set<Artifact> artifacts = new TreeSet<>();
+        try (final BufferedReader reader = Files.newBufferedReader(graphFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                final String[] fields = line.split(SEPARATOR, -1);
+                switch (fields[0]) {
+                    case "key":
+                        if (!key.equals(fields[1])) {
+                            return null;
+                        }
+                        break;
+                    case "artifact":
+                        artifacts.add(createArtifact(fields));
+                        break;
+                    case "pom":
+                        if (updateSnapshots || !fields[4].equals(digestPom(fields[1], fields[2], fields[3]))) {
+                            return null;
+                        }
+                        break;
+                    default:
+                        throw new IOException("Unexpected cache entry " + fields[0]);
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            return null;
+        }
+
+        return artifacts;
+    }
+
+    /**
+     * Stores the graph with the given key. The graph of a module of the reactor is not stored, nor is a graph with a SNAPSHOT lineage
+     * that cannot be read entirely, since it could not be revalidated.
+     *
+     * @param artifact the artifact of the project whose artifacts were gathered
+     * @param key the key that identifies the project whose artifacts were gathered
+     * @param artifacts the artifacts of the graph
+     */
+    public void store(final Artifact artifact, final String key, final Set<Artifact> artifacts) throws IOException {
+        if (pomFileLocator.isReactorArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getBaseVersion())) {
+            return;
+        }
+
+        final Set<String> pomDigests = new TreeSet<>();
+        final Set<String> visitedPoms = new HashSet<>();
+        if (!addLineageDigests(artifact.getGroupId(), artifact.getArtifactId(), artifact.getBaseVersion(), pomDigests, visitedPoms)) {
+            return;
+        }
+        for (final Artifact graphArtifact : artifacts) {
+            if (!addLineageDigests(graphArtifact.getGroupId(), graphArtifact.getArtifactId(), graphArtifact.getBaseVersion(), pomDigests, visitedPoms)) {
+                return;
+            }
+        }
+
+        Files.createDirectories(directory.toPath());
+
+        // Write to a temporary file first so that concurrent builds never read a partial graph
+        final Path tempFile = Files.createTempFile(directory.toPath(), "graph", ".tmp");
+        try {
+            try (final BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                writeLine(writer, "key", key);
+                for (final String pomDigest : pomDigests) {
+                    writeLine(writer, "pom", pomDigest);
+                }
+                for (final Artifact graphArtifact : artifacts) {
+                    writeLine(writer, "artifact", graphArtifact.getGroupId(), graphArtifact.getArtifactId(), graphArtifact.getVersion(),
+                            toField(graphArtifact.getScope()), graphArtifact.getType(), toField(graphArtifact.getClassifier()),
+                            String.valueOf(graphArtifact.isOptional()));
+                }
+            }
+            Files.move(tempFile, getGraphFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Adds the digests of the SNAPSHOT POMs in the lineage of the given artifact: its POM, its parents and the BOMs they import. The
+     * lineage of a release is itself released, so it is never walked.
+     *
+     * @return <code>false</code> if the lineage cannot be read entirely
+     */
+    private boolean addLineageDigests(final String groupId, final String artifactId, final String version, final Set<String> pomDigests,
+                                      final Set<String> visitedPoms) throws IOException {
+        if (!ArtifactUtils.isSnapshot(version) || !visitedPoms.add(String.join(SEPARATOR, groupId, artifactId, version))) {
+            return true;
+        }
+
+        // Read the parents of the POM, including released ones whose properties may define the versions of imported BOMs
+        final List<Model> models = new ArrayList<>();
+        String pomGroupId = groupId;
+        String pomArtifactId = artifactId;
+        String pomVersion = version;
+        while (true) {
+            final File pomFile = pomFileLocator.getPomFile(pomGroupId, pomArtifactId, pomVersion);
+            if (pomFile == null || !pomFile.isFile()) {
+                // A released parent that cannot be read is only needed for its properties, which are checked below
+                if (ArtifactUtils.isSnapshot(pomVersion)) {
+                    return false;
+                }
+                break;
+            }
+
+            if (ArtifactUtils.isSnapshot(pomVersion)) {
+                if (models.isEmpty() || visitedPoms.add(String.join(SEPARATOR, pomGroupId, pomArtifactId, pomVersion))) {
+                    pomDigests.add(String.join(SEPARATOR, pomGroupId, pomArtifactId, pomVersion, digestPom(pomFile)));
+                }
+            }
+
+            final Model model = readModel(pomFile);
+            models.add(model);
+
+            final Parent parent = model.getParent();
+            if (parent == null) {
+                break;
+            }
+            pomGroupId = parent.getGroupId();
+            pomArtifactId = parent.getArtifactId();
+            pomVersion = parent.getVersion();
+        }
+
+        // Properties of the POM override those inherited from its parents, as they do when the POM is built
+        final Properties properties = new Properties();
+        for (int i = models.size() - 1; i >= 0; i--) {
+            properties.putAll(models.get(i).getProperties());
+        }
+        final Model model = models.get(0);
+        properties.setProperty("project.groupId", groupId);
+        properties.setProperty("project.version", version);
+        if (model.getParent() != null) {
+            properties.setProperty("project.parent.groupId", model.getParent().getGroupId());
+            properties.setProperty("project.parent.version", model.getParent().getVersion());
+        }
+
+        for (final Model lineageModel : models) {
+            if (lineageModel.getDependencyManagement() == null) {
+                continue;
+            }
+
+            for (final Dependency dependency : lineageModel.getDependencyManagement().getDependencies()) {
+                if (!"import".equals(dependency.getScope()) || !"pom".equals(dependency.getType())) {
+                    continue;
+                }
+
+                final String bomGroupId = interpolate(dependency.getGroupId(), properties);
+                final String bomArtifactId = interpolate(dependency.getArtifactId(), properties);
+                final String bomVersion = interpolate(dependency.getVersion(), properties);
+                if (bomGroupId == null || bomArtifactId == null || bomVersion == null
+                        || !addLineageDigests(bomGroupId, bomArtifactId, bomVersion, pomDigests, visitedPoms)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private Model readModel(final File pomFile) throws IOException {
+        try (final InputStream in = Files.newInputStream(pomFile.toPath())) {
+            return new MavenXpp3Reader().read(in, false);
+        } catch (final XmlPullParserException e) {
+            throw new IOException("Could not parse " + pomFile, e);
+        }
+    }
+
+    /**
+     * @return the value with its property references replaced, or <code>null</code> if any of them cannot be resolved
+     */
+    private static String interpolate(final String value, final Properties properties) {
+        if (value == null) {
+            return null;
+        }
+
+        String interpolated = value;
+        // Bound the number of passes so that properties referencing each other cannot loop forever
+        for (int pass = 0; pass < 10 && interpolated.contains("${"); pass++) {
+            final Matcher matcher = PROPERTY_REFERENCE.matcher(interpolated);
+            final StringBuilder builder = new StringBuilder();
+            while (matcher.find()) {
+                final String propertyValue = properties.getProperty(matcher.group(1));
+                if (propertyValue == null) {
+                    return null;
+                }
+                matcher.appendReplacement(builder, Matcher.quoteReplacement(propertyValue));
+            }
+            matcher.appendTail(builder);
+            interpolated = builder.toString();
+        }
+        return interpolated.contains("${") ? null : interpolated;
+    }
+
+    private Artifact createArtifact(final String[] fields) {
+        final String type = fields[5];
+        final Artifact artifact = new DefaultArtifact(fields[1], fields[2], fields[3], toValue(fields[4]), type, toValue(fields[6]),
+                artifactHandlerManager.getArtifactHandler(type));
+        artifact.setOptional(Boolean.parseBoolean(fields[7]));
+        return artifact;
+    }
+
+    private File getGraphFile(final String key) {
+        return new File(directory, HexFormat.of().formatHex(digest(key.getBytes(StandardCharsets.UTF_8))) + FILE_SUFFIX);
+    }
+
+    private String digestPom(final String groupId, final String artifactId, final String version) throws IOException {
+        final File pomFile = pomFileLocator.getPomFile(groupId, artifactId, version);
+        return pomFile == null || !pomFile.isFile() ? null : digestPom(pomFile);
+    }
+
+    private static String digestPom(final File pomFile) throws IOException {
+        final MessageDigest messageDigest = createMessageDigest();
+        final byte[] buffer = new byte[8192];
+        try (final InputStream in = Files.newInputStream(pomFile.toPath())) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                messageDigest.update(buffer, 0, len);
+            }
+        }
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    private static byte[] digest(final byte[] value) {
+        try {
+            return createMessageDigest().digest(value);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest createMessageDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static void writeLine(final BufferedWriter writer, final String... fields) throws IOException {
+        writer.write(String.join(SEPARATOR, fields));
+        writer.newLine();
+    }
+
+    private static String toField(final String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String toValue(final String field) {
+        return field.isEmpty() ? null : field;
+    }
+
+    public interface PomFileLocator {
+        /**
+         * @return the POM of the artifact, taken from the reactor if the artifact is one of its modules, or else from the local repository
+         */
+        File getPomFile(String groupId, String artifactId, String version);
+
+        /**
+         * @return <code>true</code> if the artifact is a module of the reactor
+         */
+        boolean isReactorArtifact(String groupId, String artifactId, String version);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The type hierarchy of the classes visible to an extension ClassLoader, read from the class files instead of loading the classes.
+ * Classes are identified by their internal names, such as <code>org/apache/nifi/controller/ControllerService</code>. Each class file
+ * is read at most once and the hierarchy is shared by every lookup, so the interfaces common to many extensions are only resolved once.
+ */
+public class ExtensionClassHierarchy {
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final List<ClassLoader> classLoaders;
+    private final Map<String, Optional<ClassNode>> classNodes = new HashMap<>();
+    private final Map<String, Set<String>> interfaceHierarchies = new HashMap<>();
+    private final Map<String, Map<String, Boolean>> subtypes = new HashMap<>();
+
+    /**
+     * @param classLoader the ClassLoader whose view of the classes is described
+     */
+    public ExtensionClassHierarchy(final ClassLoader classLoader) {
+        // ClassLoaders delegate to their parent first, so the defining ClassLoader is the first one, from the root, that has the class
+        final List<ClassLoader> chain = new ArrayList<>();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            chain.add(loader);
+        }
+        Collections.reverse(chain);
+        this.classLoaders = chain;
+    }
+
+    /**
+     * @param className the internal name of the class
+     * @return the class, or <code>null</code> if its class file cannot be found
+     * @throws IOException if the class file cannot be read
+     */
+    public synchronized ClassNode getClass(final String className) throws IOException {
+        final Optional<ClassNode> cached = classNodes.get(className);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+
+        final ClassNode classNode = readClass(className);
+        classNodes.put(className, Optional.ofNullable(classNode));
+        return classNode;
+    }
+
+    private ClassNode readClass(final String className) throws IOException {
+        final String resourceName = className + CLASS_SUFFIX;
+        for (final ClassLoader classLoader : classLoaders) {
+            final URL url;
+            if (classLoader instanceof URLClassLoader) {
+                url = ((URLClassLoader) classLoader).findResource(resourceName);
+            } else {
+                // The resources of ClassLoaders that are not URLClassLoaders cannot be separated from those of their parents
+                url = classLoader.getResource(resourceName);
+            }
+
+            if (url != null) {
+                try (final InputStream in = url.openStream()) {
+                    return new ClassNode(classLoader, ClassFileInfo.parse(in.readAllBytes()));
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param interfaceName the internal name of an interface
+     * @return the interface along with all the interfaces it extends, directly or indirectly, or <code>null</code> if a class file
+     *         in the hierarchy cannot be found
+     * @throws IOException if a class file cannot be read
+     */
+    public synchronized Set<String> getInterfaceHierarchy(final String interfaceName) throws IOException {
+        final Set<String> cached = interfaceHierarchies.get(interfaceName);
+        if (cached != null) {
+            return cached;
+        }
+
+        final ClassNode classNode = getClass(interfaceName);
+        if (classNode == null) {
+            return null;
+        }
+
+        final Set<String> hierarchy = new LinkedHashSet<>();
+        hierarchy.add(interfaceName);
+        for (final String parentInterface : classNode.getInterfaceNames()) {
+            final Set<String> parentHierarchy = getInterfaceHierarchy(parentInterface);
+            if (parentHierarchy == null) {
+                return null;
+            }
+            hierarchy.addAll(parentHierarchy);
+        }
+
+        final Set<String> unmodifiableHierarchy = Collections.unmodifiableSet(hierarchy);
+        interfaceHierarchies.put(interfaceName, unmodifiableHierarchy);
+        return unmodifiableHierarchy;
+    }
+
+    /**
+     * @param interfaceName the internal name of an interface
+     * @param parentInterfaceName the internal name of the parent interface
+     * @return <code>true</code> if the interface is the parent interface or extends it, directly or indirectly
+     * @throws IOException if a class file cannot be read
+     */
+    public synchronized boolean isSubInterface(final String interfaceName, final String parentInterfaceName) throws IOException {
+        final Map<String, Boolean> knownSubtypes = subtypes.computeIfAbsent(parentInterfaceName, name -> new HashMap<>());
+        final Boolean known = knownSubtypes.get(interfaceName);
+        if (known != null) {
+            return known;
+        }
+
+        final Set<String> hierarchy = getInterfaceHierarchy(interfaceName);
+        final boolean subInterface = hierarchy != null && hierarchy.contains(parentInterfaceName);
+        knownSubtypes.put(interfaceName, subInterface);
+        return subInterface;
+    }
+
+    public static class ClassNode {
+        private final ClassLoader classLoader;
+        private final ClassFileInfo classFileInfo;
+
+        private ClassNode(final ClassLoader classLoader, final ClassFileInfo classFileInfo) {
+            this.classLoader = classLoader;
+            this.classFileInfo = classFileInfo;
+        }
+
+        /**
+         * @return the ClassLoader that would define the class
+         */
+        public ClassLoader getClassLoader() {
+            return classLoader;
+        }
+
+        public String getClassName() {
+            return classFileInfo.getClassName();
+        }
+
+        public String getSuperClassName() {
+            return classFileInfo.getSuperClassName();
+        }
+
+        public List<String> getInterfaceNames() {
+            return classFileInfo.getInterfaceNames();
+        }
+    }
+}
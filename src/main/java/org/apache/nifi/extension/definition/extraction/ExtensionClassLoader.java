@@ -18,16 +18,33 @@ package org.apache.nifi.extension.definition.extraction;
 
 import org.apache.maven.artifact.Artifact;
 
+import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ExtensionClassLoader extends URLClassLoader {
+    static {
+        // Documentation may be generated from several threads, which should not serialize on a single ClassLoader lock
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    // Footprint of all ExtensionClassLoaders that are not closed yet, which allows leaks to be measured in large builds
+    private static final AtomicInteger OPEN_CLASS_LOADERS = new AtomicInteger();
+    private static final AtomicInteger OPEN_JARS = new AtomicInteger();
+    private static final AtomicLong DEFINED_CLASSES = new AtomicLong();
+
     private final URL[] urls;
     private final Artifact narArtifact;
     private final Collection<Artifact> allArtifacts;
+    private final int jarCount;
+    private final AtomicLong definedClasses = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     public ExtensionClassLoader(final URL[] urls, final ClassLoader parent, final Artifact narArtifact, final Collection<Artifact> otherArtifacts) {
         super(urls, parent);
@@ -37,6 +54,8 @@ public class ExtensionClassLoader extends URLClassLoader {
         if (narArtifact != null) {
             allArtifacts.add(narArtifact);
         }
+        this.jarCount = countJars(urls);
+        opened();
     }
 
     public ExtensionClassLoader(final URL[] urls, final Artifact narArtifact, final Collection<Artifact> otherArtifacts) {
@@ -47,6 +66,71 @@ public class ExtensionClassLoader extends URLClassLoader {
         if (narArtifact != null) {
             allArtifacts.add(narArtifact);
         }
+        this.jarCount = countJars(urls);
+        opened();
+    }
+
+    /**
+     * @return the number of ExtensionClassLoaders that have been created and not closed yet
+     */
+    public static int getOpenClassLoaderCount() {
+        return OPEN_CLASS_LOADERS.get();
+    }
+
+    /**
+     * @return the number of jars on the classpaths of the ExtensionClassLoaders that are not closed yet, which the ClassLoaders may
+     *         hold open until they are closed
+     */
+    public static int getOpenJarCount() {
+        return OPEN_JARS.get();
+    }
+
+    /**
+     * @return the number of classes defined by the ExtensionClassLoaders that are not closed yet
+     */
+    public static long getDefinedClassCount() {
+        return DEFINED_CLASSES.get();
+    }
+
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        final Class<?> definedClass = super.findClass(name);
+        classDefined();
+        return definedClass;
+    }
+
+    /**
+     * Records that this ClassLoader defined a class. Subclasses that define classes themselves call this for every class they define.
+     */
+    protected void classDefined() {
+        definedClasses.incrementAndGet();
+        DEFINED_CLASSES.incrementAndGet();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            OPEN_CLASS_LOADERS.decrementAndGet();
+            OPEN_JARS.addAndGet(-jarCount);
+            DEFINED_CLASSES.addAndGet(-definedClasses.get());
+        }
+        super.close();
+    }
+
+    private void opened() {
+        OPEN_CLASS_LOADERS.incrementAndGet();
+        OPEN_JARS.addAndGet(jarCount);
+    }
+
+    private static int countJars(final URL[] urls) {
+        int jars = 0;
+        for (final URL url : urls) {
+            // Directories are denoted by a trailing slash, as with URLClassLoader
+            if (!url.getPath().endsWith("/")) {
+                jars++;
+            }
+        }
+        return jars;
     }
 
     public String getNiFiApiVersion() {
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.nifi.utils.SessionMemoizer;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The ExtensionClassLoaders of parent NARs, shared by every module of a build. In a reactor many NARs have the same parents, such as
+ * <code>nifi-standard-services-api-nar</code>, so each parent ClassLoader, along with the ClassLoader of the provided entities at the
+ * root of the chain, is created once and handed to every module that needs it. The cache is safe to use from parallel builds: a
+ * ClassLoader requested by several modules at once is created by one of them while the others wait for it.
+ */
+public class ExtensionClassLoaderCache implements Closeable {
+    private static final String SESSION_DATA_KEY = ExtensionClassLoaderCache.class.getName();
+
+    private final SessionMemoizer<ExtensionClassLoader> classLoaders = new SessionMemoizer<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param repositorySession the repository session of the build
+     * @return the cache shared by the build, or <code>null</code> if the session cannot hold one
+     */
+    public static ExtensionClassLoaderCache getInstance(final RepositorySystemSession repositorySession) {
+        return SessionMemoizer.getSessionInstance(repositorySession, ExtensionClassLoaderCache.class, ExtensionClassLoaderCache::new);
+    }
+
+    /**
+     * Closes the cache of the given session, if one was created.
+     *
+     * @param repositorySession the repository session of the build
+     * @throws IOException if any of the cached ClassLoaders cannot be closed
+     */
+    public static void close(final RepositorySystemSession repositorySession) throws IOException {
+        final SessionData sessionData = repositorySession == null ? null : repositorySession.getData();
+        if (sessionData == null) {
+            return;
+        }
+
+        final Object cache = sessionData.get(SESSION_DATA_KEY);
+        if (cache instanceof ExtensionClassLoaderCache) {
+            sessionData.set(SESSION_DATA_KEY, null);
+            ((ExtensionClassLoaderCache) cache).close();
+        }
+    }
+
+    /**
+     * Returns the ClassLoader with the given key, creating it if it has not been created yet. Once the cache is closed, ClassLoaders
+     * are created without being cached.
+     *
+     * @param key the key that identifies the ClassLoader, including all of its parents
+     * @param creator creates the ClassLoader if it is not cached
+     * @return the ClassLoader
+     * @throws MojoExecutionException if the ClassLoader cannot be created
+     */
+    public ExtensionClassLoader getClassLoader(final String key, final ClassLoaderCreator creator) throws MojoExecutionException {
+        if (closed) {
+            return creator.create();
+        }
+
+        try {
+            return classLoaders.get(key, creator::create);
+        } catch (final MojoExecutionException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new MojoExecutionException("Failed to create ClassLoader for " + key, e);
+        }
+    }
+
+    /**
+     * @param classLoader the ClassLoader to look for
+     * @return <code>true</code> if the given ClassLoader is held by this cache, in which case it is closed with the cache
+     */
+    public boolean contains(final ExtensionClassLoader classLoader) {
+        for (final ExtensionClassLoader cachedClassLoader : classLoaders.getComputedValues()) {
+            if (cachedClassLoader == classLoader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Closes all of the cached ClassLoaders.
+     *
+     * @throws IOException if any of the ClassLoaders cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+
+        IOException failure = null;
+        for (final ExtensionClassLoader classLoader : classLoaders.getComputedValues()) {
+            try {
+                classLoader.close();
+            } catch (final IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        classLoaders.clear();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public interface ClassLoaderCreator {
+        ExtensionClassLoader create() throws MojoExecutionException;
+    }
+}
@@ -21,12 +21,11 @@ import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.ArtifactHandler;
 import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
 import org.apache.maven.artifact.repository.ArtifactRepository;
-import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
-import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
-import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.apache.maven.artifact.resolver.filter.ExclusionSetFilter;
 import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.DefaultProjectBuildingRequest;
@@ -39,18 +38,32 @@ import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilderException;
 import org.apache.maven.shared.dependency.graph.DependencyNode;
 import org.apache.maven.shared.dependency.graph.traversal.DependencyNodeVisitor;
+import org.apache.nifi.utils.BatchArtifactResolver;
+import org.apache.nifi.utils.DaemonExecutors;
+import org.apache.nifi.utils.NarDependenciesDescriptor;
+import org.apache.nifi.utils.NarDependencyUtils;
+import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
 
-import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 public class ExtensionClassLoaderFactory {
@@ -63,6 +76,11 @@ public class ExtensionClassLoaderFactory {
         EXCLUDED_ARTIFACT_IDS = Collections.unmodifiableSet(excludedArtifactIds);
     }
 
+    private static final String NIFI_API_COORDINATE = "org.apache.nifi:nifi-api";
+    private static final String NIFI_FRAMEWORK_API_COORDINATE = "org.apache.nifi:nifi-framework-api";
+    private static final String SLF4J_API_COORDINATE = "org.slf4j:slf4j-api";
+    private static final List<String> PROVIDED_ENTITY_COORDINATES = Arrays.asList(NIFI_API_COORDINATE, NIFI_FRAMEWORK_API_COORDINATE, SLF4J_API_COORDINATE);
+
     private final Log log;
     private final MavenProject project;
     private final RepositorySystemSession repoSession;
@@ -70,8 +88,17 @@ public class ExtensionClassLoaderFactory {
     private final ArtifactRepository localRepo;
     private final List<ArtifactRepository> remoteRepos;
     private final DependencyGraphBuilder dependencyGraphBuilder;
-    private final ArtifactResolver artifactResolver;
+    private final BatchArtifactResolver artifactResolver;
     private final ArtifactHandlerManager artifactHandlerManager;
+    private final ExtensionClassLoaderCache classLoaderCache;
+    private final DependencyArtifactsCache dependencyArtifactsCache;
+    private final DependencyGraphStore dependencyGraphStore;
+    private final boolean useDependenciesDescriptors;
+    private final boolean indexedClassLoaders;
+    private final boolean memoryMappedJars;
+    private final boolean useResolvedProject;
+    private final int resolutionThreads;
+    private final boolean parallelChainConstruction;
 
     private ExtensionClassLoaderFactory(final Builder builder) {
         this.log = builder.log;
@@ -81,8 +108,17 @@ public class ExtensionClassLoaderFactory {
         this.localRepo = builder.localRepo;
         this.remoteRepos = new ArrayList<>(builder.remoteRepos);
         this.dependencyGraphBuilder = builder.dependencyGraphBuilder;
-        this.artifactResolver = builder.artifactResolver;
+        this.artifactResolver = new BatchArtifactResolver(builder.repositorySystem, builder.repositorySession, builder.remoteProjectRepos);
         this.artifactHandlerManager = builder.artifactHandlerManager;
+        this.classLoaderCache = builder.classLoaderCache;
+        this.dependencyArtifactsCache = DependencyArtifactsCache.getInstance(repoSession);
+        this.dependencyGraphStore = builder.dependencyGraphStore;
+        this.useDependenciesDescriptors = builder.useDependenciesDescriptors;
+        this.indexedClassLoaders = builder.indexedClassLoaders;
+        this.memoryMappedJars = builder.memoryMappedJars;
+        this.useResolvedProject = builder.useResolvedProject;
+        this.resolutionThreads = builder.resolutionThreads;
+        this.parallelChainConstruction = builder.parallelChainConstruction;
     }
 
     private Log getLog() {
@@ -91,15 +127,21 @@ public class ExtensionClassLoaderFactory {
 
     public ExtensionClassLoader createExtensionClassLoader() throws MojoExecutionException, ProjectBuildingException {
         final Artifact narArtifact = project.getArtifact();
-        final Set<Artifact> narArtifacts = getNarDependencies(narArtifact);
 
         final ArtifactsHolder artifactsHolder = new ArtifactsHolder();
+        final Set<Artifact> narArtifacts;
+        if (useResolvedProject) {
+            narArtifacts = getResolvedProjectArtifacts();
+            addVersionHints(artifactsHolder);
+        } else {
+            narArtifacts = getNarDependencies(narArtifact);
+        }
         artifactsHolder.addArtifacts(narArtifacts);
 
         getLog().debug("Project artifacts: ");
         narArtifacts.forEach(artifact -> getLog().debug(artifact.getArtifactId()));
 
-        final ExtensionClassLoader parentClassLoader = createClassLoader(narArtifacts, artifactsHolder);
+        final ExtensionClassLoader parentClassLoader = createParentClassLoader(narArtifacts, artifactsHolder);
         final ExtensionClassLoader classLoader = createClassLoader(narArtifacts, parentClassLoader, narArtifact);
 
         if (getLog().isDebugEnabled()) {
@@ -109,6 +151,34 @@ public class ExtensionClassLoaderFactory {
         return classLoader;
     }
 
+    /**
+     * The artifacts that Maven already resolved for the project, which avoids building the project again. They do not include the
+     * provided and test dependencies of the project, which are not part of the NAR.
+     */
+    private Set<Artifact> getResolvedProjectArtifacts() {
+        final Set<Artifact> artifacts = new TreeSet<>(project.getArtifacts());
+        artifacts.remove(project.getArtifact());
+
+        getLog().debug("Using the resolved artifacts of " + project.getArtifact() + ": " + artifacts);
+        return artifacts;
+    }
+
+    /**
+     * The provided dependencies of the project are not among its resolved artifacts, so their declared and managed versions are used
+     * to determine the versions of the provided entities.
+     */
+    private void addVersionHints(final ArtifactsHolder artifactsHolder) {
+        final List<Dependency> dependencies = new ArrayList<>(project.getDependencies());
+        final DependencyManagement dependencyManagement = project.getDependencyManagement();
+        if (dependencyManagement != null) {
+            dependencies.addAll(dependencyManagement.getDependencies());
+        }
+
+        for (final Dependency dependency : dependencies) {
+            artifactsHolder.addVersionHint(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion());
+        }
+    }
+
     private ExtensionClassLoader createClassLoader(final Set<Artifact> artifacts, final ArtifactsHolder artifactsHolder)
             throws MojoExecutionException, ProjectBuildingException {
 
@@ -117,10 +187,135 @@ public class ExtensionClassLoaderFactory {
             return createProvidedEntitiesClassLoader(artifactsHolder);
         }
 
+        return createNarClassLoader(nar, artifactsHolder);
+    }
+
+    /**
+     * Creates the ClassLoaders of the parent NARs. With parallel chain construction, the coordinates of every NAR in the chain are
+     * read from the <code>Nar-Dependency</code> entries of the NAR manifests first, and the projects, dependency graphs and files of
+     * all levels are resolved concurrently. The ClassLoaders are then assembled from those results in order, exactly as they are
+     * without parallel construction, so a chain that differs from the manifests only costs the levels that were not resolved ahead.
+     */
+    private ExtensionClassLoader createParentClassLoader(final Set<Artifact> artifacts, final ArtifactsHolder artifactsHolder)
+            throws MojoExecutionException, ProjectBuildingException {
+
+        if (!parallelChainConstruction) {
+            return createClassLoader(artifacts, artifactsHolder);
+        }
+
+        final Artifact nar = removeNarArtifact(artifacts);
+        if (nar == null) {
+            return createProvidedEntitiesClassLoader(artifactsHolder);
+        }
+
+        final List<Artifact> narChain = discoverNarChain(nar);
+        if (narChain.size() > 1) {
+            resolveNarChain(narChain);
+        }
+
+        return createNarClassLoader(nar, artifactsHolder);
+    }
+
+    private List<Artifact> discoverNarChain(final Artifact nar) {
+        final List<Artifact> narChain = new ArrayList<>();
+        final Set<String> coordinates = new HashSet<>();
+
+        Artifact current = nar;
+        while (current != null && coordinates.add(current.getGroupId() + ":" + current.getArtifactId())) {
+            narChain.add(current);
+
+            try {
+                // The descriptor names the parent without downloading the NAR to read its manifest
+                final NarDependenciesDescriptor descriptor = useDependenciesDescriptors ? getDependenciesDescriptor(current) : null;
+                if (descriptor == null) {
+                    artifactResolver.resolveFiles(Collections.singleton(current));
+                    current = NarDependencyUtils.getNarDependency(current.getFile(), artifactHandlerManager.getArtifactHandler("nar"));
+                } else {
+                    current = descriptor.getParentArtifact(artifactHandlerManager.getArtifactHandler("nar"));
+                }
+            } catch (final Exception e) {
+                getLog().debug("Unable to determine the parent NAR of " + current, e);
+                current = null;
+            }
+        }
+
+        getLog().debug("Found NAR chain: " + narChain);
+        return narChain;
+    }
+
+    /**
+     * Resolves the dependencies and their files for every NAR of the chain concurrently. The results are kept by the dependency
+     * artifacts cache and the artifacts themselves, so failures are left for the ordered construction of the chain to report.
+     */
+    private void resolveNarChain(final List<Artifact> narChain) throws MojoExecutionException {
+        final ExecutorService executor = DaemonExecutors.newFixedThreadPool(narChain.size(), "nar-chain-");
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final Artifact nar : narChain) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        artifactResolver.resolveFiles(getNarDependencies(nar));
+                    } catch (final Exception e) {
+                        getLog().debug("Unable to resolve the dependencies of " + nar + " ahead of creating its ClassLoader", e);
+                    }
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while resolving the parent NARs", e);
+        } catch (final ExecutionException e) {
+            throw new MojoExecutionException("Failed to resolve the parent NARs", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ExtensionClassLoader createNarClassLoader(final Artifact nar, final ArtifactsHolder artifactsHolder)
+            throws MojoExecutionException, ProjectBuildingException {
+
         final Set<Artifact> narDependencies = getNarDependencies(nar);
         artifactsHolder.addArtifacts(narDependencies);
 
-        return createClassLoader(narDependencies, createClassLoader(narDependencies, artifactsHolder), nar);
+        final ExtensionClassLoader parentClassLoader = createClassLoader(narDependencies, artifactsHolder);
+        final String cacheKey = getCacheKey(parentClassLoader) + " > " + nar.getId();
+        return getCachedClassLoader(cacheKey, () -> createClassLoader(narDependencies, parentClassLoader, nar));
+    }
+
+    private ExtensionClassLoader getCachedClassLoader(final String cacheKey, final ExtensionClassLoaderCache.ClassLoaderCreator creator) throws MojoExecutionException {
+        if (classLoaderCache == null) {
+            return creator.create();
+        }
+
+        // Indexed, mapped and plain ClassLoaders are not interchangeable between modules that configure them differently
+        final String kind = memoryMappedJars ? "mapped " : indexedClassLoaders ? "indexed " : "";
+        return classLoaderCache.getClassLoader(kind + cacheKey, creator);
+    }
+
+    /**
+     * The key of a ClassLoader identifies its NAR and those of all its parents, down to the versions of the provided entities at the root.
+     */
+    private String getCacheKey(final ExtensionClassLoader classLoader) {
+        final Artifact narArtifact = classLoader.getNarArtifact();
+        if (narArtifact == null) {
+            return getProvidedEntitiesCacheKey(classLoader.getAllArtifacts());
+        }
+
+        final String narKey = narArtifact.getId();
+        final ClassLoader parent = classLoader.getParent();
+        return parent instanceof ExtensionClassLoader ? getCacheKey((ExtensionClassLoader) parent) + " > " + narKey : narKey;
+    }
+
+    private String getProvidedEntitiesCacheKey(final Collection<Artifact> providedArtifacts) {
+        final Set<String> artifactIds = new TreeSet<>();
+        for (final Artifact artifact : providedArtifacts) {
+            artifactIds.add(artifact.getId());
+        }
+        return "provided" + artifactIds;
     }
 
 
@@ -145,11 +340,7 @@ public class ExtensionClassLoaderFactory {
     }
 
     private Set<Artifact> getNarDependencies(final Artifact narArtifact) throws MojoExecutionException, ProjectBuildingException {
-        final ProjectBuildingRequest narRequest = createProjectBuildingRequest();
-
-        final ProjectBuildingResult narResult = projectBuilder.build(narArtifact, narRequest);
-
-        final Set<Artifact> narDependencies = gatherArtifacts(narResult.getProject(), TreeSet::new);
+        final Set<Artifact> narDependencies = getDependencyArtifacts(narArtifact);
         narDependencies.remove(narArtifact);
         narDependencies.remove(project.getArtifact());
 
@@ -157,125 +348,312 @@ public class ExtensionClassLoaderFactory {
         return narDependencies;
     }
 
-    private String determineProvidedEntityVersion(final Set<Artifact> artifacts, final String groupId, final String artifactId) throws ProjectBuildingException, MojoExecutionException {
-        getLog().debug("Determining provided entities for " + groupId + ":" + artifactId);
+    /**
+     * Builds the Maven project of the given artifact and gathers the artifacts of its dependency graph. The artifacts are gathered once
+     * per repository session and remote repositories, and a copy is returned. When a dependency graph store is configured, graphs that
+     * an earlier build stored are read from it instead of being built. The artifacts of a NAR that was published with a dependencies
+     * descriptor are read from the descriptor when descriptors are enabled.
+     */
+    private Set<Artifact> getDependencyArtifacts(final Artifact artifact) throws ProjectBuildingException, MojoExecutionException {
+        final StringBuilder cacheKey = new StringBuilder(artifact.getId());
+        for (final ArtifactRepository remoteRepo : remoteRepos) {
+            cacheKey.append(' ').append(remoteRepo.getId()).append('=').append(remoteRepo.getUrl());
+        }
 
-        for (final Artifact artifact : artifacts) {
-            if (artifact.getGroupId().equals(groupId) && artifact.getArtifactId().equals(artifactId)) {
-                return artifact.getVersion();
+        final String key = cacheKey.toString();
+        return dependencyArtifactsCache.getArtifacts(key, () -> {
+            if (dependencyGraphStore != null) {
+                final Set<Artifact> storedArtifacts = dependencyGraphStore.load(artifact, key);
+                if (storedArtifacts != null) {
+                    getLog().debug("Using the stored dependency graph of " + artifact);
+                    return storedArtifacts;
+                }
             }
-        }
 
-        return findProvidedDependencyVersion(artifacts, groupId, artifactId);
+            if (useDependenciesDescriptors && "nar".equals(artifact.getType())) {
+                final NarDependenciesDescriptor descriptor = getDependenciesDescriptor(artifact);
+                if (descriptor != null) {
+                    getLog().debug("Using the dependencies descriptor of " + artifact);
+                    return new TreeSet<>(descriptor.getArtifacts());
+                }
+            }
+
+            final ProjectBuildingResult projectResult = projectBuilder.build(artifact, createProjectBuildingRequest());
+            final Set<Artifact> artifacts = gatherArtifacts(projectResult.getProject(), TreeSet::new);
+
+            if (dependencyGraphStore != null) {
+                try {
+                    dependencyGraphStore.store(artifact, key, artifacts);
+                } catch (final IOException e) {
+                    getLog().debug("Unable to store the dependency graph of " + artifact, e);
+                }
+            }
+            return artifacts;
+        });
     }
 
-    private String findProvidedDependencyVersion(final Set<Artifact> artifacts, final String groupId, final String artifactId) {
-        final ProjectBuildingRequest projectRequest = createProjectBuildingRequest();
+    private NarDependenciesDescriptor getDependenciesDescriptor(final Artifact narArtifact) {
+        final org.eclipse.aether.artifact.Artifact descriptorArtifact = new org.eclipse.aether.artifact.DefaultArtifact(narArtifact.getGroupId(),
+                narArtifact.getArtifactId(), NarDependenciesDescriptor.CLASSIFIER, NarDependenciesDescriptor.EXTENSION, narArtifact.getVersion());
+        final Artifact resolvedArtifact = artifactResolver.resolve(Collections.singletonList(descriptorArtifact)).get(0);
+        if (resolvedArtifact == null) {
+            return null;
+        }
 
-        for (final Artifact artifact : artifacts) {
+        try {
+            final NarDependenciesDescriptor descriptor = NarDependenciesDescriptor.load(resolvedArtifact.getFile(), artifactHandlerManager);
+            return descriptor.describes(narArtifact) ? descriptor : null;
+        } catch (final IOException e) {
+            getLog().debug("Unable to read the dependencies descriptor of " + narArtifact, e);
+            return null;
+        }
+    }
+
+    /**
+     * Closes the given ClassLoader created by {@link #createExtensionClassLoader()} along with those of its parents that are not shared
+     * with other modules. Shared ClassLoaders, and therefore all of their parents, remain open until the shared cache is closed at the
+     * end of the build.
+     *
+     * @param classLoader the ClassLoader to close
+     * @throws IOException if any of the ClassLoaders cannot be closed
+     */
+    public void closeExtensionClassLoader(final ExtensionClassLoader classLoader) throws IOException {
+        IOException failure = null;
+        ClassLoader current = classLoader;
+        while (current instanceof ExtensionClassLoader && (classLoaderCache == null || !classLoaderCache.contains((ExtensionClassLoader) current))) {
             try {
-                final ProjectBuildingResult projectResult = projectBuilder.build(artifact, projectRequest);
-                final Set<Artifact> artifactDependencies = gatherArtifacts(projectResult.getProject(), HashSet::new);
-                getLog().debug("For Artifact " + artifact + ", found the following dependencies:");
-                artifactDependencies.forEach(dep -> getLog().debug(dep.toString()));
-
-                for (final Artifact dependency : artifactDependencies) {
-                    if (dependency.getGroupId().equals(groupId) && dependency.getArtifactId().equals(artifactId)) {
-                        getLog().debug("Found version of " + groupId + ":" + artifactId + " to be " + dependency.getVersion());
-                        return dependency.getVersion();
-                    }
+                ((ExtensionClassLoader) current).close();
+            } catch (final IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
                 }
-            } catch (final Exception e) {
-                getLog().warn("Unable to construct Maven Project for " + artifact + " when attempting to determine the expected version of NiFi API");
-                getLog().debug("Unable to construct Maven Project for " + artifact + " when attempting to determine the expected version of NiFi API", e);
             }
+            current = current.getParent();
         }
 
-        return null;
+        if (failure != null) {
+            throw failure;
+        }
     }
 
-    private Artifact getProvidedArtifact(final String groupId, final String artifactId, final String version) throws MojoExecutionException {
-        final ArtifactHandler handler = artifactHandlerManager.getArtifactHandler("jar");
+    /**
+     * Returns the artifacts of the dependency graph of the project, as the builds of child NARs would gather them from its POM.
+     */
+    public Set<Artifact> getProjectDependencyArtifacts() throws MojoExecutionException {
+        return gatherArtifacts(project, TreeSet::new);
+    }
 
-        final VersionRange versionRange;
-        try {
-            versionRange = VersionRange.createFromVersionSpec(version);
-        } catch (final Exception e) {
-            throw new MojoExecutionException("Could not determine appropriate version for Provided Artifact " + groupId + ":" + artifactId, e);
+    /**
+     * Determines the versions of all of the provided entities at once. The versions are looked up in an index of the artifacts of
+     * the NAR and its parents, then in the version hints of the project, and for the NiFi API in the dependencies descriptors of the
+     * NARs when descriptors are enabled. Only the entities that are still missing are searched for in the dependency graphs of the
+     * artifacts, which are expanded once for all of them.
+     *
+     * @return the version of each provided entity that was found, keyed by <code>groupId:artifactId</code>
+     */
+    private Map<String, String> determineProvidedEntityVersions(final ArtifactsHolder artifactsHolder) throws MojoExecutionException {
+        getLog().debug("Determining provided entities " + PROVIDED_ENTITY_COORDINATES);
+
+        final Set<Artifact> artifacts = artifactsHolder.getAllArtifacts();
+        final Map<String, String> artifactVersions = new HashMap<>();
+        for (final Artifact artifact : artifacts) {
+            artifactVersions.putIfAbsent(getCoordinate(artifact.getGroupId(), artifact.getArtifactId()), artifact.getVersion());
+        }
+
+        final Map<String, String> versions = new HashMap<>();
+        final Set<String> missingCoordinates = new LinkedHashSet<>();
+        for (final String coordinate : PROVIDED_ENTITY_COORDINATES) {
+            String version = artifactVersions.get(coordinate);
+            if (version == null) {
+                version = artifactsHolder.getVersionHint(coordinate);
+            }
+
+            if (version == null) {
+                missingCoordinates.add(coordinate);
+            } else {
+                versions.put(coordinate, version);
+            }
         }
 
-        final Artifact artifact = new DefaultArtifact(groupId, artifactId, versionRange, null, "jar", null, handler);
+        if (useDependenciesDescriptors && missingCoordinates.contains(NIFI_API_COORDINATE)) {
+            findDescriptorNifiApiVersion(artifacts, missingCoordinates, versions);
+        }
+
+        if (!missingCoordinates.isEmpty()) {
+            findProvidedDependencyVersions(new ArrayList<>(artifacts), missingCoordinates, versions);
+        }
 
-        final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
-        request.setLocalRepository(localRepo);
-        request.setRemoteRepositories(remoteRepos);
-        request.setArtifact(artifact);
+        return versions;
+    }
 
-        final ArtifactResolutionResult result = artifactResolver.resolve(request);
-        if (!result.isSuccess()) {
-            final List<Exception> exceptions = result.getExceptions();
+    /**
+     * Takes the version of the NiFi API from the dependencies descriptor of the first NAR, in order, whose descriptor records one, so
+     * that the dependency graphs do not have to be searched for it.
+     */
+    private void findDescriptorNifiApiVersion(final Collection<Artifact> artifacts, final Set<String> missingCoordinates, final Map<String, String> versions) {
+        for (final Artifact artifact : artifacts) {
+            if (!"nar".equals(artifact.getType())) {
+                continue;
+            }
 
-            final MojoExecutionException exception = new MojoExecutionException("Could not resolve local dependency " + artifact);
-            if (exceptions != null) {
-                for (final Exception e : exceptions) {
-                    exception.addSuppressed(e);
+            final NarDependenciesDescriptor descriptor = getDependenciesDescriptor(artifact);
+            if (descriptor != null && descriptor.getNifiApiVersion() != null) {
+                getLog().debug("Found version of " + NIFI_API_COORDINATE + " to be " + descriptor.getNifiApiVersion() + " in the dependencies descriptor of " + artifact);
+                versions.put(NIFI_API_COORDINATE, descriptor.getNifiApiVersion());
+                missingCoordinates.remove(NIFI_API_COORDINATE);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Searches the dependency graphs of the given artifacts, in order, for the missing coordinates. Each coordinate takes its version
+     * from the first artifact whose graph contains it. When more than one resolution thread is configured, the graphs are expanded
+     * concurrently but still examined in order, so the versions found do not depend on the number of threads.
+     */
+    private void findProvidedDependencyVersions(final List<Artifact> artifacts, final Set<String> missingCoordinates, final Map<String, String> versions)
+            throws MojoExecutionException {
+
+        final int threads = Math.min(resolutionThreads, artifacts.size());
+        if (threads <= 1) {
+            for (final Artifact artifact : artifacts) {
+                final Set<Artifact> artifactDependencies = getProvidedDependencyCandidates(artifact);
+                if (addProvidedDependencyVersions(artifact, artifactDependencies, missingCoordinates, versions)) {
+                    return;
                 }
             }
+            return;
+        }
+
+        final ExecutorService executor = DaemonExecutors.newFixedThreadPool(threads, "nar-resolve-");
+
+        try {
+            final List<Future<Set<Artifact>>> futures = new ArrayList<>();
+            for (final Artifact artifact : artifacts) {
+                futures.add(executor.submit(() -> getProvidedDependencyCandidates(artifact)));
+            }
+
+            for (int i = 0; i < artifacts.size(); i++) {
+                final Set<Artifact> artifactDependencies = futures.get(i).get();
+                if (addProvidedDependencyVersions(artifacts.get(i), artifactDependencies, missingCoordinates, versions)) {
+                    return;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while determining the versions of the provided dependencies", e);
+        } catch (final ExecutionException e) {
+            throw new MojoExecutionException("Failed to determine the versions of the provided dependencies", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the artifacts of the dependency graph of the given artifact, or <code>null</code> if its project cannot be built
+     */
+    private Set<Artifact> getProvidedDependencyCandidates(final Artifact artifact) {
+        try {
+            return getDependencyArtifacts(artifact);
+        } catch (final Exception e) {
+            getLog().warn("Unable to construct Maven Project for " + artifact + " when attempting to determine the expected version of NiFi API");
+            getLog().debug("Unable to construct Maven Project for " + artifact + " when attempting to determine the expected version of NiFi API", e);
+            return null;
+        }
+    }
 
-            throw exception;
+    /**
+     * @return <code>true</code> if no coordinates are missing anymore
+     */
+    private boolean addProvidedDependencyVersions(final Artifact artifact, final Set<Artifact> artifactDependencies, final Set<String> missingCoordinates,
+                                                  final Map<String, String> versions) {
+        if (artifactDependencies == null) {
+            return false;
         }
 
-        final Set<Artifact> artifacts = result.getArtifacts();
-        if (artifacts.isEmpty()) {
-            throw new MojoExecutionException("Could not resolve any artifacts for dependency " + artifact);
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("For Artifact " + artifact + ", found the following dependencies:");
+            artifactDependencies.forEach(dep -> getLog().debug(dep.toString()));
+        }
+
+        for (final Artifact dependency : artifactDependencies) {
+            final String coordinate = getCoordinate(dependency.getGroupId(), dependency.getArtifactId());
+            if (missingCoordinates.remove(coordinate)) {
+                getLog().debug("Found version of " + coordinate + " to be " + dependency.getVersion());
+                versions.put(coordinate, dependency.getVersion());
+            }
         }
 
-        final List<Artifact> sorted = new ArrayList<>(artifacts);
-        Collections.sort(sorted);
+        return missingCoordinates.isEmpty();
+    }
 
-        return sorted.get(0);
+    private static String getCoordinate(final String groupId, final String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+
+    private Artifact createProvidedArtifact(final String groupId, final String artifactId, final String version) throws MojoExecutionException {
+        final ArtifactHandler handler = artifactHandlerManager.getArtifactHandler("jar");
+
+        final VersionRange versionRange;
+        try {
+            versionRange = VersionRange.createFromVersionSpec(version);
+        } catch (final Exception e) {
+            throw new MojoExecutionException("Could not determine appropriate version for Provided Artifact " + groupId + ":" + artifactId, e);
+        }
+
+        return new DefaultArtifact(groupId, artifactId, versionRange, null, "jar", null, handler);
     }
 
     private ExtensionClassLoader createProvidedEntitiesClassLoader(final ArtifactsHolder artifactsHolder)
             throws MojoExecutionException, ProjectBuildingException {
 
         final Set<Artifact> providedArtifacts = new HashSet<>();
+        final Map<String, String> providedVersions = determineProvidedEntityVersions(artifactsHolder);
 
-        final String nifiApiVersion = determineProvidedEntityVersion(artifactsHolder.getAllArtifacts(), "org.apache.nifi", "nifi-api");
+        final String nifiApiVersion = providedVersions.get(NIFI_API_COORDINATE);
         if (nifiApiVersion == null) {
             throw new MojoExecutionException("Could not find any dependency, provided or otherwise, on [org.apache.nifi:nifi-api]");
         } else {
             getLog().info("Found a dependency on version " + nifiApiVersion + " of NiFi API");
         }
-        final Artifact nifiApiArtifact = getProvidedArtifact("org.apache.nifi", "nifi-api", nifiApiVersion);
+        final Artifact nifiApiArtifact = createProvidedArtifact("org.apache.nifi", "nifi-api", nifiApiVersion);
         providedArtifacts.add(nifiApiArtifact);
 
-        final String nifiFrameworkApiVersion = determineProvidedEntityVersion(artifactsHolder.getAllArtifacts(),"org.apache.nifi", "nifi-framework-api");
+        final String nifiFrameworkApiVersion = providedVersions.get(NIFI_FRAMEWORK_API_COORDINATE);
         if (nifiFrameworkApiVersion != null) {
-            final Artifact nifiFrameworkApiArtifact = getProvidedArtifact("org.apache.nifi", "nifi-framework-api", nifiFrameworkApiVersion);
+            final Artifact nifiFrameworkApiArtifact = createProvidedArtifact("org.apache.nifi", "nifi-framework-api", nifiFrameworkApiVersion);
             providedArtifacts.add(nifiFrameworkApiArtifact);
         }
 
-        final String slf4jApiVersion = determineProvidedEntityVersion(artifactsHolder.getAllArtifacts(),"org.slf4j", "slf4j-api");
-        final Artifact slf4jArtifact = getProvidedArtifact("org.slf4j", "slf4j-api", slf4jApiVersion);
+        final String slf4jApiVersion = providedVersions.get(SLF4J_API_COORDINATE);
+        final Artifact slf4jArtifact = createProvidedArtifact("org.slf4j", "slf4j-api", slf4jApiVersion);
         providedArtifacts.add(slf4jArtifact);
 
-        getLog().debug("Creating Provided Entities Class Loader with artifacts: " + providedArtifacts);
-        return createClassLoader(providedArtifacts, null, null);
+        return getCachedClassLoader(getProvidedEntitiesCacheKey(providedArtifacts), () -> {
+            getLog().debug("Creating Provided Entities Class Loader with artifacts: " + providedArtifacts);
+            return createClassLoader(providedArtifacts, null, null);
+        });
     }
 
     /* package visible for testing reasons */
     ExtensionClassLoader createClassLoader(final Set<Artifact> artifacts, final ExtensionClassLoader parent, final Artifact narArtifact) throws MojoExecutionException {
+        // Artifacts without a file are resolved together, and not at all when every file is already known
+        artifactResolver.resolveFiles(artifacts);
+
         final Set<URL> urls = new HashSet<>();
         for (final Artifact artifact : artifacts) {
-            final Set<URL> artifactUrls = toURLs(artifact);
-            urls.addAll(artifactUrls);
+            urls.add(toURL(artifact));
         }
 
         getLog().debug("Creating class loader with following dependencies: " + urls);
 
         final URL[] urlArray = urls.toArray(new URL[0]);
-        if (parent == null) {
+        if (indexedClassLoaders || memoryMappedJars) {
+            return parent == null ? new IndexedExtensionClassLoader(urlArray, narArtifact, artifacts, memoryMappedJars)
+                    : new IndexedExtensionClassLoader(urlArray, parent, narArtifact, artifacts, memoryMappedJars);
+        } else if (parent == null) {
             return new ExtensionClassLoader(urlArray, narArtifact, artifacts);
         } else {
             return new ExtensionClassLoader(urlArray, parent, narArtifact, artifacts);
@@ -322,39 +700,14 @@ public class ExtensionClassLoaderFactory {
         return projectRequest;
     }
 
-    private Set<URL> toURLs(final Artifact artifact) throws MojoExecutionException {
-        final Set<URL> urls = new HashSet<>();
-
-        final File artifactFile = artifact.getFile();
-        if (artifactFile == null) {
-            getLog().debug("Attempting to resolve Artifact " + artifact + " because it has no File associated with it");
-
-            final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
-            request.setLocalRepository(localRepo);
-            request.setRemoteRepositories(remoteRepos);
-            request.setArtifact(artifact);
-
-            final ArtifactResolutionResult result = artifactResolver.resolve(request);
-            if (!result.isSuccess()) {
-                throw new MojoExecutionException("Could not resolve local dependency " + artifact);
-            }
-
-            getLog().debug("Resolved Artifact " + artifact + " to " + result.getArtifacts());
-
-            for (final Artifact resolved : result.getArtifacts()) {
-                urls.addAll(toURLs(resolved));
-            }
-        } else {
-            try {
-                final URL url = artifact.getFile().toURI().toURL();
-                getLog().debug("Adding URL " + url + " to ClassLoader");
-                urls.add(url);
-            } catch (final MalformedURLException mue) {
-                throw new MojoExecutionException("Failed to convert File " + artifact.getFile() + " into URL", mue);
-            }
+    private URL toURL(final Artifact artifact) throws MojoExecutionException {
+        try {
+            final URL url = artifact.getFile().toURI().toURL();
+            getLog().debug("Adding URL " + url + " to ClassLoader");
+            return url;
+        } catch (final MalformedURLException mue) {
+            throw new MojoExecutionException("Failed to convert File " + artifact.getFile() + " into URL", mue);
         }
-
-        return urls;
     }
 
     public static Builder builder() {
@@ -368,10 +721,19 @@ public class ExtensionClassLoaderFactory {
         private ArtifactRepository localRepo;
         private List<ArtifactRepository> remoteRepos;
         private DependencyGraphBuilder dependencyGraphBuilder;
-        private ArtifactResolver artifactResolver;
+        private RepositorySystem repositorySystem;
+        private List<RemoteRepository> remoteProjectRepos;
         private ProjectBuilder projectBuilder;
         private RepositorySystemSession repositorySession;
         private ArtifactHandlerManager artifactHandlerManager;
+        private ExtensionClassLoaderCache classLoaderCache;
+        private DependencyGraphStore dependencyGraphStore;
+        private boolean useDependenciesDescriptors = false;
+        private boolean indexedClassLoaders = false;
+        private boolean memoryMappedJars = false;
+        private boolean useResolvedProject = false;
+        private int resolutionThreads = 1;
+        private boolean parallelChainConstruction = false;
 
         public Builder log(final Log log) {
             this.log = log;
@@ -403,8 +765,13 @@ public class ExtensionClassLoaderFactory {
             return this;
         }
 
-        public Builder artifactResolver(final ArtifactResolver resolver) {
-            this.artifactResolver = resolver;
+        public Builder repositorySystem(final RepositorySystem repositorySystem) {
+            this.repositorySystem = repositorySystem;
+            return this;
+        }
+
+        public Builder remoteProjectRepositories(final List<RemoteRepository> remoteProjectRepos) {
+            this.remoteProjectRepos = remoteProjectRepos;
             return this;
         }
 
@@ -418,6 +785,46 @@ public class ExtensionClassLoaderFactory {
             return this;
         }
 
+        public Builder classLoaderCache(final ExtensionClassLoaderCache classLoaderCache) {
+            this.classLoaderCache = classLoaderCache;
+            return this;
+        }
+
+        public Builder useResolvedProject(final boolean useResolvedProject) {
+            this.useResolvedProject = useResolvedProject;
+            return this;
+        }
+
+        public Builder resolutionThreads(final int resolutionThreads) {
+            this.resolutionThreads = resolutionThreads;
+            return this;
+        }
+
+        public Builder dependencyGraphStore(final DependencyGraphStore dependencyGraphStore) {
+            this.dependencyGraphStore = dependencyGraphStore;
+            return this;
+        }
+
+        public Builder useDependenciesDescriptors(final boolean useDependenciesDescriptors) {
+            this.useDependenciesDescriptors = useDependenciesDescriptors;
+            return this;
+        }
+
+        public Builder indexedClassLoaders(final boolean indexedClassLoaders) {
+            this.indexedClassLoaders = indexedClassLoaders;
+            return this;
+        }
+
+        public Builder memoryMappedJars(final boolean memoryMappedJars) {
+            this.memoryMappedJars = memoryMappedJars;
+            return this;
+        }
+
+        public Builder parallelChainConstruction(final boolean parallelChainConstruction) {
+            this.parallelChainConstruction = parallelChainConstruction;
+            return this;
+        }
+
         public ExtensionClassLoaderFactory build() {
             return new ExtensionClassLoaderFactory(this);
         }
@@ -426,6 +833,7 @@ public class ExtensionClassLoaderFactory {
     private static class ArtifactsHolder {
 
         private Set<Artifact> allArtifacts = new TreeSet<>();
+        private Map<String, String> versionHints = new HashMap<>();
 
         public void addArtifacts(final Set<Artifact> artifacts) {
             if (artifacts != null) {
@@ -433,6 +841,16 @@ public class ExtensionClassLoaderFactory {
             }
         }
 
+        public void addVersionHint(final String groupId, final String artifactId, final String version) {
+            if (version != null) {
+                versionHints.putIfAbsent(getCoordinate(groupId, artifactId), version);
+            }
+        }
+
+        public String getVersionHint(final String coordinate) {
+            return versionHints.get(coordinate);
+        }
+
         public Set<Artifact> getAllArtifacts() {
             return allArtifacts;
         }
@@ -22,25 +22,36 @@ import org.apache.nifi.extension.definition.ExtensionType;
 import org.apache.nifi.extension.definition.ServiceAPIDefinition;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 public class ExtensionDefinitionFactory {
     private static final String SERVICES_DIRECTORY = "META-INF/services/";
+    private static final String CONTROLLER_SERVICE_CLASS_NAME = "org.apache.nifi.controller.ControllerService";
+    private static final String CONTROLLER_SERVICE_INTERNAL_NAME = toInternalName(CONTROLLER_SERVICE_CLASS_NAME);
+    private static final String JAVA_PACKAGE_PREFIX = "java/";
 
     private static final Map<ExtensionType, String> INTERFACE_NAMES = new HashMap<>();
     static {
         INTERFACE_NAMES.put(ExtensionType.PROCESSOR, "org.apache.nifi.processor.Processor");
-        INTERFACE_NAMES.put(ExtensionType.CONTROLLER_SERVICE, "org.apache.nifi.controller.ControllerService");
+        INTERFACE_NAMES.put(ExtensionType.CONTROLLER_SERVICE, CONTROLLER_SERVICE_CLASS_NAME);
         INTERFACE_NAMES.put(ExtensionType.REPORTING_TASK, "org.apache.nifi.reporting.ReportingTask");
         INTERFACE_NAMES.put(ExtensionType.FLOW_ANALYSIS_RULE, "org.apache.nifi.flowanalysis.FlowAnalysisRule");
         INTERFACE_NAMES.put(ExtensionType.PARAMETER_PROVIDER, "org.apache.nifi.parameter.ParameterProvider");
@@ -49,16 +60,49 @@ public class ExtensionDefinitionFactory {
     }
 
     private final ClassLoader extensionClassLoader;
+    private final ExtensionClassHierarchy classHierarchy;
 
     public ExtensionDefinitionFactory(final ClassLoader classLoader) {
         this.extensionClassLoader = classLoader;
+        // The owning NAR of a class is only known for classes defined by an ExtensionClassLoader, so the class files are only read for those
+        this.classHierarchy = classLoader instanceof ExtensionClassLoader ? new ExtensionClassHierarchy(classLoader) : null;
     }
 
     public Set<ExtensionDefinition> discoverExtensions(final ExtensionType extensionType) throws IOException {
         final String interfaceName = INTERFACE_NAMES.get(extensionType);
         final Set<String> classNames = discoverClassNames(interfaceName);
+        return createExtensionDefinitions(extensionType, classNames);
+    }
+
+    /**
+     * Discovers the extensions of every {@link ExtensionType} at once. When the extension ClassLoader is a {@link URLClassLoader},
+     * the service files of all extension types are read from its own URLs in a single pass, skipping any URL that an ancestor
+     * ClassLoader also provides, so the jars of the parent NARs are not searched.
+     *
+     * @return the extensions that were discovered, containing an entry for every extension type
+     * @throws IOException if the service files cannot be read or an extension cannot be loaded
+     */
+    public Map<ExtensionType, Set<ExtensionDefinition>> discoverExtensions() throws IOException {
+        final Map<String, Set<String>> classNamesByInterface;
+        if (extensionClassLoader instanceof URLClassLoader) {
+            classNamesByInterface = discoverOwnClassNames((URLClassLoader) extensionClassLoader);
+        } else {
+            classNamesByInterface = new HashMap<>();
+            for (final String interfaceName : INTERFACE_NAMES.values()) {
+                classNamesByInterface.put(interfaceName, discoverClassNames(interfaceName));
+            }
+        }
+
+        final Map<ExtensionType, Set<ExtensionDefinition>> definitions = new EnumMap<>(ExtensionType.class);
+        for (final Map.Entry<ExtensionType, String> entry : INTERFACE_NAMES.entrySet()) {
+            final ExtensionType extensionType = entry.getKey();
+            definitions.put(extensionType, createExtensionDefinitions(extensionType, classNamesByInterface.get(entry.getValue())));
+        }
+        return definitions;
+    }
 
-        if (classNames.isEmpty()) {
+    private Set<ExtensionDefinition> createExtensionDefinitions(final ExtensionType extensionType, final Set<String> classNames) throws IOException {
+        if (classNames == null || classNames.isEmpty()) {
             return Collections.emptySet();
         }
 
@@ -74,19 +118,75 @@ public class ExtensionDefinitionFactory {
         return definitions;
     }
 
-    private ExtensionDefinition createExtensionDefinition(final ExtensionType extensionType, final String className) throws ClassNotFoundException {
+    private ExtensionDefinition createExtensionDefinition(final ExtensionType extensionType, final String className) throws ClassNotFoundException, IOException {
+        final ExtensionClassHierarchy.ClassNode classNode = classHierarchy == null ? null : classHierarchy.getClass(toInternalName(className));
+        if (classNode != null) {
+            // The class file describes the extension, so the class does not need to be loaded until its documentation is written
+            final Set<ServiceAPIDefinition> serviceApis = getProvidedServiceAPIs(extensionType, classNode);
+            if (serviceApis != null) {
+                return new StandardExtensionDefinition(extensionType, className, serviceApis);
+            }
+        }
+
         final Class<?> extensionClass = Class.forName(className, false, extensionClassLoader);
         final Set<ServiceAPIDefinition> serviceApis = getProvidedServiceAPIs(extensionType, extensionClass);
         return new StandardExtensionDefinition(extensionType, className, serviceApis);
     }
 
+    /**
+     * Determines the Controller Service APIs provided by an extension from the class files of its class hierarchy, without loading
+     * any of the classes.
+     *
+     * @return the provided Controller Service APIs, or <code>null</code> if a class file in the hierarchy cannot be found
+     */
+    private Set<ServiceAPIDefinition> getProvidedServiceAPIs(final ExtensionType extensionType, final ExtensionClassHierarchy.ClassNode classNode) throws IOException {
+        if (extensionType != ExtensionType.CONTROLLER_SERVICE) {
+            return Collections.emptySet();
+        }
+
+        final Set<ServiceAPIDefinition> serviceApis = new HashSet<>();
+        ExtensionClassHierarchy.ClassNode currentNode = classNode;
+        while (currentNode != null) {
+            for (final String immediateInterface : currentNode.getInterfaceNames()) {
+                // Interfaces of the Java platform never extend ControllerService
+                if (immediateInterface.startsWith(JAVA_PACKAGE_PREFIX)) {
+                    continue;
+                }
+
+                final Set<String> interfaceHierarchy = classHierarchy.getInterfaceHierarchy(immediateInterface);
+                if (interfaceHierarchy == null) {
+                    return null;
+                }
+
+                for (final String implementedInterface : interfaceHierarchy) {
+                    if (!CONTROLLER_SERVICE_INTERNAL_NAME.equals(implementedInterface) && classHierarchy.isSubInterface(implementedInterface, CONTROLLER_SERVICE_INTERNAL_NAME)) {
+                        final ClassLoader interfaceClassLoader = classHierarchy.getClass(implementedInterface).getClassLoader();
+                        addProvidedServiceAPI(implementedInterface.replace('/', '.'), interfaceClassLoader, serviceApis);
+                    }
+                }
+            }
+
+            final String superClassName = currentNode.getSuperClassName();
+            if (superClassName == null || superClassName.startsWith(JAVA_PACKAGE_PREFIX)) {
+                break;
+            }
+
+            currentNode = classHierarchy.getClass(superClassName);
+            if (currentNode == null) {
+                return null;
+            }
+        }
+
+        return serviceApis;
+    }
+
     private Set<ServiceAPIDefinition> getProvidedServiceAPIs(final ExtensionType extensionType, final Class<?> extensionClass) throws ClassNotFoundException {
         if (extensionType != ExtensionType.CONTROLLER_SERVICE) {
             return Collections.emptySet();
         }
 
         final Set<ServiceAPIDefinition> serviceApis = new HashSet<>();
-        final Class<?> controllerServiceClass = Class.forName("org.apache.nifi.controller.ControllerService", false, extensionClassLoader);
+        final Class<?> controllerServiceClass = Class.forName(CONTROLLER_SERVICE_CLASS_NAME, false, extensionClassLoader);
         addProvidedServiceAPIs(controllerServiceClass, extensionClass, serviceApis);
         return serviceApis;
     }
@@ -128,18 +228,25 @@ public class ExtensionDefinitionFactory {
 
     private void processImplementedInterface(final Class<?> implementedInterface, final Class<?> controllerServiceClass, final Set<ServiceAPIDefinition> serviceApis) {
         if (controllerServiceClass.isAssignableFrom(implementedInterface) && !controllerServiceClass.equals(implementedInterface)) {
-            final ClassLoader interfaceClassLoader = implementedInterface.getClassLoader();
-            if (interfaceClassLoader instanceof ExtensionClassLoader) {
-                final Artifact interfaceNarArtifact = ((ExtensionClassLoader) interfaceClassLoader).getNarArtifact();
+            addProvidedServiceAPI(implementedInterface.getName(), implementedInterface.getClassLoader(), serviceApis);
+        }
+    }
 
-                final ServiceAPIDefinition serviceDefinition = new StandardServiceAPIDefinition(implementedInterface.getName(),
-                        interfaceNarArtifact.getGroupId(), interfaceNarArtifact.getArtifactId(), interfaceNarArtifact.getBaseVersion());
+    private void addProvidedServiceAPI(final String interfaceName, final ClassLoader interfaceClassLoader, final Set<ServiceAPIDefinition> serviceApis) {
+        if (interfaceClassLoader instanceof ExtensionClassLoader) {
+            final Artifact interfaceNarArtifact = ((ExtensionClassLoader) interfaceClassLoader).getNarArtifact();
 
-                serviceApis.add(serviceDefinition);
-            }
+            final ServiceAPIDefinition serviceDefinition = new StandardServiceAPIDefinition(interfaceName,
+                    interfaceNarArtifact.getGroupId(), interfaceNarArtifact.getArtifactId(), interfaceNarArtifact.getBaseVersion());
+
+            serviceApis.add(serviceDefinition);
         }
     }
 
+    private static String toInternalName(final String className) {
+        return className.replace('.', '/');
+    }
+
     private Set<String> discoverClassNames(final String extensionType) throws IOException {
         final Set<URL> resourceUrls = new HashSet<>();
 
@@ -163,11 +270,85 @@ public class ExtensionDefinitionFactory {
         return classNames;
     }
 
+    private Map<String, Set<String>> discoverOwnClassNames(final URLClassLoader classLoader) throws IOException {
+        final Set<URL> inheritedUrls = new HashSet<>();
+        for (ClassLoader ancestor = classLoader.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (ancestor instanceof URLClassLoader) {
+                inheritedUrls.addAll(Arrays.asList(((URLClassLoader) ancestor).getURLs()));
+            }
+        }
+
+        final Map<String, Set<String>> classNamesByInterface = new HashMap<>();
+        for (final String interfaceName : INTERFACE_NAMES.values()) {
+            classNamesByInterface.put(interfaceName, new HashSet<>());
+        }
+
+        for (final URL url : classLoader.getURLs()) {
+            if (inheritedUrls.contains(url)) {
+                continue;
+            }
+
+            final File file = toFile(url);
+            if (file == null) {
+                // Not a local file, so let the ClassLoader locate the service files in this URL
+                try (final URLClassLoader urlClassLoader = new URLClassLoader(new URL[] {url}, null)) {
+                    for (final Map.Entry<String, Set<String>> entry : classNamesByInterface.entrySet()) {
+                        final URL serviceUrl = urlClassLoader.findResource(SERVICES_DIRECTORY + entry.getKey());
+                        if (serviceUrl != null) {
+                            try (final InputStream in = serviceUrl.openStream()) {
+                                entry.getValue().addAll(discoverClassNames(in));
+                            }
+                        }
+                    }
+                }
+            } else if (file.isDirectory()) {
+                for (final Map.Entry<String, Set<String>> entry : classNamesByInterface.entrySet()) {
+                    final File serviceFile = new File(file, SERVICES_DIRECTORY + entry.getKey());
+                    if (serviceFile.isFile()) {
+                        try (final InputStream in = new FileInputStream(serviceFile)) {
+                            entry.getValue().addAll(discoverClassNames(in));
+                        }
+                    }
+                }
+            } else if (file.isFile()) {
+                try (final JarFile jarFile = new JarFile(file)) {
+                    for (final Map.Entry<String, Set<String>> entry : classNamesByInterface.entrySet()) {
+                        final JarEntry serviceEntry = jarFile.getJarEntry(SERVICES_DIRECTORY + entry.getKey());
+                        if (serviceEntry != null) {
+                            try (final InputStream in = jarFile.getInputStream(serviceEntry)) {
+                                entry.getValue().addAll(discoverClassNames(in));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return classNamesByInterface;
+    }
+
+    private File toFile(final URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+
+        try {
+            return new File(url.toURI());
+        } catch (final URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private Set<String> discoverClassNames(final URL serviceUrl) throws IOException {
+        try (final InputStream in = serviceUrl.openStream()) {
+            return discoverClassNames(in);
+        }
+    }
+
+    private Set<String> discoverClassNames(final InputStream in) throws IOException {
         final Set<String> classNames = new HashSet<>();
 
-        try (final InputStream in = serviceUrl.openStream();
-             final Reader rawReader = new InputStreamReader(in);
+        try (final Reader rawReader = new InputStreamReader(in);
              final BufferedReader reader = new BufferedReader(rawReader)) {
 
             String line;
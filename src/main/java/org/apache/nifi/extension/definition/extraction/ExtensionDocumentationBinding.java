@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Binds the NiFi API and documentation classes visible to an extension ClassLoader, so that the documentation of its extensions
+ * can be written without looking up the same methods for every extension and every property. The method handles are resolved
+ * once, when the binding is created, and may be used concurrently.
+ */
+public class ExtensionDocumentationBinding {
+    private static final String CONFIGURABLE_COMPONENT_CLASS_NAME = "org.apache.nifi.components.ConfigurableComponent";
+    private static final String PROPERTY_DESCRIPTOR_CLASS_NAME = "org.apache.nifi.components.PropertyDescriptor";
+    private static final String CONNECTOR_CLASS_NAME = "org.apache.nifi.components.connector.Connector";
+    private static final String CONNECTOR_DOCUMENTATION_WRITER_CLASS_NAME = "org.apache.nifi.documentation.xml.XmlConnectorDocumentationWriter";
+    private static final String SERVICE_API_CLASS_NAME = "org.apache.nifi.documentation.StandardServiceAPI";
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private final MethodHandle documentationWriterConstructor;
+    private final MethodHandle initialize;
+    private final MethodHandle write;
+    private final MethodHandle writeWithServices;
+    private final MethodHandle serviceApiConstructor;
+    private final MethodHandle getPropertyDescriptors;
+    private final MethodHandle getPropertyName;
+    private final MethodHandle getControllerServiceDefinition;
+
+    private final MethodHandle connectorDocumentationWriterConstructor;
+    private final MethodHandle initializeConnector;
+    private final MethodHandle writeConnector;
+
+    /**
+     * Resolves the documentation methods of the given documentation writer and of the NiFi API classes visible to the ClassLoader.
+     * The Connector documentation writer and the service API support are optional, since older NiFi API versions do not provide them.
+     *
+     * @param classLoader the extension ClassLoader
+     * @param documentationWriterClass the <code>XmlDocumentationWriter</code> class loaded by the extension ClassLoader
+     * @throws ReflectiveOperationException if the required classes or methods are not available
+     */
+    public ExtensionDocumentationBinding(final ClassLoader classLoader, final Class<?> documentationWriterClass) throws ReflectiveOperationException {
+        final Class<?> configurableComponentClass = Class.forName(CONFIGURABLE_COMPONENT_CLASS_NAME, false, classLoader);
+        final Class<?> propertyDescriptorClass = Class.forName(PROPERTY_DESCRIPTOR_CLASS_NAME, false, classLoader);
+
+        documentationWriterConstructor = generic(LOOKUP.unreflectConstructor(documentationWriterClass.getConstructor(XMLStreamWriter.class)));
+        initialize = genericVoid(LOOKUP.unreflect(documentationWriterClass.getMethod("initialize", configurableComponentClass)));
+        write = genericVoid(LOOKUP.unreflect(documentationWriterClass.getMethod("write", configurableComponentClass)));
+        getPropertyDescriptors = generic(LOOKUP.unreflect(configurableComponentClass.getMethod("getPropertyDescriptors")));
+        getPropertyName = generic(LOOKUP.unreflect(propertyDescriptorClass.getMethod("getName")));
+        getControllerServiceDefinition = generic(LOOKUP.unreflect(propertyDescriptorClass.getMethod("getControllerServiceDefinition")));
+
+        MethodHandle resolvedWriteWithServices = null;
+        MethodHandle resolvedServiceApiConstructor = null;
+        try {
+            final Class<?> serviceApiClass = Class.forName(SERVICE_API_CLASS_NAME, false, classLoader);
+            resolvedServiceApiConstructor = generic(LOOKUP.unreflectConstructor(serviceApiClass.getConstructor(String.class, String.class, String.class, String.class)));
+            resolvedWriteWithServices = genericVoid(LOOKUP.unreflect(documentationWriterClass.getMethod("write", configurableComponentClass, Collection.class, Map.class)));
+        } catch (final ClassNotFoundException | NoSuchMethodException e) {
+            // Documentation referencing Controller Services cannot be written, which is reported if such an extension is documented
+        }
+        writeWithServices = resolvedWriteWithServices;
+        serviceApiConstructor = resolvedServiceApiConstructor;
+
+        MethodHandle resolvedConnectorConstructor = null;
+        MethodHandle resolvedInitializeConnector = null;
+        MethodHandle resolvedWriteConnector = null;
+        try {
+            final Class<?> connectorClass = Class.forName(CONNECTOR_CLASS_NAME, false, classLoader);
+            final Class<?> connectorWriterClass = Class.forName(CONNECTOR_DOCUMENTATION_WRITER_CLASS_NAME, false, classLoader);
+            resolvedConnectorConstructor = generic(LOOKUP.unreflectConstructor(connectorWriterClass.getConstructor(XMLStreamWriter.class)));
+            resolvedInitializeConnector = genericVoid(LOOKUP.unreflect(connectorWriterClass.getMethod("initialize", connectorClass)));
+            resolvedWriteConnector = genericVoid(LOOKUP.unreflect(connectorWriterClass.getMethod("write", connectorClass)));
+        } catch (final ClassNotFoundException | NoSuchMethodException e) {
+            // Connectors are not supported by this version of the NiFi API
+            resolvedConnectorConstructor = null;
+        }
+        connectorDocumentationWriterConstructor = resolvedConnectorConstructor;
+        initializeConnector = resolvedInitializeConnector;
+        writeConnector = resolvedWriteConnector;
+    }
+
+    private static MethodHandle generic(final MethodHandle methodHandle) {
+        return methodHandle.asType(MethodType.genericMethodType(methodHandle.type().parameterCount()));
+    }
+
+    private static MethodHandle genericVoid(final MethodHandle methodHandle) {
+        return methodHandle.asType(MethodType.genericMethodType(methodHandle.type().parameterCount()).changeReturnType(void.class));
+    }
+
+    public boolean isConnectorDocumentationSupported() {
+        return connectorDocumentationWriterConstructor != null;
+    }
+
+    public void writeDocumentation(final XMLStreamWriter xmlWriter, final Object component) throws Exception {
+        try {
+            final Object documentationWriter = (Object) documentationWriterConstructor.invokeExact((Object) xmlWriter);
+            initialize.invokeExact(documentationWriter, component);
+            write.invokeExact(documentationWriter, component);
+        } catch (final Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void writeDocumentation(final XMLStreamWriter xmlWriter, final Object component, final Collection<Object> providedServices,
+                                   final Map<String, Object> propertyServices) throws Exception {
+        if (writeWithServices == null) {
+            throw new ClassNotFoundException(SERVICE_API_CLASS_NAME);
+        }
+
+        try {
+            final Object documentationWriter = (Object) documentationWriterConstructor.invokeExact((Object) xmlWriter);
+            initialize.invokeExact(documentationWriter, component);
+            writeWithServices.invokeExact(documentationWriter, component, (Object) providedServices, (Object) propertyServices);
+        } catch (final Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public void writeConnectorDocumentation(final XMLStreamWriter xmlWriter, final Object connector) throws Exception {
+        if (connectorDocumentationWriterConstructor == null) {
+            throw new ClassNotFoundException(CONNECTOR_DOCUMENTATION_WRITER_CLASS_NAME);
+        }
+
+        try {
+            final Object documentationWriter = (Object) connectorDocumentationWriterConstructor.invokeExact((Object) xmlWriter);
+            initializeConnector.invokeExact(documentationWriter, connector);
+            writeConnector.invokeExact(documentationWriter, connector);
+        } catch (final Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    /**
+     * @return a new <code>StandardServiceAPI</code> describing the given Controller Service API
+     */
+    public Object createServiceAPI(final String className, final String groupId, final String artifactId, final String version) throws Exception {
+        if (serviceApiConstructor == null) {
+            throw new ClassNotFoundException(SERVICE_API_CLASS_NAME);
+        }
+
+        try {
+            return (Object) serviceApiConstructor.invokeExact((Object) className, (Object) groupId, (Object) artifactId, (Object) version);
+        } catch (final Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public List<?> getPropertyDescriptors(final Object component) throws Exception {
+        try {
+            return (List<?>) (Object) getPropertyDescriptors.invokeExact(component);
+        } catch (final Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public String getPropertyName(final Object propertyDescriptor) throws Exception {
+        try {
+            return (String) (Object) getPropertyName.invokeExact(propertyDescriptor);
+        } catch (final Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    public Class<?> getControllerServiceDefinition(final Object propertyDescriptor) throws Exception {
+        try {
+            return (Class<?>) (Object) getControllerServiceDefinition.invokeExact(propertyDescriptor);
+        } catch (final Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private static Exception propagate(final Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return (Exception) t;
+    }
+}
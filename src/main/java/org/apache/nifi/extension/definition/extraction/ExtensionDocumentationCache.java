@@ -0,0 +1,494 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.nifi.extension.definition.ExtensionType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Caches the rendered documentation of each extension of a NAR between builds.
+ * <p>
+ * Every fragment is keyed by a digest of the class files that the extension class can reach within the jars that contain the
+ * NAR's extensions, which includes its superclass chain, together with a fingerprint of the NAR's classpath. The fingerprint
+ * covers the coordinates, sizes and modification times of the NAR's artifacts, the descriptions provided by the caller, such
+ * as the declared dependencies, and every entry of the extension jars other than their class files. When an extension class
+ * changes, only the extensions that reach it are rendered again, while any other change to the classpath invalidates every fragment.
+ * </p>
+ * <p>
+ * The fingerprint does not look into the parent NARs beyond their artifact files, so a change to the dependencies of a parent NAR
+ * that leaves its artifact untouched is not detected. Such changes require a clean build.
+ * </p>
+ */
+public class ExtensionDocumentationCache {
+    private static final String INDEX_FILE_NAME = "index";
+    private static final String HEADER = "# Apache NiFi NAR documentation cache";
+    private static final String SEPARATOR = "\t";
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final File directory;
+    private final List<String> classpathDescription;
+    private final List<File> classpathFiles;
+
+    private String storedFingerprint;
+    private String storedSystemApiVersion;
+    private final Set<File> storedExtensionFiles = new LinkedHashSet<>();
+    private final List<CachedExtension> storedExtensions = new ArrayList<>();
+
+    /**
+     * @param directory the directory holding the cache
+     * @param classpathDescription descriptions of the inputs that determine the NAR's ClassLoader, such as dependency coordinates
+     * @param classpathFiles the artifact files of the NAR's ClassLoader
+     */
+    public ExtensionDocumentationCache(final File directory, final Collection<String> classpathDescription, final Collection<File> classpathFiles) {
+        this.directory = directory;
+        this.classpathDescription = new ArrayList<>(classpathDescription);
+        this.classpathFiles = new ArrayList<>(new TreeSet<>(classpathFiles.stream().map(File::getAbsoluteFile).toList()));
+    }
+
+    /**
+     * @param extensionFiles the jars that contain the extensions of the NAR
+     * @return <code>true</code> if the extension jars are part of the classpath, which is required for their resources to be
+     *         covered by the fingerprint
+     */
+    public boolean isCacheable(final Set<File> extensionFiles) {
+        return classpathFiles.containsAll(extensionFiles);
+    }
+
+    /**
+     * Reads the cache index. A missing or unreadable index results in an empty cache.
+     */
+    public void load() {
+        storedFingerprint = null;
+        storedSystemApiVersion = null;
+        storedExtensionFiles.clear();
+        storedExtensions.clear();
+
+        final File indexFile = new File(directory, INDEX_FILE_NAME);
+        if (!indexFile.isFile()) {
+            return;
+        }
+
+        try (final BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                final String[] fields = line.split(SEPARATOR, -1);
+                switch (fields[0]) {
+                    case "fingerprint":
+                        storedFingerprint = fields[1];
+                        break;
+                    case "systemApiVersion":
+                        storedSystemApiVersion = fields[1].isEmpty() ? null : fields[1];
+                        break;
+                    case "extensionFile":
+                        storedExtensionFiles.add(new File(fields[1]));
+                        break;
+                    case "extension":
+                        storedExtensions.add(new CachedExtension(ExtensionType.valueOf(fields[1]), fields[2], fields[3], fields[4]));
+                        break;
+                    default:
+                        throw new IOException("Unexpected cache entry " + fields[0]);
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            storedFingerprint = null;
+            storedExtensionFiles.clear();
+            storedExtensions.clear();
+        }
+    }
+
+    /**
+     * Determines whether the documentation of every extension can be served from the cache, in which case the NAR's ClassLoader is
+     * not needed. This requires the classpath fingerprint and the digest of every extension to match the stored ones.
+     *
+     * @return the cached fragments in the order in which they were stored, or <code>null</code> if any extension must be rendered
+     */
+    public List<byte[]> getAllFragments() throws IOException {
+        if (storedFingerprint == null || !storedFingerprint.equals(fingerprint(storedExtensionFiles))) {
+            return null;
+        }
+
+        final List<byte[]> fragments = new ArrayList<>();
+        try (final ClassIndex classIndex = new ClassIndex(storedExtensionFiles)) {
+            for (final CachedExtension extension : storedExtensions) {
+                if (!extension.getDigest().equals(classIndex.digest(extension.getName()))) {
+                    return null;
+                }
+
+                final byte[] fragment = readFragment(extension);
+                if (fragment == null) {
+                    return null;
+                }
+                fragments.add(fragment);
+            }
+        }
+
+        return fragments;
+    }
+
+    public String getSystemApiVersion() {
+        return storedSystemApiVersion;
+    }
+
+    /**
+     * Computes the digests of the given extensions, which are contained in the given files.
+     *
+     * @param extensionNames the class names of the extensions
+     * @param extensionFiles the jars that contain the extensions of the NAR
+     * @return the digest of each extension
+     */
+    public Map<String, String> digest(final Collection<String> extensionNames, final Set<File> extensionFiles) throws IOException {
+        final Map<String, String> digests = new HashMap<>();
+        try (final ClassIndex classIndex = new ClassIndex(extensionFiles)) {
+            for (final String extensionName : extensionNames) {
+                digests.put(extensionName, classIndex.digest(extensionName));
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * @return <code>true</code> if the fingerprint of the classpath with the given extension files matches the stored fingerprint
+     */
+    public boolean isFingerprintMatch(final Set<File> extensionFiles) throws IOException {
+        return storedFingerprint != null && storedExtensionFiles.equals(extensionFiles) && storedFingerprint.equals(fingerprint(extensionFiles));
+    }
+
+    /**
+     * Returns the cached fragment of the given extension if its digest is unchanged. The caller is expected to have verified the
+     * fingerprint of the classpath with {@link #isFingerprintMatch(Set)}.
+     *
+     * @return the fragment, or <code>null</code> if the extension must be rendered
+     */
+    public byte[] getFragment(final ExtensionType extensionType, final String extensionName, final String digest) throws IOException {
+        for (final CachedExtension extension : storedExtensions) {
+            if (extension.getType() == extensionType && extension.getName().equals(extensionName) && extension.getDigest().equals(digest)) {
+                return readFragment(extension);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the contents of the cache with the given fragments.
+     *
+     * @param systemApiVersion the NiFi API version of the NAR
+     * @param extensionFiles the jars that contain the extensions of the NAR
+     * @param extensions the extensions in the order in which their fragments appear in the documentation
+     * @param fragments the fragment of each extension
+     */
+    public void store(final String systemApiVersion, final Set<File> extensionFiles, final List<CachedExtension> extensions, final List<byte[]> fragments) throws IOException {
+        Files.createDirectories(directory.toPath());
+
+        final Set<String> fragmentFileNames = new TreeSet<>();
+        for (int i = 0; i < extensions.size(); i++) {
+            final CachedExtension extension = extensions.get(i);
+            final Path fragmentFile = new File(directory, extension.getFragmentFileName()).toPath();
+            final Path tempFile = new File(directory, extension.getFragmentFileName() + ".tmp").toPath();
+            Files.write(tempFile, fragments.get(i));
+            Files.move(tempFile, fragmentFile, StandardCopyOption.REPLACE_EXISTING);
+            fragmentFileNames.add(extension.getFragmentFileName());
+        }
+
+        final File indexFile = new File(directory, INDEX_FILE_NAME);
+        try (final BufferedWriter writer = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writeLine(writer, "fingerprint", fingerprint(extensionFiles));
+            writeLine(writer, "systemApiVersion", systemApiVersion == null ? "" : systemApiVersion);
+            for (final File extensionFile : extensionFiles) {
+                writeLine(writer, "extensionFile", extensionFile.getAbsolutePath());
+            }
+            for (final CachedExtension extension : extensions) {
+                writeLine(writer, "extension", extension.getType().name(), extension.getName(), extension.getDigest(), extension.getFragmentFileName());
+            }
+        }
+
+        // Remove the fragments of extensions that no longer exist
+        try (final Stream<Path> files = Files.list(directory.toPath())) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                final String fileName = file.getFileName().toString();
+                if (fileName.endsWith(".xml") && !fragmentFileNames.contains(fileName)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        load();
+    }
+
+    private void writeLine(final BufferedWriter writer, final String... fields) throws IOException {
+        writer.write(String.join(SEPARATOR, fields));
+        writer.newLine();
+    }
+
+    private byte[] readFragment(final CachedExtension extension) throws IOException {
+        final File fragmentFile = new File(directory, extension.getFragmentFileName());
+        return fragmentFile.isFile() ? Files.readAllBytes(fragmentFile.toPath()) : null;
+    }
+
+    private String fingerprint(final Set<File> extensionFiles) throws IOException {
+        final MessageDigest messageDigest = createMessageDigest();
+        for (final String description : classpathDescription) {
+            update(messageDigest, "description", description);
+        }
+
+        for (final File file : classpathFiles) {
+            update(messageDigest, "file", file.getAbsolutePath());
+            if (!extensionFiles.contains(file)) {
+                update(messageDigest, String.valueOf(file.length()), String.valueOf(file.lastModified()));
+            } else if (file.isFile()) {
+                // Class files are covered by the digests of the extensions
+                try (final JarFile jarFile = new JarFile(file)) {
+                    final Map<String, JarEntry> resources = new TreeMap<>();
+                    for (final Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+                        final JarEntry entry = entries.nextElement();
+                        if (!entry.getName().endsWith(CLASS_SUFFIX)) {
+                            resources.put(entry.getName(), entry);
+                        }
+                    }
+                    for (final JarEntry entry : resources.values()) {
+                        update(messageDigest, entry.getName(), String.valueOf(entry.getSize()), String.valueOf(entry.getCrc()));
+                    }
+                }
+            } else if (file.isDirectory()) {
+                final Path root = file.toPath();
+                try (final Stream<Path> paths = Files.walk(root)) {
+                    for (final Path path : (Iterable<Path>) paths.filter(Files::isRegularFile).sorted()::iterator) {
+                        if (!path.getFileName().toString().endsWith(CLASS_SUFFIX)) {
+                            update(messageDigest, root.relativize(path).toString(), String.valueOf(Files.size(path)), String.valueOf(Files.getLastModifiedTime(path).toMillis()));
+                        }
+                    }
+                }
+            }
+        }
+
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    private static MessageDigest createMessageDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static void update(final MessageDigest messageDigest, final String... values) {
+        for (final String value : values) {
+            messageDigest.update(value.getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0);
+        }
+    }
+
+    public static class CachedExtension {
+        private final ExtensionType type;
+        private final String name;
+        private final String digest;
+        private final String fragmentFileName;
+
+        public CachedExtension(final ExtensionType type, final String name, final String digest) {
+            this(type, name, digest, type.name() + "-" + name + ".xml");
+        }
+
+        private CachedExtension(final ExtensionType type, final String name, final String digest, final String fragmentFileName) {
+            this.type = type;
+            this.name = name;
+            this.digest = digest;
+            this.fragmentFileName = fragmentFileName;
+        }
+
+        public ExtensionType getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        String getFragmentFileName() {
+            return fragmentFileName;
+        }
+    }
+
+    /**
+     * Index of the class files in the extension jars, which computes the digest of the classes reachable from an extension class.
+     */
+    private static class ClassIndex implements Closeable {
+        private final List<JarFile> jarFiles = new ArrayList<>();
+        private final Map<String, ClassLocation> locations = new HashMap<>();
+        private final Map<String, ClassDigest> classDigests = new HashMap<>();
+
+        ClassIndex(final Collection<File> files) throws IOException {
+            try {
+                for (final File file : files) {
+                    if (file.isFile()) {
+                        final JarFile jarFile = new JarFile(file);
+                        jarFiles.add(jarFile);
+                        for (final Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+                            final JarEntry entry = entries.nextElement();
+                            final String entryName = entry.getName();
+                            if (entryName.endsWith(CLASS_SUFFIX)) {
+                                locations.putIfAbsent(entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()), new ClassLocation(jarFile, entry, null));
+                            }
+                        }
+                    } else if (file.isDirectory()) {
+                        final Path root = file.toPath();
+                        try (final Stream<Path> paths = Files.walk(root)) {
+                            for (final Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                                final String entryName = root.relativize(path).toString().replace(File.separatorChar, '/');
+                                if (entryName.endsWith(CLASS_SUFFIX)) {
+                                    locations.putIfAbsent(entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()), new ClassLocation(null, null, path));
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (final IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        String digest(final String extensionName) throws IOException {
+            final String internalName = extensionName.replace('.', '/');
+            final Map<String, String> reachable = new TreeMap<>();
+            final Deque<String> queue = new ArrayDeque<>();
+            queue.add(internalName);
+
+            while (!queue.isEmpty()) {
+                final String className = queue.poll();
+                if (reachable.containsKey(className)) {
+                    continue;
+                }
+
+                final ClassDigest classDigest = getClassDigest(className);
+                if (classDigest == null) {
+                    continue;
+                }
+
+                reachable.put(className, classDigest.digest);
+                for (final String referenced : classDigest.referencedClassNames) {
+                    if (!reachable.containsKey(referenced) && locations.containsKey(referenced)) {
+                        queue.add(referenced);
+                    }
+                }
+            }
+
+            final MessageDigest messageDigest = createMessageDigest();
+            update(messageDigest, internalName);
+            for (final Map.Entry<String, String> entry : reachable.entrySet()) {
+                update(messageDigest, entry.getKey(), entry.getValue());
+            }
+            return HexFormat.of().formatHex(messageDigest.digest());
+        }
+
+        private ClassDigest getClassDigest(final String className) throws IOException {
+            final ClassDigest cached = classDigests.get(className);
+            if (cached != null) {
+                return cached;
+            }
+
+            final ClassLocation location = locations.get(className);
+            if (location == null) {
+                return null;
+            }
+
+            final byte[] bytes = location.read();
+
+            final Set<String> referencedClassNames = ClassFileInfo.parse(bytes).getReferencedClassNames();
+            final ClassDigest classDigest = new ClassDigest(HexFormat.of().formatHex(createMessageDigest().digest(bytes)), referencedClassNames);
+            classDigests.put(className, classDigest);
+            return classDigest;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (final JarFile jarFile : jarFiles) {
+                jarFile.close();
+            }
+            jarFiles.clear();
+        }
+    }
+
+    private static class ClassLocation {
+        private final JarFile jarFile;
+        private final JarEntry entry;
+        private final Path path;
+
+        ClassLocation(final JarFile jarFile, final JarEntry entry, final Path path) {
+            this.jarFile = jarFile;
+            this.entry = entry;
+            this.path = path;
+        }
+
+        byte[] read() throws IOException {
+            if (path != null) {
+                return Files.readAllBytes(path);
+            }
+
+            try (final InputStream in = jarFile.getInputStream(entry)) {
+                return in.readAllBytes();
+            }
+        }
+    }
+
+    private static class ClassDigest {
+        private final String digest;
+        private final Set<String> referencedClassNames;
+
+        ClassDigest(final String digest, final Set<String> referencedClassNames) {
+            this.digest = digest;
+            this.referencedClassNames = referencedClassNames;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Index of the documentation files that jars provide under <code>docs/&lt;component name&gt;/</code>. The central directory
+ * of each jar is enumerated once, after which the documentation of any component can be looked up without scanning the jars
+ * again. The jars remain open until the index is closed.
+ */
+public class ExtensionDocumentationIndex implements Closeable {
+    private static final String DOCS_DIRECTORY = "docs/";
+
+    private final List<JarFile> jarFiles;
+    private final Map<String, List<DocumentationEntry>> entriesByComponent;
+
+    private ExtensionDocumentationIndex(final List<JarFile> jarFiles, final Map<String, List<DocumentationEntry>> entriesByComponent) {
+        this.jarFiles = jarFiles;
+        this.entriesByComponent = entriesByComponent;
+    }
+
+    /**
+     * Creates an index of the documentation files in the given jars. When several jars provide the same file, the entries are
+     * listed in the order of the jars.
+     *
+     * @param files the jars to index
+     * @return the index
+     * @throws IOException if a jar cannot be read
+     */
+    public static ExtensionDocumentationIndex create(final Collection<File> files) throws IOException {
+        final List<JarFile> jarFiles = new ArrayList<>();
+        final Map<String, List<DocumentationEntry>> entriesByComponent = new HashMap<>();
+        final ExtensionDocumentationIndex index = new ExtensionDocumentationIndex(jarFiles, entriesByComponent);
+
+        try {
+            for (final File file : files) {
+                final JarFile jarFile = new JarFile(file);
+                jarFiles.add(jarFile);
+                addEntries(file, jarFile, entriesByComponent);
+            }
+        } catch (final IOException e) {
+            index.close();
+            throw e;
+        }
+
+        return index;
+    }
+
+    private static void addEntries(final File file, final JarFile jarFile, final Map<String, List<DocumentationEntry>> entriesByComponent) {
+        for (final Enumeration<JarEntry> jarEnumeration = jarFile.entries(); jarEnumeration.hasMoreElements();) {
+            final JarEntry jarEntry = jarEnumeration.nextElement();
+
+            final String entryName = jarEntry.getName();
+            if (!entryName.startsWith(DOCS_DIRECTORY) || jarEntry.isDirectory()) {
+                continue;
+            }
+
+            final int nextSlashIndex = entryName.indexOf('/', DOCS_DIRECTORY.length());
+            if (nextSlashIndex < 0 || nextSlashIndex == entryName.length() - 1) {
+                continue;
+            }
+
+            final String componentName = entryName.substring(DOCS_DIRECTORY.length(), nextSlashIndex);
+            final String relativePath = entryName.substring(nextSlashIndex + 1);
+            entriesByComponent.computeIfAbsent(componentName, name -> new ArrayList<>())
+                    .add(new DocumentationEntry(file, jarFile, jarEntry, relativePath));
+        }
+    }
+
+    /**
+     * @param componentName the fully qualified class name of the component
+     * @return the documentation files of the component, or an empty list if there are none
+     */
+    public List<DocumentationEntry> getEntries(final String componentName) {
+        final List<DocumentationEntry> entries = entriesByComponent.get(componentName);
+        return entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (final JarFile jarFile : jarFiles) {
+            try {
+                jarFile.close();
+            } catch (final IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        jarFiles.clear();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public static class DocumentationEntry {
+        private final File file;
+        private final JarFile jarFile;
+        private final JarEntry jarEntry;
+        private final String relativePath;
+
+        private DocumentationEntry(final File file, final JarFile jarFile, final JarEntry jarEntry, final String relativePath) {
+            this.file = file;
+            this.jarFile = jarFile;
+            this.jarEntry = jarEntry;
+            this.relativePath = relativePath;
+        }
+
+        /**
+         * @return the jar that contains the entry
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the full name of the entry in the jar
+         */
+        public String getEntryName() {
+            return jarEntry.getName();
+        }
+
+        /**
+         * @return the path of the entry relative to the documentation directory of its component
+         */
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        public InputStream open() throws IOException {
+            return jarFile.getInputStream(jarEntry);
+        }
+    }
+}
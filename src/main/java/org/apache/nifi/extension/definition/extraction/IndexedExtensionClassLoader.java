@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.maven.artifact.Artifact;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * An ExtensionClassLoader that indexes the packages of its jars and directories when it is created.
+ * <p>
+ * Classes are read directly from the jars that contain their package, and classes and resources in packages that none of the jars
+ * contain are not searched for at all. Classes and resources that could not be found are remembered, so repeated lookups, such as
+ * those of optional dependencies, fail immediately. Classes in packages of the root ClassLoader of the chain, which holds the provided
+ * entities such as the NiFi API, are loaded from that ClassLoader directly rather than being delegated through every level of the chain.
+ * </p>
+ * <p>
+ * Resources are looked up through the index as well, in the jars and directories that contain their package, rather than through
+ * the class path of the {@link java.net.URLClassLoader}, so no jar is opened a second time to find them.
+ * </p>
+ * <p>
+ * Optionally, jars are read through memory-mapped views instead of {@link JarFile}, which keeps the central directories and entry
+ * buffers of many jars off the heap. Classes are then defined from the mapped buffers, and the URLs of resources in mapped jars are
+ * opened as streams over the mapping. Jars that {@link MappedJarFile} does not support are read through {@link JarFile} as usual.
+ * </p>
+ */
+public class IndexedExtensionClassLoader extends ExtensionClassLoader {
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    // Deflated classes of mapped jars are inflated into a buffer of the defining thread, since defineClass copies the bytes anyway
+    private static final ThreadLocal<ByteBuffer> CLASS_BUFFER = new ThreadLocal<>();
+
+    private final URL[] urls;
+    private final Map<String, List<Integer>> packageIndex;
+    private final Map<Integer, JarFile> jarFiles = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedJarFile> mappedJarFiles = new ConcurrentHashMap<>();
+    private final boolean memoryMapped;
+    private final Set<String> missingClasses = ConcurrentHashMap.newKeySet();
+    private final Set<String> missingResources = ConcurrentHashMap.newKeySet();
+    private final IndexedExtensionClassLoader rootClassLoader;
+
+    public IndexedExtensionClassLoader(final URL[] urls, final ClassLoader parent, final Artifact narArtifact, final Collection<Artifact> otherArtifacts) {
+        this(urls, parent, narArtifact, otherArtifacts, false);
+    }
+
+    public IndexedExtensionClassLoader(final URL[] urls, final ClassLoader parent, final Artifact narArtifact, final Collection<Artifact> otherArtifacts,
+                                       final boolean memoryMapped) {
+        super(urls, parent, narArtifact, otherArtifacts);
+        this.urls = urls.clone();
+        this.memoryMapped = memoryMapped;
+        this.packageIndex = createPackageIndex();
+        this.rootClassLoader = findRootClassLoader(parent);
+    }
+
+    public IndexedExtensionClassLoader(final URL[] urls, final Artifact narArtifact, final Collection<Artifact> otherArtifacts) {
+        this(urls, narArtifact, otherArtifacts, false);
+    }
+
+    public IndexedExtensionClassLoader(final URL[] urls, final Artifact narArtifact, final Collection<Artifact> otherArtifacts, final boolean memoryMapped) {
+        super(urls, narArtifact, otherArtifacts);
+        this.urls = urls.clone();
+        this.memoryMapped = memoryMapped;
+        this.packageIndex = createPackageIndex();
+        this.rootClassLoader = null;
+    }
+
+    /**
+     * @param packageName the name of a package, such as <code>org.apache.nifi.processor</code>
+     * @return <code>true</code> if any of the jars or directories of this ClassLoader contains the package
+     */
+    public boolean containsPackage(final String packageName) {
+        return packageIndex.containsKey(packageName.replace('.', '/'));
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            // A class may be defined after it was reported missing, such as by a proxy generator that probes for it first
+            final Class<?> loadedClass = findLoadedClass(name);
+            if (loadedClass != null) {
+                if (resolve) {
+                    resolveClass(loadedClass);
+                }
+                return loadedClass;
+            }
+
+            if (missingClasses.contains(name)) {
+                throw new ClassNotFoundException(name);
+            }
+
+            if (rootClassLoader != null && rootClassLoader.containsPackage(getPackageName(name))) {
+                try {
+                    return rootClassLoader.loadClass(name);
+                } catch (final ClassNotFoundException e) {
+                    // The package is split across the levels of the chain, so the class is looked up as usual
+                }
+            }
+
+            try {
+                return super.loadClass(name, resolve);
+            } catch (final ClassNotFoundException e) {
+                missingClasses.add(name);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        final String path = name.replace('.', '/') + CLASS_SUFFIX;
+        final List<Integer> owners = packageIndex.get(getDirectory(path));
+        if (owners == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        for (final Integer owner : owners) {
+            try {
+                final Class<?> definedClass = defineClassFrom(name, path, owner);
+                if (definedClass != null) {
+                    classDefined();
+                    return definedClass;
+                }
+            } catch (final IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        throw new ClassNotFoundException(name);
+    }
+
+    @Override
+    public URL findResource(final String name) {
+        if (isDirectoryName(name)) {
+            return isIndexed(name) ? super.findResource(name) : null;
+        }
+
+        final List<Integer> owners = packageIndex.get(getDirectory(name));
+        if (owners == null) {
+            return null;
+        }
+
+        for (final Integer owner : owners) {
+            final URL resource = findResource(name, owner);
+            if (resource != null) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Enumeration<URL> findResources(final String name) throws IOException {
+        if (isDirectoryName(name)) {
+            return isIndexed(name) ? super.findResources(name) : Collections.emptyEnumeration();
+        }
+
+        final List<Integer> owners = packageIndex.get(getDirectory(name));
+        if (owners == null) {
+            return Collections.emptyEnumeration();
+        }
+
+        final List<URL> resources = new ArrayList<>(owners.size());
+        for (final Integer owner : owners) {
+            final URL resource = findResource(name, owner);
+            if (resource != null) {
+                resources.add(resource);
+            }
+        }
+        return Collections.enumeration(resources);
+    }
+
+    @Override
+    public URL getResource(final String name) {
+        if (missingResources.contains(name)) {
+            return null;
+        }
+
+        final URL resource = super.getResource(name);
+        if (resource == null) {
+            missingResources.add(name);
+        }
+        return resource;
+    }
+
+    @Override
+    public Enumeration<URL> getResources(final String name) throws IOException {
+        if (missingResources.contains(name)) {
+            return Collections.emptyEnumeration();
+        }
+
+        final List<URL> resources = Collections.list(super.getResources(name));
+        if (resources.isEmpty()) {
+            missingResources.add(name);
+        }
+        return Collections.enumeration(resources);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (final JarFile jarFile : jarFiles.values()) {
+                jarFile.close();
+            }
+            jarFiles.clear();
+            // Mappings are released once they are no longer referenced
+            for (final MappedJarFile mappedJarFile : mappedJarFiles.values()) {
+                mappedJarFile.close();
+            }
+            mappedJarFiles.clear();
+        } finally {
+            super.close();
+        }
+    }
+
+    private Class<?> defineClassFrom(final String name, final String path, final int owner) throws IOException {
+        final URL url = urls[owner];
+        final File file = toFile(url);
+
+        final byte[] bytes;
+        final CodeSigner[] codeSigners;
+        final Manifest manifest;
+        if (file.isDirectory()) {
+            final File classFile = new File(file, path);
+            if (!classFile.isFile()) {
+                return null;
+            }
+            bytes = Files.readAllBytes(classFile.toPath());
+            codeSigners = null;
+            manifest = null;
+        } else if (mappedJarFiles.containsKey(owner)) {
+            final MappedJarFile mappedJarFile = mappedJarFiles.get(owner);
+            // Take the buffer from the thread while it is in use, in case defining the class defines another one first
+            final ByteBuffer classBuffer = CLASS_BUFFER.get();
+            CLASS_BUFFER.remove();
+            final ByteBuffer content = mappedJarFile.getEntry(path, classBuffer);
+            try {
+                if (content == null) {
+                    return null;
+                }
+
+                definePackageIfAbsent(getPackageName(name), mappedJarFile.getManifest(), url);
+                return defineClass(name, content, new CodeSource(url, (CodeSigner[]) null));
+            } finally {
+                if (content != null && content.hasArray() && !content.isReadOnly()) {
+                    CLASS_BUFFER.set(content);
+                } else if (classBuffer != null) {
+                    CLASS_BUFFER.set(classBuffer);
+                }
+            }
+        } else {
+            final JarFile jarFile = getJarFile(owner);
+            final JarEntry entry = jarFile.getJarEntry(path);
+            if (entry == null) {
+                return null;
+            }
+            try (final InputStream in = jarFile.getInputStream(entry)) {
+                bytes = in.readAllBytes();
+            }
+            // Code signers are only known once the entry has been read completely
+            codeSigners = entry.getCodeSigners();
+            manifest = jarFile.getManifest();
+        }
+
+        definePackageIfAbsent(getPackageName(name), manifest, url);
+        return defineClass(name, bytes, 0, bytes.length, new CodeSource(url, codeSigners));
+    }
+
+    private void definePackageIfAbsent(final String packageName, final Manifest manifest, final URL url) {
+        if (packageName.isEmpty() || getDefinedPackage(packageName) != null) {
+            return;
+        }
+
+        try {
+            if (manifest == null) {
+                definePackage(packageName, null, null, null, null, null, null, null);
+            } else {
+                definePackage(packageName, manifest, url);
+            }
+        } catch (final IllegalArgumentException e) {
+            // Another thread defined the package concurrently
+        }
+    }
+
+    private JarFile getJarFile(final int owner) throws IOException {
+        JarFile jarFile = jarFiles.get(owner);
+        if (jarFile == null) {
+            final JarFile openedJarFile = new JarFile(toFile(urls[owner]), true, ZipFile.OPEN_READ, Runtime.version());
+            jarFile = jarFiles.putIfAbsent(owner, openedJarFile);
+            if (jarFile == null) {
+                jarFile = openedJarFile;
+            } else {
+                openedJarFile.close();
+            }
+        }
+        return jarFile;
+    }
+
+    /**
+     * @return the URL of the given resource in the jar or directory with the given index, or <code>null</code> if it does not contain the resource
+     */
+    private URL findResource(final String name, final int owner) {
+        final URL url = urls[owner];
+        try {
+            final MappedJarFile mappedJarFile = mappedJarFiles.get(owner);
+            if (mappedJarFile != null) {
+                if (!mappedJarFile.containsEntry(name)) {
+                    return null;
+                }
+                return URL.of(createJarResourceUri(url, name), new MappedEntryStreamHandler(mappedJarFile, name));
+            }
+
+            final File file = toFile(url);
+            if (file.isDirectory()) {
+                final File resourceFile = new File(file, name);
+                return resourceFile.isFile() ? resourceFile.toURI().toURL() : null;
+            }
+
+            return getJarFile(owner).getJarEntry(name) == null ? null : createJarResourceUri(url, name).toURL();
+        } catch (final IOException | URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private boolean isIndexed(final String name) {
+        return packageIndex.containsKey(getDirectory(name));
+    }
+
+    private static boolean isDirectoryName(final String name) {
+        return name.isEmpty() || name.endsWith("/");
+    }
+
+    private static URI createJarResourceUri(final URL jarUrl, final String name) throws URISyntaxException {
+        // Encode the name as a path, which the leading slash keeps from being read as a scheme
+        final String encodedName = new URI(null, null, "/" + name, null).getRawPath().substring(1);
+        return new URI("jar:" + jarUrl + "!/" + encodedName);
+    }
+
+    private Map<String, List<Integer>> createPackageIndex() {
+        final Map<String, List<Integer>> index = new HashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            final File file;
+            try {
+                file = toFile(urls[i]);
+            } catch (final IOException e) {
+                continue;
+            }
+
+            try {
+                if (file.isDirectory()) {
+                    indexDirectory(file.toPath(), i, index);
+                } else if (file.isFile()) {
+                    final MappedJarFile mappedJarFile = memoryMapped ? MappedJarFile.open(file) : null;
+                    if (mappedJarFile == null) {
+                        indexJar(getJarFile(i), i, index);
+                    } else {
+                        mappedJarFiles.put(i, mappedJarFile);
+                        for (final String entryName : mappedJarFile.getEntryNames()) {
+                            addToIndex(getDirectory(entryName), i, index);
+                        }
+                    }
+                }
+            } catch (final IOException e) {
+                // The jar cannot be read by a URLClassLoader either
+            }
+        }
+        return index;
+    }
+
+    private static void indexJar(final JarFile jarFile, final int owner, final Map<String, List<Integer>> index) {
+        try (final Stream<JarEntry> entries = jarFile.versionedStream()) {
+            entries.forEach(entry -> addToIndex(getDirectory(entry.getName()), owner, index));
+        }
+    }
+
+    private static void indexDirectory(final Path root, final int owner, final Map<String, List<Integer>> index) throws IOException {
+        try (final Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                addToIndex(getDirectory(root.relativize(path).toString().replace(File.separatorChar, '/')), owner, index);
+            }
+        }
+    }
+
+    private static void addToIndex(final String directory, final int owner, final Map<String, List<Integer>> index) {
+        final List<Integer> owners = index.computeIfAbsent(directory, key -> new ArrayList<>(1));
+        if (owners.isEmpty() || owners.get(owners.size() - 1) != owner) {
+            owners.add(owner);
+        }
+    }
+
+    private static IndexedExtensionClassLoader findRootClassLoader(final ClassLoader parent) {
+        IndexedExtensionClassLoader rootClassLoader = null;
+        ClassLoader classLoader = parent;
+        while (classLoader instanceof IndexedExtensionClassLoader) {
+            rootClassLoader = (IndexedExtensionClassLoader) classLoader;
+            classLoader = classLoader.getParent();
+        }
+        return rootClassLoader;
+    }
+
+    private static File toFile(final URL url) throws IOException {
+        try {
+            return new File(url.toURI());
+        } catch (final URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("Cannot convert " + url + " to a file", e);
+        }
+    }
+
+    private static String getDirectory(final String path) {
+        final int lastSlash = path.lastIndexOf('/');
+        return lastSlash < 0 ? "" : path.substring(0, lastSlash);
+    }
+
+    private static String getPackageName(final String className) {
+        final int lastDot = className.lastIndexOf('.');
+        return lastDot < 0 ? "" : className.substring(0, lastDot);
+    }
+
+    /**
+     * Opens the URLs of resources in mapped jars as streams over the mapping, rather than through a JarURLConnection that would open
+     * the jar a second time.
+     */
+    private static class MappedEntryStreamHandler extends URLStreamHandler {
+        private final MappedJarFile mappedJarFile;
+        private final String name;
+
+        private MappedEntryStreamHandler(final MappedJarFile mappedJarFile, final String name) {
+            this.mappedJarFile = mappedJarFile;
+            this.name = name;
+        }
+
+        @Override
+        protected URLConnection openConnection(final URL url) {
+            return new MappedEntryConnection(url, mappedJarFile, name);
+        }
+    }
+
+    private static class MappedEntryConnection extends URLConnection {
+        private final MappedJarFile mappedJarFile;
+        private final String name;
+
+        private MappedEntryConnection(final URL url, final MappedJarFile mappedJarFile, final String name) {
+            super(url);
+            this.mappedJarFile = mappedJarFile;
+            this.name = name;
+        }
+
+        @Override
+        public void connect() {
+            connected = true;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            connect();
+            final InputStream in = mappedJarFile.getInputStream(name);
+            if (in == null) {
+                throw new FileNotFoundException(getURL().toString());
+            }
+            return in;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only access to the entries of a jar through a memory-mapped view of the file. The central directory is parsed once from the
+ * mapping, stored entries are returned as views of the mapping without copying, and deflated entries are inflated straight from the
+ * mapping, either into a buffer supplied by the caller or through a stream, so no stream buffers are allocated per entry. Inflaters
+ * are reused across entries, as {@link java.util.zip.ZipFile} does, until the jar is closed.
+ * <p>
+ * Only plain jars are supported. Signed jars, whose code signers must be verified, multi-release jars, whose entries depend on the
+ * runtime version, and ZIP64 archives are rejected by {@link #open(File)} so that callers can fall back to {@link java.util.jar.JarFile}.
+ * </p>
+ */
+public class MappedJarFile {
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+    private final MappedByteBuffer mapping;
+    private final Map<String, Entry> entries;
+    private final Manifest manifest;
+    private final Deque<Inflater> inflaters = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed = false;
+
+    private MappedJarFile(final MappedByteBuffer mapping, final Map<String, Entry> entries) throws IOException {
+        this.mapping = mapping;
+        this.entries = entries;
+
+        final ByteBuffer manifestBuffer = getEntry(MANIFEST_NAME);
+        if (manifestBuffer == null) {
+            this.manifest = null;
+        } else {
+            final byte[] manifestBytes = new byte[manifestBuffer.remaining()];
+            manifestBuffer.get(manifestBytes);
+            try (final InputStream in = new ByteArrayInputStream(manifestBytes)) {
+                this.manifest = new Manifest(in);
+            }
+        }
+    }
+
+    /**
+     * Maps the given jar.
+     *
+     * @param file the jar
+     * @return the mapped jar, or <code>null</code> if the jar is signed, multi-release or a ZIP64 archive
+     * @throws IOException if the jar cannot be read or is not a valid archive
+     */
+    public static MappedJarFile open(final File file) throws IOException {
+        final MappedByteBuffer mapping;
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+        final Map<String, Entry> entries = readCentralDirectory(mapping, file);
+        if (entries == null) {
+            return null;
+        }
+
+        for (final String name : entries.keySet()) {
+            if (isSignatureFile(name)) {
+                return null;
+            }
+        }
+
+        final MappedJarFile jarFile = new MappedJarFile(mapping, entries);
+        final Manifest manifest = jarFile.getManifest();
+        if (manifest != null && Boolean.parseBoolean(manifest.getMainAttributes().getValue(Attributes.Name.MULTI_RELEASE))) {
+            return null;
+        }
+        return jarFile;
+    }
+
+    /**
+     * @return the names of all entries of the jar
+     */
+    public Set<String> getEntryNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    public boolean containsEntry(final String name) {
+        return entries.containsKey(name);
+    }
+
+    public Manifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Returns the content of the given entry. Stored entries are views of the mapping, deflated entries are inflated into a new buffer.
+     *
+     * @param name the name of the entry
+     * @return a read-only buffer positioned at the start of the content, or <code>null</code> if the jar has no such entry
+     * @throws IOException if the entry cannot be read
+     */
+    public ByteBuffer getEntry(final String name) throws IOException {
+        final ByteBuffer content = getEntry(name, null);
+        return content == null ? null : content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the content of the given entry. Stored entries are views of the mapping. Deflated entries are inflated into the given
+     * buffer when it is large enough, which lets callers that copy the content anyway, such as when defining a class, reuse a single
+     * buffer for every entry.
+     *
+     * @param name the name of the entry
+     * @param buffer the buffer that deflated entries are inflated into if it is large enough, or <code>null</code> to use a new buffer
+     * @return a buffer positioned at the start of the content, which may be the given buffer, or <code>null</code> if the jar has no such entry
+     * @throws IOException if the entry cannot be read
+     */
+    public ByteBuffer getEntry(final String name, final ByteBuffer buffer) throws IOException {
+        final Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+
+        final ByteBuffer data = getData(entry, name);
+        if (entry.method == STORED) {
+            return data;
+        }
+
+        final ByteBuffer inflated = buffer != null && buffer.capacity() >= entry.size ? buffer.clear().limit(entry.size) : ByteBuffer.allocate(entry.size);
+        final Inflater inflater = acquireInflater();
+        try {
+            inflater.setInput(data);
+            while (inflated.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(inflated) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+        } catch (final DataFormatException e) {
+            throw new IOException("Invalid compressed data for entry " + name, e);
+        } finally {
+            releaseInflater(inflater);
+        }
+
+        if (inflated.hasRemaining()) {
+            throw new IOException("Truncated compressed data for entry " + name);
+        }
+        return inflated.flip();
+    }
+
+    /**
+     * Opens a stream over the content of the given entry. Deflated entries are inflated from the mapping as the stream is read, and
+     * the inflater of the stream is reused once the stream is closed.
+     *
+     * @param name the name of the entry
+     * @return a stream over the content, or <code>null</code> if the jar has no such entry
+     * @throws IOException if the entry cannot be read
+     */
+    public InputStream getInputStream(final String name) throws IOException {
+        final Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+
+        final ByteBuffer data = getData(entry, name);
+        if (entry.method == STORED) {
+            return new ByteBufferInputStream(data);
+        }
+
+        final Inflater inflater = acquireInflater();
+        inflater.setInput(data);
+        return new InflaterEntryInputStream(inflater, entry.size, name);
+    }
+
+    /**
+     * Releases the inflaters kept for reuse. The mapping itself is released once the jar is no longer referenced.
+     */
+    public void close() {
+        closed = true;
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+    }
+
+    private ByteBuffer getData(final Entry entry, final String name) throws IOException {
+        if (entry.method != STORED && entry.method != DEFLATED) {
+            throw new IOException("Unsupported compression method " + entry.method + " for entry " + name);
+        }
+
+        if (mapping.getInt(entry.localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header for entry " + name);
+        }
+        final int nameLength = Short.toUnsignedInt(mapping.getShort(entry.localHeaderOffset + 26));
+        final int extraLength = Short.toUnsignedInt(mapping.getShort(entry.localHeaderOffset + 28));
+        final int dataOffset = entry.localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+
+        return mapping.slice(dataOffset, entry.compressedSize).asReadOnlyBuffer();
+    }
+
+    private Inflater acquireInflater() {
+        final Inflater inflater = inflaters.poll();
+        return inflater == null ? new Inflater(true) : inflater;
+    }
+
+    private void releaseInflater(final Inflater inflater) {
+        if (closed) {
+            inflater.end();
+            return;
+        }
+
+        inflater.reset();
+        inflaters.push(inflater);
+        // The jar may have been closed while the inflater was released
+        if (closed) {
+            close();
+        }
+    }
+
+    private static Map<String, Entry> readCentralDirectory(final ByteBuffer mapping, final File file) throws IOException {
+        final int endOffset = findEndOfCentralDirectory(mapping, file);
+        final int entryCount = Short.toUnsignedInt(mapping.getShort(endOffset + 10));
+        final long centralDirectoryOffset = Integer.toUnsignedLong(mapping.getInt(endOffset + 16));
+        if (entryCount == 0xFFFF || centralDirectoryOffset == 0xFFFFFFFFL) {
+            // ZIP64 archive
+            return null;
+        }
+
+        final Map<String, Entry> entries = new HashMap<>(entryCount * 2);
+        int offset = (int) centralDirectoryOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (mapping.getInt(offset) != CENTRAL_DIRECTORY_SIGNATURE) {
+                throw new IOException("Invalid central directory of " + file);
+            }
+
+            final int method = Short.toUnsignedInt(mapping.getShort(offset + 10));
+            final long compressedSize = Integer.toUnsignedLong(mapping.getInt(offset + 20));
+            final long size = Integer.toUnsignedLong(mapping.getInt(offset + 24));
+            final int nameLength = Short.toUnsignedInt(mapping.getShort(offset + 28));
+            final int extraLength = Short.toUnsignedInt(mapping.getShort(offset + 30));
+            final int commentLength = Short.toUnsignedInt(mapping.getShort(offset + 32));
+            final long localHeaderOffset = Integer.toUnsignedLong(mapping.getInt(offset + 42));
+            if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                return null;
+            }
+
+            final byte[] nameBytes = new byte[nameLength];
+            mapping.get(offset + CENTRAL_DIRECTORY_HEADER_SIZE, nameBytes);
+            final String name = new String(nameBytes, StandardCharsets.UTF_8);
+            if (!name.endsWith("/")) {
+                entries.putIfAbsent(name, new Entry(method, (int) compressedSize, (int) size, (int) localHeaderOffset));
+            }
+
+            offset += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private static int findEndOfCentralDirectory(final ByteBuffer mapping, final File file) throws IOException {
+        final int lowestOffset = Math.max(0, mapping.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+        for (int offset = mapping.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; offset >= lowestOffset; offset--) {
+            if (mapping.getInt(offset) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return offset;
+            }
+        }
+        throw new IOException("Cannot find the central directory of " + file);
+    }
+
+    private static boolean isSignatureFile(final String name) {
+        if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) >= 0) {
+            return false;
+        }
+        return name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC");
+    }
+
+    private static class Entry {
+        private final int method;
+        private final int compressedSize;
+        private final int size;
+        private final int localHeaderOffset;
+
+        private Entry(final int method, final int compressedSize, final int size, final int localHeaderOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    private class InflaterEntryInputStream extends InputStream {
+        private final String name;
+        private Inflater inflater;
+        private int remaining;
+
+        private InflaterEntryInputStream(final Inflater inflater, final int size, final String name) {
+            this.inflater = inflater;
+            this.remaining = size;
+            this.name = name;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (inflater == null) {
+                throw new IOException("Stream closed");
+            }
+            if (length == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                return -1;
+            }
+
+            try {
+                int count;
+                while ((count = inflater.inflate(bytes, offset, Math.min(length, remaining))) == 0) {
+                    if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+                        throw new IOException("Truncated compressed data for entry " + name);
+                    }
+                }
+                remaining -= count;
+                return count;
+            } catch (final DataFormatException e) {
+                throw new IOException("Invalid compressed data for entry " + name, e);
+            }
+        }
+
+        @Override
+        public int available() {
+            return remaining;
+        }
+
+        @Override
+        public void close() {
+            if (inflater != null) {
+                releaseInflater(inflater);
+                inflater = null;
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
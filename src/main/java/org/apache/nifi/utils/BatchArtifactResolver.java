@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves artifacts through the Resolver API of the build's repository session, sending all of the artifacts of a call in a single
+ * request so that the Resolver can download them concurrently.
+ */
+public class BatchArtifactResolver {
+    private final RepositorySystem repositorySystem;
+    private final RepositorySystemSession repositorySession;
+    private final List<RemoteRepository> remoteRepositories;
+
+    public BatchArtifactResolver(final RepositorySystem repositorySystem, final RepositorySystemSession repositorySession, final List<RemoteRepository> remoteRepositories) {
+        this.repositorySystem = repositorySystem;
+        this.repositorySession = repositorySession;
+        this.remoteRepositories = remoteRepositories == null ? Collections.emptyList() : new ArrayList<>(remoteRepositories);
+    }
+
+    /**
+     * Resolves the files of the given artifacts that do not have one yet and sets them on the artifacts. No request is made when every
+     * artifact already has a file.
+     *
+     * @param artifacts the artifacts to resolve
+     * @throws MojoExecutionException if any of the artifacts cannot be resolved
+     */
+    public void resolveFiles(final Collection<Artifact> artifacts) throws MojoExecutionException {
+        final List<Artifact> unresolvedArtifacts = new ArrayList<>();
+        for (final Artifact artifact : artifacts) {
+            if (artifact.getFile() == null) {
+                unresolvedArtifacts.add(artifact);
+            }
+        }
+
+        if (unresolvedArtifacts.isEmpty()) {
+            return;
+        }
+
+        final List<org.eclipse.aether.artifact.Artifact> coordinates = new ArrayList<>();
+        for (final Artifact artifact : unresolvedArtifacts) {
+            coordinates.add(RepositoryUtils.toArtifact(artifact));
+        }
+
+        final List<ArtifactResult> results;
+        try {
+            results = repositorySystem.resolveArtifacts(repositorySession, createRequests(coordinates));
+        } catch (final ArtifactResolutionException e) {
+            final List<Artifact> failedArtifacts = new ArrayList<>();
+            for (int i = 0; i < unresolvedArtifacts.size(); i++) {
+                if (!isResolved(e.getResults(), i)) {
+                    failedArtifacts.add(unresolvedArtifacts.get(i));
+                }
+            }
+            throw new MojoExecutionException("Could not resolve local dependencies " + failedArtifacts, e);
+        }
+
+        for (int i = 0; i < unresolvedArtifacts.size(); i++) {
+            unresolvedArtifacts.get(i).setFile(results.get(i).getArtifact().getFile());
+        }
+    }
+
+    /**
+     * Resolves the given artifacts, tolerating failures. The result of each artifact is at the same index as the artifact, so that
+     * callers can tell which of the artifacts could not be resolved.
+     *
+     * @param coordinates the artifacts to resolve
+     * @return the resolved artifacts, in the order they were given, with <code>null</code> in place of each artifact that could not be resolved
+     */
+    public List<Artifact> resolve(final List<org.eclipse.aether.artifact.Artifact> coordinates) {
+        if (coordinates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<ArtifactResult> results;
+        try {
+            results = repositorySystem.resolveArtifacts(repositorySession, createRequests(coordinates));
+        } catch (final ArtifactResolutionException e) {
+            results = e.getResults();
+        }
+
+        final List<Artifact> resolvedArtifacts = new ArrayList<>(coordinates.size());
+        for (int i = 0; i < coordinates.size(); i++) {
+            resolvedArtifacts.add(isResolved(results, i) ? RepositoryUtils.toArtifact(results.get(i).getArtifact()) : null);
+        }
+        return resolvedArtifacts;
+    }
+
+    private List<ArtifactRequest> createRequests(final Collection<org.eclipse.aether.artifact.Artifact> coordinates) {
+        final List<ArtifactRequest> requests = new ArrayList<>(coordinates.size());
+        for (final org.eclipse.aether.artifact.Artifact coordinate : coordinates) {
+            requests.add(new ArtifactRequest(coordinate, remoteRepositories, null));
+        }
+        return requests;
+    }
+
+    private static boolean isResolved(final List<ArtifactResult> results, final int index) {
+        return results != null && index < results.size() && results.get(index).isResolved();
+    }
+}
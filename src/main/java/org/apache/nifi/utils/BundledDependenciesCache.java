@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.ProjectBuildingException;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorBuilderException;
+import org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * The dependencies bundled by NARs, shared by every module of a build that checks for duplicate dependencies. Sibling NARs are checked
+ * against the same ancestors, so the dependency graph of each ancestor is collected once per repository session. Concurrent requests
+ * for the same NAR wait for a single collection.
+ */
+public class BundledDependenciesCache {
+    private final SessionMemoizer<DuplicateDependencyDetector.BundledDependencies> bundledDependencies = new SessionMemoizer<>();
+
+    /**
+     * @param repositorySession the repository session of the build
+     * @return the cache shared by the build, or a new cache if the session cannot hold one
+     */
+    public static BundledDependenciesCache getInstance(final RepositorySystemSession repositorySession) {
+        final BundledDependenciesCache cache = SessionMemoizer.getSessionInstance(repositorySession, BundledDependenciesCache.class, BundledDependenciesCache::new);
+        return cache == null ? new BundledDependenciesCache() : cache;
+    }
+
+    /**
+     * Returns the dependencies bundled by the NAR with the given key, collecting them if they have not been collected yet. Failures
+     * are not cached.
+     *
+     * @param key the key that identifies the NAR and the remote repositories it is resolved from
+     * @param collector collects the dependencies if they are not cached
+     * @return the dependencies bundled by the NAR
+     * @throws ProjectBuildingException if the project of the NAR cannot be built
+     * @throws DependencyCollectorBuilderException if the dependency graph of the NAR cannot be collected
+     * @throws MojoExecutionException if the dependencies cannot be collected for any other reason
+     */
+    public DuplicateDependencyDetector.BundledDependencies getBundledDependencies(final String key, final BundledDependenciesCollector collector)
+            throws ProjectBuildingException, DependencyCollectorBuilderException, MojoExecutionException {
+        try {
+            return bundledDependencies.get(key, collector::collect);
+        } catch (final ProjectBuildingException | DependencyCollectorBuilderException | MojoExecutionException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new MojoExecutionException("Failed to collect the dependencies of " + key, e);
+        }
+    }
+
+    public interface BundledDependenciesCollector {
+        DuplicateDependencyDetector.BundledDependencies collect() throws ProjectBuildingException, DependencyCollectorBuilderException;
+    }
+}
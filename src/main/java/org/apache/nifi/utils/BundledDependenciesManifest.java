@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Records the dependencies that were last copied into the NAR staging directory, keyed by the name of the staged file.
+ * Each entry holds the artifact coordinates along with the size, modification time and SHA-256 digest of the source file,
+ * which allows an incremental build to copy only the artifacts that changed and to remove staged files that no longer
+ * belong to the NAR.
+ */
+public class BundledDependenciesManifest {
+    private static final String HEADER = "# Apache NiFi NAR bundled dependencies: file name, coordinates, size, last modified, SHA-256";
+    private static final String SEPARATOR = "\t";
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Map<String, Entry> entries;
+
+    private BundledDependenciesManifest(final Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static BundledDependenciesManifest empty() {
+        return new BundledDependenciesManifest(new TreeMap<>());
+    }
+
+    /**
+     * Reads the manifest from the given file. A missing or unreadable manifest results in an empty manifest, which causes every
+     * dependency to be copied again.
+     *
+     * @param file the manifest file
+     * @return the manifest that was read
+     */
+    public static BundledDependenciesManifest load(final File file) {
+        final Map<String, Entry> entries = new TreeMap<>();
+        if (!file.isFile()) {
+            return new BundledDependenciesManifest(entries);
+        }
+
+        try (final BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                final String[] fields = line.split(SEPARATOR);
+                if (fields.length != 5) {
+                    continue;
+                }
+
+                final Entry entry = new Entry(fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4]);
+                entries.put(fields[0], entry);
+            }
+        } catch (final IOException | NumberFormatException e) {
+            entries.clear();
+        }
+
+        return new BundledDependenciesManifest(entries);
+    }
+
+    public void store(final File file) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+
+        try (final BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+
+            for (final Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                final Entry entry = mapEntry.getValue();
+                writer.write(String.join(SEPARATOR, mapEntry.getKey(), entry.getCoordinates(), String.valueOf(entry.getSize()),
+                        String.valueOf(entry.getLastModified()), entry.getDigest()));
+                writer.newLine();
+            }
+        }
+    }
+
+    public Entry get(final String fileName) {
+        return entries.get(fileName);
+    }
+
+    public void put(final String fileName, final Entry entry) {
+        entries.put(fileName, entry);
+    }
+
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * Determines the staged files recorded by this manifest that the given manifest no longer records. Only these files were copied
+     * by an earlier build, so files placed in the staging directory in any other way, such as by process-resources, are never returned.
+     *
+     * @param current the manifest of the current dependencies
+     * @return the names of the files that no longer belong to the NAR
+     */
+    public Set<String> getRemovedFileNames(final BundledDependenciesManifest current) {
+        final Set<String> removedFileNames = new TreeSet<>(entries.keySet());
+        removedFileNames.removeAll(current.entries.keySet());
+        return removedFileNames;
+    }
+
+    /**
+     * Creates the manifest entry for the given source file, reusing the digest of the previous entry when the size and modification
+     * time of the file have not changed.
+     *
+     * @param coordinates the coordinates of the artifact that the file belongs to
+     * @param source the source file of the artifact
+     * @param previous the previous entry for the same staged file, or <code>null</code>
+     * @return the entry describing the source file
+     * @throws IOException if the file cannot be read
+     */
+    public static Entry createEntry(final String coordinates, final File source, final Entry previous) throws IOException {
+        final long size = source.length();
+        final long lastModified = source.lastModified();
+
+        if (previous != null && previous.getSize() == size && previous.getLastModified() == lastModified) {
+            return new Entry(coordinates, size, lastModified, previous.getDigest());
+        }
+
+        return new Entry(coordinates, size, lastModified, digest(source));
+    }
+
+    private static String digest(final File file) throws IOException {
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not supported", e);
+        }
+
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                messageDigest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    public static class Entry {
+        private final String coordinates;
+        private final long size;
+        private final long lastModified;
+        private final String digest;
+
+        public Entry(final String coordinates, final long size, final long lastModified, final String digest) {
+            this.coordinates = coordinates;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        public String getCoordinates() {
+            return coordinates;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        /**
+         * @param other the entry to compare to
+         * @return <code>true</code> if both entries describe the same artifact content
+         */
+        public boolean isSameContent(final Entry other) {
+            return other != null && coordinates.equals(other.coordinates) && size == other.size && digest.equals(other.digest);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import java.util.Arrays;
+
+/**
+ * An index of classes keyed by the 64-bit hashes of their names. The table is open-addressed over primitive arrays and every entry is
+ * stored in parallel arrays, so indexing hundreds of thousands of classes creates no objects per class beyond the class names that
+ * are needed to confirm a match. Entries with the same name hash are chained in the order they were added.
+ */
+class ClassIndex {
+    private static final int NO_ENTRY = -1;
+
+    private long[] tableHashes = new long[1024];
+    private int[] tableEntries = filled(1024);
+    private int tableSize;
+
+    private long[] digests = new long[1024];
+    private int[] jars = new int[1024];
+    private int[] nextEntries = new int[1024];
+    private String[] names = new String[1024];
+    private int entryCount;
+
+    /**
+     * Adds a class.
+     *
+     * @param nameHash the hash of the class name, as computed by {@link #hash(String)}
+     * @param name the class name
+     * @param digest the digest of the class file content
+     * @param jar the index of the jar that holds the class
+     */
+    void add(final long nameHash, final String name, final long digest, final int jar) {
+        if (entryCount == names.length) {
+            final int capacity = entryCount * 2;
+            digests = Arrays.copyOf(digests, capacity);
+            jars = Arrays.copyOf(jars, capacity);
+            nextEntries = Arrays.copyOf(nextEntries, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+
+        final int entry = entryCount++;
+        digests[entry] = digest;
+        jars[entry] = jar;
+        names[entry] = name;
+        nextEntries[entry] = NO_ENTRY;
+
+        final int slot = findSlot(nameHash);
+        if (tableEntries[slot] == NO_ENTRY) {
+            tableHashes[slot] = nameHash;
+            tableEntries[slot] = entry;
+            if (++tableSize * 2 > tableHashes.length) {
+                resize();
+            }
+        } else {
+            int last = tableEntries[slot];
+            while (nextEntries[last] != NO_ENTRY) {
+                last = nextEntries[last];
+            }
+            nextEntries[last] = entry;
+        }
+    }
+
+    /**
+     * @param nameHash the hash of a class name
+     * @return the first entry with the given name hash, or a negative value if there is none
+     */
+    int first(final long nameHash) {
+        return tableEntries[findSlot(nameHash)];
+    }
+
+    /**
+     * @param entry an entry
+     * @return the next entry with the same name hash, or a negative value if there is none
+     */
+    int next(final int entry) {
+        return nextEntries[entry];
+    }
+
+    String getName(final int entry) {
+        return names[entry];
+    }
+
+    long getDigest(final int entry) {
+        return digests[entry];
+    }
+
+    int getJar(final int entry) {
+        return jars[entry];
+    }
+
+    /**
+     * @param name a class name
+     * @return the 64-bit FNV-1a hash of the name
+     */
+    static long hash(final String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private int findSlot(final long nameHash) {
+        final int mask = tableHashes.length - 1;
+        int slot = mix(nameHash) & mask;
+        while (tableEntries[slot] != NO_ENTRY && tableHashes[slot] != nameHash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        final long[] oldHashes = tableHashes;
+        final int[] oldEntries = tableEntries;
+        tableHashes = new long[oldHashes.length * 2];
+        tableEntries = filled(oldHashes.length * 2);
+
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldEntries[i] != NO_ENTRY) {
+                final int slot = findSlot(oldHashes[i]);
+                tableHashes[slot] = oldHashes[i];
+                tableEntries[slot] = oldEntries[i];
+            }
+        }
+    }
+
+    private static int mix(final long hash) {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static int[] filled(final int length) {
+        final int[] array = new int[length];
+        Arrays.fill(array, NO_ENTRY);
+        return array;
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Finds the classes that a NAR bundles although a NAR of its Nar-Dependency chain already provides them, and the packages that are
+ * split between the NAR and its chain. Copies of a library shaded without relocation arrive in jars with other coordinates, so they
+ * are only visible at the level of classes. Classes are matched by name, so relocated copies are not found.
+ * <p>
+ * Classes are identified by the hashes of their names and compared by a digest of their content made of the CRC-32 and size that zip
+ * archives already record for every entry, so jars on disk are scanned from their central directories without inflating any class.
+ * The classes of the NAR chain are kept in a {@link ClassIndex}, which holds them in primitive arrays.
+ * </p>
+ */
+public class DuplicateClassDetector {
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String META_INF_PATH = "META-INF/";
+    private static final String BUNDLED_DEPENDENCIES_PATH = "META-INF/bundled-dependencies/";
+
+    private final ClassIndex providedClasses = new ClassIndex();
+    private final List<String> providedJars = new ArrayList<>();
+    private final Map<String, Set<String>> providedPackages = new HashMap<>();
+
+    /**
+     * Scans the classes of the given jar.
+     *
+     * @param name the name of the jar in reports
+     * @param jarFile the jar
+     * @return the classes of the jar
+     * @throws IOException if the jar cannot be read
+     */
+    public static JarClasses scanJar(final String name, final File jarFile) throws IOException {
+        final JarClasses classes = new JarClasses(name);
+        try (final ZipFile zipFile = new ZipFile(jarFile)) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (isClass(entry)) {
+                    classes.add(entry.getName(), entry.getCrc(), entry.getSize());
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Scans the classes of the jars bundled in the given NAR.
+     *
+     * @param name the name of the NAR in reports
+     * @param narFile the NAR
+     * @return the classes of each bundled jar, in the order of the NAR
+     * @throws IOException if the NAR cannot be read
+     */
+    public static List<JarClasses> scanNar(final String name, final File narFile) throws IOException {
+        final List<JarClasses> jars = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(narFile)) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final String entryName = entry.getName();
+                if (entry.isDirectory() || !entryName.startsWith(BUNDLED_DEPENDENCIES_PATH) || !entryName.endsWith(JAR_SUFFIX)) {
+                    continue;
+                }
+
+                try (final InputStream in = zipFile.getInputStream(entry)) {
+                    jars.add(scanJar(name + "!/" + entryName.substring(BUNDLED_DEPENDENCIES_PATH.length()), in));
+                }
+            }
+        }
+        return jars;
+    }
+
+    /**
+     * Scans the classes of a jar that is read as a stream, such as a jar nested in a NAR. Entries whose CRC-32 and size are not known
+     * up front are read to compute them.
+     */
+    static JarClasses scanJar(final String name, final InputStream in) throws IOException {
+        final JarClasses classes = new JarClasses(name);
+        final ZipInputStream zipIn = new ZipInputStream(in);
+        final byte[] buffer = new byte[8192];
+
+        ZipEntry entry;
+        while ((entry = zipIn.getNextEntry()) != null) {
+            if (!isClass(entry)) {
+                continue;
+            }
+
+            long crc = entry.getCrc();
+            long size = entry.getSize();
+            if (crc == -1 || size == -1) {
+                final CRC32 checksum = new CRC32();
+                size = 0;
+                int read;
+                while ((read = zipIn.read(buffer)) != -1) {
+                    checksum.update(buffer, 0, read);
+                    size += read;
+                }
+                crc = checksum.getValue();
+            }
+            classes.add(entry.getName(), crc, size);
+        }
+        return classes;
+    }
+
+    /**
+     * Adds the classes of a jar provided by the NAR chain. The jars of the nearest NAR are expected first, so that duplicates are
+     * reported against the copy nearest to the NAR.
+     *
+     * @param jar the classes of the jar
+     */
+    public void addProvided(final JarClasses jar) {
+        final int jarIndex = providedJars.size();
+        providedJars.add(jar.getName());
+
+        for (int i = 0; i < jar.classCount; i++) {
+            providedClasses.add(jar.nameHashes[i], jar.classNames[i], jar.digests[i], jarIndex);
+        }
+        for (final String packagePath : jar.packages) {
+            providedPackages.computeIfAbsent(packagePath, key -> new LinkedHashSet<>()).add(jar.getName());
+        }
+    }
+
+    /**
+     * Checks the jars bundled by the NAR against the classes provided by its chain.
+     *
+     * @param bundledJars the classes of the jars bundled by the NAR
+     * @return the duplicate classes and split packages
+     */
+    public Report check(final List<JarClasses> bundledJars) {
+        final Map<Long, DuplicateClasses> duplicateClasses = new LinkedHashMap<>();
+        final Map<String, SplitPackage> splitPackages = new TreeMap<>();
+
+        for (int jarIndex = 0; jarIndex < bundledJars.size(); jarIndex++) {
+            final JarClasses jar = bundledJars.get(jarIndex);
+            final boolean[] packagesWithOwnClasses = new boolean[jar.packages.size()];
+
+            for (int i = 0; i < jar.classCount; i++) {
+                final int entry = findProvided(jar.nameHashes[i], jar.classNames[i]);
+                if (entry < 0) {
+                    if (jar.classPackages[i] >= 0) {
+                        packagesWithOwnClasses[jar.classPackages[i]] = true;
+                    }
+                    continue;
+                }
+
+                final int providedJar = providedClasses.getJar(entry);
+                final long key = ((long) jarIndex << 32) | providedJar;
+                duplicateClasses.computeIfAbsent(key, k -> new DuplicateClasses(jar.getName(), providedJars.get(providedJar)))
+                        .add(jar.classNames[i], jar.sizes[i], jar.digests[i] == providedClasses.getDigest(entry));
+            }
+
+            for (int i = 0; i < packagesWithOwnClasses.length; i++) {
+                final String packagePath = jar.packages.get(i);
+                final Set<String> providingJars = providedPackages.get(packagePath);
+                if (packagesWithOwnClasses[i] && providingJars != null) {
+                    splitPackages.computeIfAbsent(packagePath, key -> new SplitPackage(key.replace('/', '.'), providingJars)).bundledJars.add(jar.getName());
+                }
+            }
+        }
+
+        return new Report(new ArrayList<>(duplicateClasses.values()), new ArrayList<>(splitPackages.values()));
+    }
+
+    private int findProvided(final long nameHash, final String className) {
+        for (int entry = providedClasses.first(nameHash); entry >= 0; entry = providedClasses.next(entry)) {
+            if (providedClasses.getName(entry).equals(className)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isClass(final ZipEntry entry) {
+        final String name = entry.getName();
+        // Multi-release variants and module descriptors are not loaded as classes of their own
+        return !entry.isDirectory() && name.endsWith(CLASS_SUFFIX) && !name.startsWith(META_INF_PATH) && !name.endsWith("module-info.class");
+    }
+
+    private static String toClassName(final String entryName) {
+        return entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()).replace('/', '.');
+    }
+
+    /**
+     * The classes of a single jar.
+     */
+    public static class JarClasses {
+        private final String name;
+        // Packages are kept in the form of entry paths, such as org/apache/nifi
+        private final List<String> packages = new ArrayList<>();
+        private final Map<String, Integer> packageIndexes = new HashMap<>();
+        private long[] nameHashes = new long[64];
+        private long[] digests = new long[64];
+        private int[] sizes = new int[64];
+        private int[] classPackages = new int[64];
+        private String[] classNames = new String[64];
+        private int classCount;
+
+        private JarClasses(final String name) {
+            this.name = name;
+        }
+
+        private void add(final String entryName, final long crc, final long size) {
+            if (classCount == classNames.length) {
+                final int capacity = classCount * 2;
+                nameHashes = Arrays.copyOf(nameHashes, capacity);
+                digests = Arrays.copyOf(digests, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                classPackages = Arrays.copyOf(classPackages, capacity);
+                classNames = Arrays.copyOf(classNames, capacity);
+            }
+
+            nameHashes[classCount] = ClassIndex.hash(entryName);
+            digests[classCount] = (crc << 32) | (size & 0xFFFFFFFFL);
+            sizes[classCount] = (int) size;
+            classPackages[classCount] = getPackageIndex(entryName);
+            classNames[classCount] = entryName;
+            classCount++;
+        }
+
+        private int getPackageIndex(final String entryName) {
+            final int lastSlash = entryName.lastIndexOf('/');
+            if (lastSlash < 0) {
+                return -1;
+            }
+
+            // Entries of a package are usually stored together, so most lookups match the last package without creating a string
+            final int last = packages.size() - 1;
+            if (last >= 0 && packages.get(last).length() == lastSlash && entryName.regionMatches(0, packages.get(last), 0, lastSlash)) {
+                return last;
+            }
+
+            final String packagePath = entryName.substring(0, lastSlash);
+            final Integer index = packageIndexes.get(packagePath);
+            if (index != null) {
+                return index;
+            }
+            packages.add(packagePath);
+            packageIndexes.put(packagePath, packages.size() - 1);
+            return packages.size() - 1;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getClassCount() {
+            return classCount;
+        }
+    }
+
+    /**
+     * The classes of a bundled jar that a jar of the NAR chain already provides.
+     */
+    public static class DuplicateClasses {
+        private final String bundledJar;
+        private final String providedJar;
+        private final List<String> classNames = new ArrayList<>();
+        private int identicalClassCount;
+        private long wastedBytes;
+
+        private DuplicateClasses(final String bundledJar, final String providedJar) {
+            this.bundledJar = bundledJar;
+            this.providedJar = providedJar;
+        }
+
+        private void add(final String entryName, final int size, final boolean identical) {
+            classNames.add(toClassName(entryName));
+            wastedBytes += size;
+            if (identical) {
+                identicalClassCount++;
+            }
+        }
+
+        public String getBundledJar() {
+            return bundledJar;
+        }
+
+        public String getProvidedJar() {
+            return providedJar;
+        }
+
+        public List<String> getClassNames() {
+            return Collections.unmodifiableList(classNames);
+        }
+
+        /**
+         * @return the number of duplicate classes whose content is identical to the provided copy; the others differ and the provided
+         *         copy is the one that is loaded
+         */
+        public int getIdenticalClassCount() {
+            return identicalClassCount;
+        }
+
+        /**
+         * @return the size of the duplicate class files in the bundled jar
+         */
+        public long getWastedBytes() {
+            return wastedBytes;
+        }
+    }
+
+    /**
+     * A package with classes of its own in jars bundled by the NAR as well as in jars of the NAR chain.
+     */
+    public static class SplitPackage {
+        private final String packageName;
+        private final Set<String> bundledJars = new TreeSet<>();
+        private final Set<String> providedJars;
+
+        private SplitPackage(final String packageName, final Set<String> providedJars) {
+            this.packageName = packageName;
+            this.providedJars = providedJars;
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        public Set<String> getBundledJars() {
+            return Collections.unmodifiableSet(bundledJars);
+        }
+
+        public Set<String> getProvidedJars() {
+            return Collections.unmodifiableSet(providedJars);
+        }
+    }
+
+    /**
+     * The outcome of checking the jars of a NAR.
+     */
+    public static class Report {
+        private final List<DuplicateClasses> duplicateClasses;
+        private final List<SplitPackage> splitPackages;
+
+        private Report(final List<DuplicateClasses> duplicateClasses, final List<SplitPackage> splitPackages) {
+            this.duplicateClasses = duplicateClasses;
+            this.splitPackages = splitPackages;
+        }
+
+        /**
+         * @return the duplicate classes, grouped by bundled and provided jar
+         */
+        public List<DuplicateClasses> getDuplicateClasses() {
+            return Collections.unmodifiableList(duplicateClasses);
+        }
+
+        public List<SplitPackage> getSplitPackages() {
+            return Collections.unmodifiableList(splitPackages);
+        }
+
+        public int getDuplicateClassCount() {
+            int count = 0;
+            for (final DuplicateClasses duplicates : duplicateClasses) {
+                count += duplicates.classNames.size();
+            }
+            return count;
+        }
+
+        public long getWastedBytes() {
+            long wastedBytes = 0;
+            for (final DuplicateClasses duplicates : duplicateClasses) {
+                wastedBytes += duplicates.wastedBytes;
+            }
+            return wastedBytes;
+        }
+
+        public boolean isEmpty() {
+            return duplicateClasses.isEmpty() && splitPackages.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.traversal.DependencyNodeVisitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the compile-scope dependencies of a NAR that are already provided by the NARs it depends on.
+ * <p>
+ * The dependency graphs of the NAR and of each of its NAR dependencies are indexed once into {@link BundledDependencies}, which the
+ * NARs of a build that share ancestors can share as well. Every node of a walk is recorded as a {@link PathNode} that only points at its parent,
+ * so no walk copies the path leading to a node; a path is only turned into a list when a duplicate is reported. The indexes are keyed
+ * by the artifacts of the graphs themselves: artifacts are equal when their coordinates are, and hashing them builds no strings, so every
+ * occurrence of the same coordinates maps to a single entry. Indexing and checking therefore take time and memory linear in the size of
+ * the graphs.
+ * </p>
+ */
+public class DuplicateDependencyDetector {
+    private final DependencyNode root;
+    private final BundledDependencies bundledDependencies;
+    private final Map<Artifact, List<Duplicate>> duplicates = new LinkedHashMap<>();
+
+    /**
+     * Indexes the compile-scope dependencies that the given NAR bundles, without those it inherits from the NARs it depends on.
+     *
+     * @param root the root of the dependency graph of the NAR
+     */
+    public DuplicateDependencyDetector(final DependencyNode root) {
+        this.root = root;
+        this.bundledDependencies = index(root, false);
+    }
+
+    /**
+     * Indexes the compile-scope dependencies that the NAR at the root of the given graph bundles, so that NARs depending on it can be
+     * checked against them.
+     *
+     * @param narRoot the root of the dependency graph of a NAR, collected from its own project
+     * @return the dependencies bundled by the NAR
+     */
+    public static BundledDependencies getBundledDependencies(final DependencyNode narRoot) {
+        return index(narRoot, true);
+    }
+
+    /**
+     * Reports every compile-scope dependency that the NAR bundles although the given NAR dependency already bundles it.
+     *
+     * @param narDependency the dependencies bundled by a NAR that the NAR depends on, directly or through other NARs
+     */
+    public void check(final BundledDependencies narDependency) {
+        for (final Map.Entry<Artifact, PathNode> entry : bundledDependencies.paths.entrySet()) {
+            final PathNode providedPath = narDependency.paths.get(entry.getKey());
+            if (providedPath != null) {
+                final Artifact artifact = providedPath.artifact;
+                duplicates.computeIfAbsent(artifact, key -> new ArrayList<>()).add(new Duplicate(artifact, entry.getValue().toList(), providedPath.toList()));
+            }
+        }
+    }
+
+    /**
+     * @return the root of the dependency graph of the NAR
+     */
+    public DependencyNode getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the duplicates found so far, grouped by the artifact that is duplicated, in the order in which they were found
+     */
+    public Map<Artifact, List<Duplicate>> getDuplicates() {
+        return Collections.unmodifiableMap(duplicates);
+    }
+
+    private static BundledDependencies index(final DependencyNode narRoot, final boolean includeRoot) {
+        final Map<Artifact, PathNode> paths = new LinkedHashMap<>();
+        final Artifact[] narDependency = new Artifact[1];
+        final int childDepth = includeRoot ? 1 : 0;
+
+        narRoot.accept(new PathVisitor(includeRoot ? null : narRoot) {
+            @Override
+            protected boolean visit(final DependencyNode node, final PathNode path) {
+                if (node == narRoot) {
+                    return true;
+                }
+
+                // The dependencies of NARs are bundled by those NARs, so only the NAR itself is of interest
+                final Artifact artifact = node.getArtifact();
+                if (NarDependencyUtils.NAR.equals(artifact.getType())) {
+                    if (narDependency[0] == null && path.depth == childDepth) {
+                        narDependency[0] = artifact;
+                    }
+                    return false;
+                }
+
+                if (NarDependencyUtils.COMPILE_STRING.equals(artifact.getScope())) {
+                    paths.put(artifact, path);
+                    return true;
+                }
+                return false;
+            }
+        });
+
+        return new BundledDependencies(narRoot.getArtifact(), narDependency[0], paths);
+    }
+
+    /**
+     * The compile-scope dependencies that a NAR bundles, along with the paths through which its dependency graph reaches them.
+     */
+    public static class BundledDependencies {
+        private final Artifact narArtifact;
+        private final Artifact narDependency;
+        private final Map<Artifact, PathNode> paths;
+
+        private BundledDependencies(final Artifact narArtifact, final Artifact narDependency, final Map<Artifact, PathNode> paths) {
+            this.narArtifact = narArtifact;
+            this.narDependency = narDependency;
+            this.paths = paths;
+        }
+
+        /**
+         * @return the NAR that bundles the dependencies
+         */
+        public Artifact getNarArtifact() {
+            return narArtifact;
+        }
+
+        /**
+         * @return the NAR that the NAR depends on, or <code>null</code> if it is at the top of its chain
+         */
+        public Artifact getNarDependency() {
+            return narDependency;
+        }
+
+        /**
+         * @return the number of bundled dependencies
+         */
+        public int size() {
+            return paths.size();
+        }
+    }
+
+    /**
+     * A compile-scope dependency that the NAR bundles although a NAR it depends on already bundles it.
+     */
+    public static class Duplicate {
+        private final Artifact artifact;
+        private final List<Artifact> bundledPath;
+        private final List<Artifact> providedPath;
+
+        private Duplicate(final Artifact artifact, final List<Artifact> bundledPath, final List<Artifact> providedPath) {
+            this.artifact = artifact;
+            this.bundledPath = bundledPath;
+            this.providedPath = providedPath;
+        }
+
+        /**
+         * @return the artifact as it is bundled by the NAR dependency
+         */
+        public Artifact getArtifact() {
+            return artifact;
+        }
+
+        /**
+         * @return the artifacts leading from the NAR to the bundled copy, excluding the NAR itself
+         */
+        public List<Artifact> getBundledPath() {
+            return bundledPath;
+        }
+
+        /**
+         * @return the artifacts leading from the NAR dependency to the copy it bundles, including the NAR dependency
+         */
+        public List<Artifact> getProvidedPath() {
+            return providedPath;
+        }
+    }
+
+    /**
+     * A node of a walk that only knows its parent, so that the path leading to it costs nothing unless it is needed.
+     */
+    private static class PathNode {
+        private final Artifact artifact;
+        private final PathNode parent;
+        private final int depth;
+
+        private PathNode(final Artifact artifact, final PathNode parent) {
+            this.artifact = artifact;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        private List<Artifact> toList() {
+            final Artifact[] artifacts = new Artifact[depth + 1];
+            for (PathNode node = this; node != null; node = node.parent) {
+                artifacts[node.depth] = node.artifact;
+            }
+            return Arrays.asList(artifacts);
+        }
+    }
+
+    /**
+     * Tracks the path of the node being visited, leaving out the given root of the walk.
+     */
+    private abstract static class PathVisitor implements DependencyNodeVisitor {
+        private final DependencyNode excludedRoot;
+        private PathNode current;
+
+        private PathVisitor(final DependencyNode excludedRoot) {
+            this.excludedRoot = excludedRoot;
+        }
+
+        @Override
+        public boolean visit(final DependencyNode node) {
+            if (node == excludedRoot) {
+                return true;
+            }
+
+            current = new PathNode(node.getArtifact(), current);
+            return visit(node, current);
+        }
+
+        @Override
+        public boolean endVisit(final DependencyNode node) {
+            if (node != excludedRoot) {
+                current = current.parent;
+            }
+            return true;
+        }
+
+        protected abstract boolean visit(DependencyNode node, PathNode path);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Strategies for placing a file from the local repository into the NAR staging directory. Each strategy falls back to the
+ * next cheaper-to-support strategy when the file system does not allow it: {@link #LINK} falls back to {@link #CLONE},
+ * which falls back to {@link #TRANSFER}. {@link #COPY} is the historical byte copy and has no fallback.
+ */
+public enum FileCopyStrategy {
+
+    /**
+     * Copies the file through the channel's {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * allowing the kernel to copy the bytes without passing them through the JVM heap.
+     */
+    TRANSFER(null) {
+        @Override
+        protected void copyFile(final Path source, final Path target) throws IOException {
+            try (final FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 final FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+
+            Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+        }
+    },
+
+    /**
+     * Copies the file with {@link Files#copy(Path, Path, java.nio.file.CopyOption...)}, which the JDK delegates to the operating
+     * system's copy facilities. On copy-on-write file systems such as Btrfs, XFS and APFS this produces a reflink that shares
+     * the underlying blocks with the source.
+     */
+    CLONE(TRANSFER) {
+        @Override
+        protected void copyFile(final Path source, final Path target) throws IOException {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    },
+
+    /**
+     * Creates a hard link to the source file. This requires the source and the target to be on the same file system.
+     */
+    LINK(CLONE) {
+        @Override
+        protected void copyFile(final Path source, final Path target) throws IOException {
+            Files.deleteIfExists(target);
+            Files.createLink(target, source);
+        }
+    },
+
+    /**
+     * Copies the file with the Plexus {@link FileUtils}, as the plugin has always done.
+     */
+    COPY(null) {
+        @Override
+        protected void copyFile(final Path source, final Path target) throws IOException {
+            FileUtils.copyFile(source.toFile(), target.toFile());
+        }
+    };
+
+    private final FileCopyStrategy fallback;
+
+    FileCopyStrategy(final FileCopyStrategy fallback) {
+        this.fallback = fallback;
+    }
+
+    protected abstract void copyFile(Path source, Path target) throws IOException;
+
+    /**
+     * Copies the source file to the target file, falling back to the next strategy if this one is not supported.
+     *
+     * @param source the file to copy
+     * @param target the destination of the copy
+     * @return the strategy that copied the file
+     * @throws IOException if the file could not be copied by this strategy or any of its fallbacks
+     */
+    public FileCopyStrategy copy(final File source, final File target) throws IOException {
+        final Path sourcePath = source.toPath();
+        final Path targetPath = target.toPath();
+
+        final Path parent = targetPath.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        // A target that was previously linked to the source must be unlinked; writing into it would overwrite the source
+        if (Files.exists(targetPath) && Files.isSameFile(sourcePath, targetPath)) {
+            Files.delete(targetPath);
+        }
+
+        try {
+            copyFile(sourcePath, targetPath);
+            return this;
+        } catch (final IOException | UnsupportedOperationException e) {
+            if (fallback == null) {
+                throw e;
+            }
+
+            return fallback.copy(source, target);
+        }
+    }
+}
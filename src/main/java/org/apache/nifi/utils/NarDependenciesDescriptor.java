@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.ArtifactHandler;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Describes the dependency graph of a NAR: its coordinates, the coordinates of its parent NAR, its NiFi API version and every artifact
+ * of the graph. The descriptor is attached to the NAR with the classifier <code>nar-dependencies</code>, which allows the builds of
+ * child NARs to read the artifacts of the NAR from a single small file instead of building its project and dependency graph, to find
+ * the parent NAR without opening the manifest of the NAR, and to find the NiFi API version without searching the graph for it.
+ */
+public class NarDependenciesDescriptor {
+    public static final String CLASSIFIER = "nar-dependencies";
+    public static final String EXTENSION = "txt";
+
+    private static final String HEADER = "# Apache NiFi NAR dependencies";
+    private static final String SEPARATOR = "\t";
+
+    private final String coordinates;
+    private final String parentCoordinates;
+    private final String nifiApiVersion;
+    private final Set<Artifact> artifacts;
+
+    private NarDependenciesDescriptor(final String coordinates, final String parentCoordinates, final String nifiApiVersion, final Set<Artifact> artifacts) {
+        this.coordinates = coordinates;
+        this.parentCoordinates = parentCoordinates;
+        this.nifiApiVersion = nifiApiVersion;
+        this.artifacts = artifacts;
+    }
+
+    /**
+     * Creates the descriptor of the given NAR from the artifacts of its dependency graph.
+     *
+     * @param narArtifact the NAR
+     * @param graphArtifacts the artifacts of the dependency graph of the NAR, which may include the NAR itself
+     * @return the descriptor of the NAR
+     */
+    public static NarDependenciesDescriptor create(final Artifact narArtifact, final Set<Artifact> graphArtifacts) {
+        final Set<Artifact> artifacts = new TreeSet<>();
+        String parentCoordinates = null;
+        String nifiApiVersion = null;
+        for (final Artifact artifact : graphArtifacts) {
+            if (getCoordinates(artifact).equals(getCoordinates(narArtifact))) {
+                continue;
+            }
+
+            artifacts.add(artifact);
+            if (parentCoordinates == null && "nar".equals(artifact.getType())) {
+                parentCoordinates = getCoordinates(artifact);
+            }
+            if ("org.apache.nifi".equals(artifact.getGroupId()) && "nifi-api".equals(artifact.getArtifactId())) {
+                nifiApiVersion = artifact.getVersion();
+            }
+        }
+
+        return new NarDependenciesDescriptor(getCoordinates(narArtifact), parentCoordinates, nifiApiVersion, artifacts);
+    }
+
+    /**
+     * Reads the descriptor from the given file.
+     *
+     * @param file the descriptor file
+     * @param artifactHandlerManager provides the handlers of the artifacts that are read
+     * @return the descriptor that was read
+     * @throws IOException if the file cannot be read or is not a valid descriptor
+     */
+    public static NarDependenciesDescriptor load(final File file, final ArtifactHandlerManager artifactHandlerManager) throws IOException {
+        String coordinates = null;
+        String parentCoordinates = null;
+        String nifiApiVersion = null;
+        final Set<Artifact> artifacts = new TreeSet<>();
+
+        try (final BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                final String[] fields = line.split(SEPARATOR, -1);
+                switch (fields[0]) {
+                    case "nar":
+                        coordinates = fields[1];
+                        break;
+                    case "parent":
+                        parentCoordinates = toValue(fields[1]);
+                        if (parentCoordinates != null && parentCoordinates.split(":", -1).length != 3) {
+                            throw new IOException("Invalid parent NAR coordinates " + parentCoordinates);
+                        }
+                        break;
+                    case "nifiApiVersion":
+                        nifiApiVersion = toValue(fields[1]);
+                        break;
+                    case "artifact":
+                        artifacts.add(createArtifact(fields, artifactHandlerManager));
+                        break;
+                    default:
+                        throw new IOException("Unexpected descriptor entry " + fields[0]);
+                }
+            }
+        } catch (final RuntimeException e) {
+            throw new IOException("Invalid NAR dependencies descriptor " + file, e);
+        }
+
+        if (coordinates == null) {
+            throw new IOException("NAR dependencies descriptor " + file + " does not identify its NAR");
+        }
+
+        return new NarDependenciesDescriptor(coordinates, parentCoordinates, nifiApiVersion, artifacts);
+    }
+
+    public void store(final File file) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+
+        try (final BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writeLine(writer, "nar", coordinates);
+            writeLine(writer, "parent", toField(parentCoordinates));
+            writeLine(writer, "nifiApiVersion", toField(nifiApiVersion));
+            for (final Artifact artifact : artifacts) {
+                writeLine(writer, "artifact", artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), toField(artifact.getScope()),
+                        artifact.getType(), toField(artifact.getClassifier()), String.valueOf(artifact.isOptional()));
+            }
+        }
+    }
+
+    /**
+     * @return the coordinates of the NAR as <code>groupId:artifactId:version</code>, using the base version of SNAPSHOTs
+     */
+    public String getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * @return the coordinates of the parent NAR, or <code>null</code> if the NAR has no parent
+     */
+    public String getParentCoordinates() {
+        return parentCoordinates;
+    }
+
+    /**
+     * @param narHandler the handler of NAR artifacts
+     * @return the parent NAR, or <code>null</code> if the NAR has no parent
+     */
+    public Artifact getParentArtifact(final ArtifactHandler narHandler) {
+        if (parentCoordinates == null) {
+            return null;
+        }
+
+        final String[] fields = parentCoordinates.split(":", -1);
+        return new DefaultArtifact(fields[0], fields[1], fields[2], NarDependencyUtils.COMPILE_STRING, NarDependencyUtils.NAR, null, narHandler);
+    }
+
+    /**
+     * @return the version of the NiFi API in the dependency graph of the NAR, or <code>null</code> if it is not part of the graph
+     */
+    public String getNifiApiVersion() {
+        return nifiApiVersion;
+    }
+
+    /**
+     * @return the artifacts of the dependency graph of the NAR, not including the NAR itself
+     */
+    public Set<Artifact> getArtifacts() {
+        return Collections.unmodifiableSet(artifacts);
+    }
+
+    /**
+     * @return <code>true</code> if this descriptor describes the given artifact
+     */
+    public boolean describes(final Artifact artifact) {
+        return coordinates.equals(getCoordinates(artifact));
+    }
+
+    private static Artifact createArtifact(final String[] fields, final ArtifactHandlerManager artifactHandlerManager) {
+        final String type = fields[5];
+        final Artifact artifact = new DefaultArtifact(fields[1], fields[2], fields[3], toValue(fields[4]), type, toValue(fields[6]),
+                artifactHandlerManager.getArtifactHandler(type));
+        artifact.setOptional(Boolean.parseBoolean(fields[7]));
+        return artifact;
+    }
+
+    private static String getCoordinates(final Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getBaseVersion();
+    }
+
+    private static void writeLine(final BufferedWriter writer, final String... fields) throws IOException {
+        writer.write(String.join(SEPARATOR, fields));
+        writer.newLine();
+    }
+
+    private static String toField(final String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String toValue(final String field) {
+        return field.isEmpty() ? null : field;
+    }
+}
@@ -17,6 +17,7 @@
 package org.apache.nifi.utils;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.ArtifactHandler;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -26,13 +27,22 @@ import org.apache.maven.project.ProjectBuildingException;
 import org.apache.maven.project.ProjectBuildingRequest;
 import org.apache.maven.project.ProjectBuildingResult;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 public class NarDependencyUtils {
     public static final String NAR = "nar";
     public static final String COMPILE_STRING = "compile";
 
+    private static final String NAR_DEPENDENCY_GROUP = "Nar-Dependency-Group";
+    private static final String NAR_DEPENDENCY_ID = "Nar-Dependency-Id";
+    private static final String NAR_DEPENDENCY_VERSION = "Nar-Dependency-Version";
+
     public static Map<String, ArtifactHandler> createNarHandlerMap(ProjectBuildingRequest narRequest, MavenProject project, ProjectBuilder projectBuilder) throws ProjectBuildingException {
 
         final Artifact projectArtifact = project.getArtifact();
@@ -69,6 +79,38 @@ public class NarDependencyUtils {
         }
     }
 
+    /**
+     * Reads the NAR that the given NAR depends on from the <code>Nar-Dependency</code> entries of its manifest.
+     *
+     * @param narFile the NAR
+     * @param narHandler the handler for the returned artifact
+     * @return the NAR dependency, or <code>null</code> if the NAR does not exist or does not depend on another NAR
+     * @throws IOException if the NAR cannot be read
+     */
+    public static Artifact getNarDependency(final File narFile, final ArtifactHandler narHandler) throws IOException {
+        if (narFile == null || !narFile.isFile()) {
+            return null;
+        }
+
+        final Manifest manifest;
+        try (final JarFile jarFile = new JarFile(narFile)) {
+            manifest = jarFile.getManifest();
+        }
+        if (manifest == null) {
+            return null;
+        }
+
+        final Attributes attributes = manifest.getMainAttributes();
+        final String groupId = attributes.getValue(NAR_DEPENDENCY_GROUP);
+        final String artifactId = attributes.getValue(NAR_DEPENDENCY_ID);
+        final String version = attributes.getValue(NAR_DEPENDENCY_VERSION);
+        if (groupId == null || artifactId == null || version == null) {
+            return null;
+        }
+
+        return new DefaultArtifact(groupId, artifactId, version, COMPILE_STRING, NAR, null, narHandler);
+    }
+
     /**
      * Creates a new ArtifactHandler for the specified Artifact that overrides the includeDependencies flag. When set, this flag prevents transitive
      * dependencies from being printed in dependencies plugin.
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Values computed once and shared by every module of a build, typically held by a cache registered in the data of the repository
+ * session. A value requested by several modules at once is computed by one of them while the others wait for it. Failures are not
+ * cached: every request waiting for a value whose computation fails receives the same failure, including an {@link Error}, and a later
+ * request computes the value again.
+ *
+ * @param <V> the type of the values
+ */
+public class SessionMemoizer<V> {
+    private final ConcurrentMap<String, CompletableFuture<V>> values = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the instance of the given type held by the data of the repository session, registering a new instance if the session
+     * holds none yet.
+     *
+     * @param repositorySession the repository session of the build
+     * @param type the type of the instance, whose name is the key of the instance in the session data
+     * @param factory creates the instance if the session holds none yet
+     * @param <T> the type of the instance
+     * @return the instance held by the session, or <code>null</code> if the session cannot hold one
+     */
+    public static <T> T getSessionInstance(final RepositorySystemSession repositorySession, final Class<T> type, final Supplier<T> factory) {
+        final SessionData sessionData = repositorySession == null ? null : repositorySession.getData();
+        if (sessionData == null) {
+            return null;
+        }
+
+        final Object instance = sessionData.computeIfAbsent(type.getName(), factory::get);
+        // Another version of the plugin may have registered its own instance, which cannot be shared
+        return type.isInstance(instance) ? type.cast(instance) : null;
+    }
+
+    /**
+     * Returns the value with the given key, computing it if it has not been computed yet.
+     *
+     * @param key the key that identifies the value
+     * @param computation computes the value if it has not been computed yet
+     * @return the value
+     * @throws Exception the failure of the computation, either of this request or of the request this one waited for
+     */
+    public V get(final String key, final Callable<V> computation) throws Exception {
+        final CompletableFuture<V> computed = new CompletableFuture<>();
+        final CompletableFuture<V> existing = values.putIfAbsent(key, computed);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (final CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            final V value = computation.call();
+            computed.complete(value);
+            return value;
+        } catch (final Throwable t) {
+            // Let a later request try again rather than caching the failure, and release the requests waiting for this one
+            values.remove(key, computed);
+            computed.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * @return the values computed so far, without the values that are still being computed or whose computation failed
+     */
+    public List<V> getComputedValues() {
+        final List<V> computedValues = new ArrayList<>();
+        for (final CompletableFuture<V> future : values.values()) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                computedValues.add(future.join());
+            }
+        }
+        return computedValues;
+    }
+
+    /**
+     * Forgets every value computed so far.
+     */
+    public void clear() {
+        values.clear();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NarMojoTest {
+
+    private static final int EXTENSION_COUNT = 40;
+
+    private static final String CLASSIFIER = "sources";
+
+    @TempDir
+    private File buildDirectory;
+
+    @Test
+    void testConcurrentDocumentationMatchesSequentialDocumentation() throws Exception {
+        final List<NarMojo.DocumentationRenderer> renderers = new ArrayList<>();
+        for (int i = 0; i < EXTENSION_COUNT; i++) {
+            final int extension = i;
+            renderers.add(xmlWriter -> writeExtension(xmlWriter, extension));
+        }
+
+        final byte[] sharedWriterManifest = writeManifestWithSharedWriter(renderers);
+        final byte[] sequentialManifest = writeManifest(renderers, 1);
+        final byte[] concurrentManifest = writeManifest(renderers, 4);
+
+        assertTrue(new String(sharedWriterManifest, StandardCharsets.UTF_8).contains("<extensions><extension"));
+        assertArrayEquals(sharedWriterManifest, sequentialManifest);
+        assertArrayEquals(sequentialManifest, concurrentManifest);
+    }
+
+    @Test
+    void testClassifierTranslatedDependenciesResolved() throws Exception {
+        final RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.resolveArtifacts(any(), anyList())).thenAnswer(invocation -> {
+            final List<ArtifactRequest> requests = invocation.getArgument(1);
+            final List<ArtifactResult> results = new ArrayList<>();
+            for (final ArtifactRequest request : requests) {
+                results.add(createResult(request, true));
+            }
+            return results;
+        });
+
+        final NarMojo narMojo = createClassifierNarMojo(repositorySystem);
+        final Set<Artifact> resolvedArtifacts = narMojo.getClassifierTranslatedDependencies(createArtifacts()).getResolvedDependencies();
+
+        assertEquals(2, resolvedArtifacts.size());
+        for (final Artifact resolvedArtifact : resolvedArtifacts) {
+            assertEquals(CLASSIFIER, resolvedArtifact.getClassifier());
+        }
+    }
+
+    @Test
+    void testClassifierTranslatedDependenciesMissing() throws Exception {
+        final RepositorySystem repositorySystem = mock(RepositorySystem.class);
+        when(repositorySystem.resolveArtifacts(any(), anyList())).thenAnswer(invocation -> {
+            final List<ArtifactRequest> requests = invocation.getArgument(1);
+            final List<ArtifactResult> results = new ArrayList<>();
+            for (final ArtifactRequest request : requests) {
+                results.add(createResult(request, !request.getArtifact().getArtifactId().equals("commons-io")));
+            }
+            throw new ArtifactResolutionException(results);
+        });
+
+        final NarMojo narMojo = createClassifierNarMojo(repositorySystem);
+        final MojoExecutionException e = assertThrows(MojoExecutionException.class, () -> narMojo.getClassifierTranslatedDependencies(createArtifacts()));
+
+        assertTrue(e.getMessage().contains("commons-io:commons-io:jar:" + CLASSIFIER + ":2.16.1"), e.getMessage());
+        assertFalse(e.getMessage().contains("commons-lang3"), e.getMessage());
+    }
+
+    private NarMojo createClassifierNarMojo(final RepositorySystem repositorySystem) {
+        final ArtifactHandlerManager artifactHandlerManager = mock(ArtifactHandlerManager.class);
+        when(artifactHandlerManager.getArtifactHandler(anyString())).thenReturn(new DefaultArtifactHandler("jar"));
+
+        final NarMojo narMojo = new NarMojo();
+        narMojo.copyDepClassifier = CLASSIFIER;
+        narMojo.type = "jar";
+        narMojo.artifactHandlerManager = artifactHandlerManager;
+        narMojo.repoSystem = repositorySystem;
+        narMojo.repoSession = new DefaultRepositorySystemSession();
+        narMojo.project = new MavenProject();
+        narMojo.projectBuildDirectory = buildDirectory;
+        return narMojo;
+    }
+
+    private Set<Artifact> createArtifacts() {
+        final Set<Artifact> artifacts = new LinkedHashSet<>();
+        for (final String coordinates : Arrays.asList("org.apache.commons:commons-lang3:3.17.0", "commons-io:commons-io:2.16.1")) {
+            final String[] parts = coordinates.split(":");
+            final Artifact artifact = new DefaultArtifact(parts[0], parts[1], parts[2], "compile", "jar", null, new DefaultArtifactHandler("jar"));
+            artifact.setFile(new File(buildDirectory, parts[1] + ".jar"));
+            artifacts.add(artifact);
+        }
+        return artifacts;
+    }
+
+    private ArtifactResult createResult(final ArtifactRequest request, final boolean resolved) {
+        final ArtifactResult result = new ArtifactResult(request);
+        if (resolved) {
+            result.setArtifact(request.getArtifact().setFile(new File(buildDirectory, request.getArtifact().getArtifactId() + "-" + CLASSIFIER + ".jar")));
+        }
+        return result;
+    }
+
+    private byte[] writeManifest(final List<NarMojo.DocumentationRenderer> renderers, final int docThreads) throws Exception {
+        final NarMojo narMojo = new NarMojo();
+        narMojo.docThreads = docThreads;
+
+        final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final XMLStreamWriter xmlWriter = xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
+        xmlWriter.writeStartElement("extensionManifest");
+        xmlWriter.writeStartElement("extensions");
+        narMojo.writeFragments(xmlWriter, out, narMojo.renderDocumentation(renderers, xmlOutputFactory, getClass().getClassLoader()));
+        xmlWriter.writeEndElement();
+        xmlWriter.writeEndElement();
+        xmlWriter.close();
+        return out.toByteArray();
+    }
+
+    private byte[] writeManifestWithSharedWriter(final List<NarMojo.DocumentationRenderer> renderers) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final XMLStreamWriter xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+        xmlWriter.writeStartElement("extensionManifest");
+        xmlWriter.writeStartElement("extensions");
+        for (final NarMojo.DocumentationRenderer renderer : renderers) {
+            renderer.render(xmlWriter);
+        }
+        xmlWriter.writeEndElement();
+        xmlWriter.writeEndElement();
+        xmlWriter.close();
+        return out.toByteArray();
+    }
+
+    private void writeExtension(final XMLStreamWriter xmlWriter, final int extension) throws Exception {
+        xmlWriter.writeStartElement("extension");
+        xmlWriter.writeStartElement("name");
+        xmlWriter.writeCharacters("org.apache.nifi.processors.Processor" + extension);
+        xmlWriter.writeEndElement();
+        xmlWriter.writeStartElement("description");
+        xmlWriter.writeCharacters("Reads <records> & writes \"flow files\" é");
+        xmlWriter.writeEndElement();
+        xmlWriter.writeStartElement("property");
+        xmlWriter.writeAttribute("required", String.valueOf(extension % 2 == 0));
+        xmlWriter.writeEndElement();
+        xmlWriter.writeEmptyElement("deprecationNotice");
+        xmlWriter.writeEndElement();
+    }
+}
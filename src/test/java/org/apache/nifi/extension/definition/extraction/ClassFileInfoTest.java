@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassFileInfoTest {
+
+    @Test
+    void testParse() throws IOException {
+        final ClassFileInfo classFileInfo = ClassFileInfo.parse(getClassFile(StandardExtensionDefinition.class));
+
+        assertEquals("org/apache/nifi/extension/definition/extraction/StandardExtensionDefinition", classFileInfo.getClassName());
+        assertEquals("java/lang/Object", classFileInfo.getSuperClassName());
+        assertEquals(1, classFileInfo.getInterfaceNames().size());
+        assertEquals("org/apache/nifi/extension/definition/ExtensionDefinition", classFileInfo.getInterfaceNames().get(0));
+
+        assertTrue(classFileInfo.getReferencedClassNames().contains("org/apache/nifi/extension/definition/ExtensionType"));
+        assertTrue(classFileInfo.getReferencedClassNames().contains("org/apache/nifi/extension/definition/ServiceAPIDefinition"));
+        assertFalse(classFileInfo.getReferencedClassNames().contains(classFileInfo.getClassName()));
+    }
+
+    @Test
+    void testParseInvalidClassFile() {
+        assertThrows(IOException.class, () -> ClassFileInfo.parse(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    static byte[] getClassFile(final Class<?> type) throws IOException {
+        try (final InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.ProjectBuildingException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyArtifactsCacheTest {
+
+    private static final String KEY = "org.apache.nifi:nifi-standard-services-api-nar:nar:2.0.0";
+
+    @Test
+    void testGetInstanceSharedBySession() {
+        final RepositorySystemSession session = new DefaultRepositorySystemSession();
+
+        final DependencyArtifactsCache cache = DependencyArtifactsCache.getInstance(session);
+        assertSame(cache, DependencyArtifactsCache.getInstance(session));
+        assertNotSame(cache, DependencyArtifactsCache.getInstance(new DefaultRepositorySystemSession()));
+    }
+
+    @Test
+    void testGetArtifactsGatheredOnce() throws Exception {
+        final DependencyArtifactsCache cache = new DependencyArtifactsCache();
+        final AtomicInteger gathered = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Set<Artifact>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.getArtifacts(KEY, () -> {
+                        gathered.incrementAndGet();
+                        return createArtifacts();
+                    });
+                }));
+            }
+            start.countDown();
+
+            for (final Future<Set<Artifact>> future : futures) {
+                assertEquals(createArtifacts(), future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, gathered.get());
+    }
+
+    @Test
+    void testGetArtifactsReturnsCopy() throws Exception {
+        final DependencyArtifactsCache cache = new DependencyArtifactsCache();
+
+        final Set<Artifact> artifacts = cache.getArtifacts(KEY, this::createArtifacts);
+        artifacts.clear();
+
+        assertEquals(2, cache.getArtifacts(KEY, this::createArtifacts).size());
+    }
+
+    @Test
+    void testGetArtifactsFailureNotCached() throws Exception {
+        final DependencyArtifactsCache cache = new DependencyArtifactsCache();
+
+        assertThrows(ProjectBuildingException.class, () -> cache.getArtifacts(KEY, () -> {
+            throw new ProjectBuildingException(KEY, "Could not build project", (Throwable) null);
+        }));
+
+        assertTrue(cache.getArtifacts(KEY, TreeSet::new).isEmpty());
+    }
+
+    @Test
+    void testGetArtifactsErrorReleasesWaitingRequests() throws Exception {
+        final DependencyArtifactsCache cache = new DependencyArtifactsCache();
+        final CountDownLatch gathering = new CountDownLatch(1);
+        final CompletableFuture<Void> fail = new CompletableFuture<>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Set<Artifact>> failing = executor.submit(() -> cache.getArtifacts(KEY, () -> {
+                gathering.countDown();
+                fail.join();
+                throw new StackOverflowError();
+            }));
+            gathering.await();
+
+            final Thread[] waitingThread = new Thread[1];
+            final Future<Set<Artifact>> waiting = executor.submit(() -> {
+                waitingThread[0] = Thread.currentThread();
+                return cache.getArtifacts(KEY, this::createArtifacts);
+            });
+            awaitWaiting(waitingThread);
+            fail.complete(null);
+
+            final ExecutionException failure = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, failure.getCause());
+            final ExecutionException waitingFailure = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+            assertSame(failure.getCause(), waitingFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(createArtifacts(), cache.getArtifacts(KEY, this::createArtifacts));
+    }
+
+    private void awaitWaiting(final Thread[] thread) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread[0] == null || thread[0].getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "Request did not wait for the artifacts being gathered");
+            Thread.sleep(10);
+        }
+    }
+
+    private Set<Artifact> createArtifacts() {
+        final Set<Artifact> artifacts = new TreeSet<>();
+        artifacts.add(new DefaultArtifact("org.apache.nifi", "nifi-api", "2.0.0", "provided", "jar", null, new DefaultArtifactHandler("jar")));
+        artifacts.add(new DefaultArtifact("org.slf4j", "slf4j-api", "2.0.16", "provided", "jar", null, new DefaultArtifactHandler("jar")));
+        return artifacts;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DependencyGraphStoreTest {
+
+    private static final String KEY = "org.apache.nifi:nifi-standard-services-api-nar:nar:2.0.0 central=https://repo.maven.apache.org/maven2";
+
+    private static final Artifact NAR_ARTIFACT = new DefaultArtifact("org.apache.nifi", "nifi-standard-services-api-nar", "2.0.0", null, "nar", null,
+            new DefaultArtifactHandler("nar"));
+
+    @TempDir
+    private Path tempDir;
+
+    private ArtifactHandlerManager artifactHandlerManager;
+
+    @BeforeEach
+    void setUp() {
+        artifactHandlerManager = mock(ArtifactHandlerManager.class);
+        when(artifactHandlerManager.getArtifactHandler(anyString())).thenAnswer(invocation -> new DefaultArtifactHandler(invocation.getArgument(0)));
+    }
+
+    @Test
+    void testLoadStoredRelease() throws Exception {
+        final DependencyGraphStore store = createStore(false);
+        final Set<Artifact> artifacts = createArtifacts("2.0.0");
+
+        assertNull(store.load(NAR_ARTIFACT, KEY));
+        store.store(NAR_ARTIFACT, KEY, artifacts);
+
+        final Set<Artifact> storedArtifacts = createStore(false).load(NAR_ARTIFACT, KEY);
+        assertEquals(artifacts, storedArtifacts);
+        for (final Artifact storedArtifact : storedArtifacts) {
+            assertEquals("provided", storedArtifact.getScope());
+        }
+        assertNull(store.load(NAR_ARTIFACT, KEY + " other=https://repo.example.com"));
+    }
+
+    @Test
+    void testLoadStoredSnapshotRevalidated() throws Exception {
+        final File pomFile = writePom("2.1.0-SNAPSHOT", "<project/>");
+        final DependencyGraphStore store = createStore(false);
+        final Set<Artifact> artifacts = createArtifacts("2.1.0-SNAPSHOT");
+
+        store.store(NAR_ARTIFACT, KEY, artifacts);
+        assertEquals(artifacts, store.load(NAR_ARTIFACT, KEY));
+        assertNull(createStore(true).load(NAR_ARTIFACT, KEY));
+
+        Files.writeString(pomFile.toPath(), "<project><version>2.1.0-SNAPSHOT</version></project>");
+        assertNull(store.load(NAR_ARTIFACT, KEY));
+    }
+
+    @Test
+    void testStoreSnapshotWithoutPom() throws Exception {
+        final DependencyGraphStore store = createStore(false);
+
+        store.store(NAR_ARTIFACT, KEY, createArtifacts("2.1.0-SNAPSHOT"));
+
+        assertNull(store.load(NAR_ARTIFACT, KEY));
+    }
+
+    @Test
+    void testLoadStoredSnapshotParentRevalidated() throws Exception {
+        writePom("2.1.0-SNAPSHOT", "<project><parent><groupId>org.apache.nifi</groupId><artifactId>nifi</artifactId>"
+                + "<version>2.1.0-SNAPSHOT</version></parent></project>");
+        final File parentPomFile = writePom("nifi", "2.1.0-SNAPSHOT", "<project/>");
+        final DependencyGraphStore store = createStore(false);
+        final Set<Artifact> artifacts = createArtifacts("2.1.0-SNAPSHOT");
+
+        store.store(NAR_ARTIFACT, KEY, artifacts);
+        assertEquals(artifacts, store.load(NAR_ARTIFACT, KEY));
+
+        Files.writeString(parentPomFile.toPath(), "<project><properties><nifi.version>2.1.0</nifi.version></properties></project>");
+        assertNull(store.load(NAR_ARTIFACT, KEY));
+    }
+
+    @Test
+    void testLoadStoredSnapshotImportedBomRevalidated() throws Exception {
+        writePom("2.1.0-SNAPSHOT", "<project><parent><groupId>org.apache.nifi</groupId><artifactId>nifi</artifactId>"
+                + "<version>2.1.0-SNAPSHOT</version></parent></project>");
+        writePom("nifi", "2.1.0-SNAPSHOT", "<project><properties><bom.version>2.1.0-SNAPSHOT</bom.version></properties>"
+                + "<dependencyManagement><dependencies><dependency><groupId>org.apache.nifi</groupId><artifactId>nifi-bom</artifactId>"
+                + "<version>${bom.version}</version><type>pom</type><scope>import</scope></dependency></dependencies></dependencyManagement></project>");
+        final File bomFile = writePom("nifi-bom", "2.1.0-SNAPSHOT", "<project/>");
+        final DependencyGraphStore store = createStore(false);
+        final Set<Artifact> artifacts = createArtifacts("2.1.0-SNAPSHOT");
+
+        store.store(NAR_ARTIFACT, KEY, artifacts);
+        assertEquals(artifacts, store.load(NAR_ARTIFACT, KEY));
+
+        Files.writeString(bomFile.toPath(), "<project><dependencyManagement/></project>");
+        assertNull(store.load(NAR_ARTIFACT, KEY));
+    }
+
+    @Test
+    void testStoreSnapshotWithUnresolvedImport() throws Exception {
+        writePom("2.1.0-SNAPSHOT", "<project><dependencyManagement><dependencies><dependency><groupId>org.apache.nifi</groupId>"
+                + "<artifactId>nifi-bom</artifactId><version>${bom.version}</version><type>pom</type><scope>import</scope></dependency>"
+                + "</dependencies></dependencyManagement></project>");
+        final DependencyGraphStore store = createStore(false);
+
+        store.store(NAR_ARTIFACT, KEY, createArtifacts("2.1.0-SNAPSHOT"));
+
+        assertNull(store.load(NAR_ARTIFACT, KEY));
+    }
+
+    @Test
+    void testReactorArtifactNotStored() throws Exception {
+        final DependencyGraphStore reactorStore = createStore(false, Collections.singleton(NAR_ARTIFACT.getArtifactId()));
+        final Set<Artifact> artifacts = createArtifacts("2.0.0");
+
+        reactorStore.store(NAR_ARTIFACT, KEY, artifacts);
+        assertNull(createStore(false).load(NAR_ARTIFACT, KEY));
+
+        createStore(false).store(NAR_ARTIFACT, KEY, artifacts);
+        assertEquals(artifacts, createStore(false).load(NAR_ARTIFACT, KEY));
+        assertNull(reactorStore.load(NAR_ARTIFACT, KEY));
+    }
+
+    @Test
+    void testLoadUnreadableGraph() throws Exception {
+        final DependencyGraphStore store = createStore(false);
+        store.store(NAR_ARTIFACT, KEY, createArtifacts("2.0.0"));
+
+        final File graphDirectory = tempDir.resolve("graphs").toFile();
+        final File[] graphFiles = graphDirectory.listFiles();
+        assertTrue(graphFiles != null && graphFiles.length == 1);
+        Files.writeString(graphFiles[0].toPath(), "artifact\torg.apache.nifi\n", StandardCharsets.UTF_8);
+
+        assertNull(store.load(NAR_ARTIFACT, KEY));
+    }
+
+    private DependencyGraphStore createStore(final boolean updateSnapshots) {
+        return createStore(updateSnapshots, Collections.emptySet());
+    }
+
+    private DependencyGraphStore createStore(final boolean updateSnapshots, final Set<String> reactorArtifactIds) {
+        return new DependencyGraphStore(tempDir.resolve("graphs").toFile(), artifactHandlerManager,
+                new DirectoryPomFileLocator(tempDir.resolve("repository"), reactorArtifactIds), updateSnapshots);
+    }
+
+    private File writePom(final String version, final String content) throws Exception {
+        return writePom("nifi-api", version, content);
+    }
+
+    private File writePom(final String artifactId, final String version, final String content) throws Exception {
+        final Path pomFile = tempDir.resolve("repository").resolve(artifactId + "-" + version + ".pom");
+        Files.createDirectories(pomFile.getParent());
+        Files.writeString(pomFile, content);
+        return pomFile.toFile();
+    }
+
+    private Set<Artifact> createArtifacts(final String nifiApiVersion) {
+        final Set<Artifact> artifacts = new TreeSet<>();
+        artifacts.add(new DefaultArtifact("org.apache.nifi", "nifi-api", nifiApiVersion, "provided", "jar", null, new DefaultArtifactHandler("jar")));
+        artifacts.add(new DefaultArtifact("org.slf4j", "slf4j-api", "2.0.16", "provided", "jar", null, new DefaultArtifactHandler("jar")));
+        return artifacts;
+    }
+
+    public static class DirectoryPomFileLocator implements DependencyGraphStore.PomFileLocator {
+        private final Path directory;
+        private final Set<String> reactorArtifactIds;
+
+        public DirectoryPomFileLocator(final Path directory, final Set<String> reactorArtifactIds) {
+            this.directory = directory;
+            this.reactorArtifactIds = reactorArtifactIds;
+        }
+
+        @Override
+        public File getPomFile(final String groupId, final String artifactId, final String version) {
+            return directory.resolve(artifactId + "-" + version + ".pom").toFile();
+        }
+
+        @Override
+        public boolean isReactorArtifact(final String groupId, final String artifactId, final String version) {
+            return reactorArtifactIds.contains(artifactId);
+        }
+    }
+}
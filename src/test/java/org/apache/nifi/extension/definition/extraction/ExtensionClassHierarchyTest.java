@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtensionClassHierarchyTest {
+
+    private static final String EXTENSION_DEFINITION = "org/apache/nifi/extension/definition/ExtensionDefinition";
+    private static final String STANDARD_EXTENSION_DEFINITION = "org/apache/nifi/extension/definition/extraction/StandardExtensionDefinition";
+
+    @Test
+    void testGetClassResolvesDefiningClassLoader() throws IOException {
+        try (final ExtensionClassLoader classLoader = createClassLoader()) {
+            final ExtensionClassHierarchy hierarchy = new ExtensionClassHierarchy(classLoader);
+
+            final ExtensionClassHierarchy.ClassNode classNode = hierarchy.getClass(STANDARD_EXTENSION_DEFINITION);
+            assertSame(classLoader, classNode.getClassLoader());
+            assertEquals(STANDARD_EXTENSION_DEFINITION, classNode.getClassName());
+            assertEquals("java/lang/Object", classNode.getSuperClassName());
+            assertEquals(Collections.singletonList(EXTENSION_DEFINITION), classNode.getInterfaceNames());
+            assertSame(classNode, hierarchy.getClass(STANDARD_EXTENSION_DEFINITION));
+
+            assertNotSame(classLoader, hierarchy.getClass("java/lang/Object").getClassLoader());
+            assertNull(hierarchy.getClass("org/apache/nifi/extension/definition/extraction/Missing"));
+        }
+    }
+
+    @Test
+    void testInterfaceHierarchy() throws IOException {
+        try (final ExtensionClassLoader classLoader = createClassLoader()) {
+            final ExtensionClassHierarchy hierarchy = new ExtensionClassHierarchy(classLoader);
+
+            assertEquals(Set.of(EXTENSION_DEFINITION), hierarchy.getInterfaceHierarchy(EXTENSION_DEFINITION));
+            assertTrue(hierarchy.isSubInterface(EXTENSION_DEFINITION, EXTENSION_DEFINITION));
+            assertFalse(hierarchy.isSubInterface(EXTENSION_DEFINITION, "org/apache/nifi/extension/definition/ServiceAPIDefinition"));
+            assertNull(hierarchy.getInterfaceHierarchy("org/apache/nifi/extension/definition/extraction/Missing"));
+        }
+    }
+
+    private ExtensionClassLoader createClassLoader() {
+        // The platform ClassLoader does not provide the test classes, so they are defined by the extension ClassLoader
+        final URL classesUrl = StandardExtensionDefinition.class.getProtectionDomain().getCodeSource().getLocation();
+        return new ExtensionClassLoader(new URL[] {classesUrl}, ClassLoader.getPlatformClassLoader(), null, Collections.emptySet());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ExtensionClassLoaderCacheTest {
+
+    @Test
+    void testGetInstanceSharedBySession() {
+        final RepositorySystemSession session = new DefaultRepositorySystemSession();
+
+        final ExtensionClassLoaderCache cache = ExtensionClassLoaderCache.getInstance(session);
+        assertSame(cache, ExtensionClassLoaderCache.getInstance(session));
+        assertNotSame(cache, ExtensionClassLoaderCache.getInstance(new DefaultRepositorySystemSession()));
+        assertNull(ExtensionClassLoaderCache.getInstance(mock(RepositorySystemSession.class)));
+    }
+
+    @Test
+    void testGetClassLoaderCreatedOnce() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        try (final ExtensionClassLoaderCache cache = new ExtensionClassLoaderCache()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                final List<Future<ExtensionClassLoader>> futures = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return cache.getClassLoader("provided", () -> {
+                            created.incrementAndGet();
+                            return createClassLoader();
+                        });
+                    }));
+                }
+                start.countDown();
+
+                final ExtensionClassLoader classLoader = futures.get(0).get();
+                for (final Future<ExtensionClassLoader> future : futures) {
+                    assertSame(classLoader, future.get());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void testGetClassLoaderFailureNotCached() throws Exception {
+        try (final ExtensionClassLoaderCache cache = new ExtensionClassLoaderCache()) {
+            assertThrows(MojoExecutionException.class, () -> cache.getClassLoader("provided", () -> {
+                throw new MojoExecutionException("Could not resolve");
+            }));
+
+            final ExtensionClassLoader classLoader = cache.getClassLoader("provided", this::createClassLoader);
+            assertSame(classLoader, cache.getClassLoader("provided", this::createClassLoader));
+        }
+    }
+
+    @Test
+    void testGetClassLoaderErrorReleasesWaitingRequests() throws Exception {
+        final CountDownLatch creating = new CountDownLatch(1);
+        final CompletableFuture<Void> fail = new CompletableFuture<>();
+
+        try (final ExtensionClassLoaderCache cache = new ExtensionClassLoaderCache()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                final Future<ExtensionClassLoader> failing = executor.submit(() -> cache.getClassLoader("provided", () -> {
+                    creating.countDown();
+                    fail.join();
+                    throw new NoClassDefFoundError("org/apache/nifi/components/ConfigurableComponent");
+                }));
+                creating.await();
+
+                final Thread[] waitingThread = new Thread[1];
+                final Future<ExtensionClassLoader> waiting = executor.submit(() -> {
+                    waitingThread[0] = Thread.currentThread();
+                    return cache.getClassLoader("provided", this::createClassLoader);
+                });
+                awaitWaiting(waitingThread);
+                fail.complete(null);
+
+                final ExecutionException failure = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(NoClassDefFoundError.class, failure.getCause());
+                final ExecutionException waitingFailure = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+                assertSame(failure.getCause(), waitingFailure.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+
+            final ExtensionClassLoader classLoader = cache.getClassLoader("provided", this::createClassLoader);
+            assertSame(classLoader, cache.getClassLoader("provided", this::createClassLoader));
+        }
+    }
+
+    @Test
+    void testClose() throws Exception {
+        final RepositorySystemSession session = new DefaultRepositorySystemSession();
+        final ExtensionClassLoaderCache cache = ExtensionClassLoaderCache.getInstance(session);
+        final ExtensionClassLoader classLoader = cache.getClassLoader("provided", this::createClassLoader);
+
+        ExtensionClassLoaderCache.close(session);
+
+        assertNotSame(cache, ExtensionClassLoaderCache.getInstance(session));
+        assertNotSame(classLoader, cache.getClassLoader("provided", this::createClassLoader));
+    }
+
+    private void awaitWaiting(final Thread[] thread) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread[0] == null || thread[0].getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "Request did not wait for the ClassLoader being created");
+            Thread.sleep(10);
+        }
+    }
+
+    private ExtensionClassLoader createClassLoader() {
+        return new ExtensionClassLoader(new URL[0], null, Collections.emptySet());
+    }
+}
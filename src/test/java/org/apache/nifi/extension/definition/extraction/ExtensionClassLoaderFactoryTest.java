@@ -21,45 +21,70 @@ import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.ArtifactHandler;
 import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
 import org.apache.maven.artifact.repository.ArtifactRepository;
-import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
-import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
-import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuilder;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.project.ProjectBuildingResult;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.traversal.DependencyNodeVisitor;
+import org.apache.nifi.utils.NarDependenciesDescriptor;
+import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InOrder;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.argThat;
-import static org.mockito.Mockito.inOrder;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class ExtensionClassLoaderFactoryTest {
 
+    private static final RemoteRepository REMOTE_PROJECT_REPOSITORY = new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2").build();
+
     @Mock private Log log;
-    @Mock private ArtifactResolver artifactResolver;
+    @Mock private RepositorySystem repositorySystem;
     @Mock private ArtifactRepository localRepository;
     @Mock private ArtifactRepository remoteRepository;
     @Mock private ArtifactHandlerManager artifactHandlerManager;
@@ -75,13 +100,13 @@ class ExtensionClassLoaderFactoryTest {
     private ExtensionClassLoaderFactory factory;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         artifact1 = projectArtifact();
         artifact2 = localRepositoryDependencyArtifact();
         artifact3 = remoteRepositoryDependencyArtifact();
 
-        when(artifactResolver.resolve(any(ArtifactResolutionRequest.class)))
-                .thenAnswer(args -> resolved(args.getArgument(0, ArtifactResolutionRequest.class).getArtifact()));
+        lenient().when(repositorySystem.resolveArtifacts(any(RepositorySystemSession.class), anyList()))
+                .thenAnswer(args -> resolved(args.getArgument(1)));
 
         factory = ExtensionClassLoaderFactory
                 .builder()
@@ -90,7 +115,8 @@ class ExtensionClassLoaderFactoryTest {
                 .projectBuilder(projectBuilder)
                 .dependencyGraphBuilder(dependencyGraphBuilder)
                 .artifactHandlerManager(artifactHandlerManager)
-                .artifactResolver(artifactResolver)
+                .repositorySystem(repositorySystem)
+                .remoteProjectRepositories(Collections.singletonList(REMOTE_PROJECT_REPOSITORY))
                 .localRepository(localRepository)
                 .remoteRepositories(Collections.singletonList(remoteRepository))
                 .repositorySession(repositorySession)
@@ -114,32 +140,360 @@ class ExtensionClassLoaderFactoryTest {
         List<String> actualUrlsList = Arrays.stream(classLoader.getURLs()).map(URL::getFile).collect(Collectors.toList());
         assertTrue(expectedUrlsList.containsAll(actualUrlsList));
 
-        InOrder inOrder = inOrder(artifactResolver);
-        for (ArtifactResolutionRequest req : getExpectedArtifactResolutionRequests()) {
-            inOrder.verify(artifactResolver).resolve(argThat(arg ->
-                req.getArtifact().getArtifactId().equals(arg.getArtifact().getArtifactId())
-                        && req.getLocalRepository() == arg.getLocalRepository()
-                        && req.getRemoteRepositories().equals(arg.getRemoteRepositories())
-            ));
+        // Both artifacts are resolved in a single request
+        verify(repositorySystem).resolveArtifacts(eq(repositorySession), argThat(requests ->
+                requests.size() == 2
+                        && requests.stream().allMatch(req -> req.getRepositories().equals(Collections.singletonList(REMOTE_PROJECT_REPOSITORY)))
+                        && requests.stream().map(req -> req.getArtifact().getArtifactId()).collect(Collectors.toSet())
+                            .equals(new HashSet<>(Arrays.asList(artifact2.getArtifactId(), artifact3.getArtifactId())))
+        ));
+        verifyNoMoreInteractions(repositorySystem);
+    }
+
+    @Test
+    void closeExtensionClassLoaderTest() throws Exception {
+        try (final ExtensionClassLoaderCache classLoaderCache = new ExtensionClassLoaderCache()) {
+            final ExtensionClassLoaderFactory sharingFactory = ExtensionClassLoaderFactory
+                    .builder()
+                    .log(log)
+                    .project(project)
+                    .repositorySystem(repositorySystem)
+                    .remoteProjectRepositories(Collections.singletonList(REMOTE_PROJECT_REPOSITORY))
+                    .remoteRepositories(Collections.singletonList(remoteRepository))
+                    .repositorySession(repositorySession)
+                    .classLoaderCache(classLoaderCache)
+                    .build();
+
+            final ExtensionClassLoader shared = classLoaderCache.getClassLoader("provided", () -> new ExtensionClassLoader(new URL[0], null, Collections.emptySet()));
+            final ExtensionClassLoader parent = new ExtensionClassLoader(new URL[0], shared, null, Collections.emptySet());
+            final ExtensionClassLoader classLoader = new ExtensionClassLoader(new URL[0], parent, null, Collections.emptySet());
+            final int openClassLoaders = ExtensionClassLoader.getOpenClassLoaderCount();
+
+            sharingFactory.closeExtensionClassLoader(classLoader);
+            assertEquals(openClassLoaders - 2, ExtensionClassLoader.getOpenClassLoaderCount());
+
+            // Closing is idempotent and leaves the shared ClassLoader to the cache
+            sharingFactory.closeExtensionClassLoader(classLoader);
+            assertEquals(openClassLoaders - 2, ExtensionClassLoader.getOpenClassLoaderCount());
+            assertTrue(classLoaderCache.contains(shared));
+        }
+    }
+
+    @Test
+    void createClassLoaderWithResolvedArtifactsTest() throws Exception {
+        final Set<Artifact> dependencyArtifacts = new TreeSet<>();
+        dependencyArtifacts.add(projectArtifact());
+
+        final ExtensionClassLoader classLoader = factory.createClassLoader(dependencyArtifacts, null, artifact1);
+
+        assertEquals("/path/to/processor-nar", classLoader.getURLs()[0].getFile());
+        verifyNoInteractions(repositorySystem);
+    }
+
+    @Test
+    void createExtensionClassLoaderFromResolvedProjectTest() throws Exception {
+        final Artifact processorsArtifact = new DefaultArtifact("org.apache.nifi", "processors", "1.0.0", "compile", "jar", null, mock(ArtifactHandler.class));
+        processorsArtifact.setFile(new File("/path/to/processors"));
+        when(project.getArtifact()).thenReturn(artifact1);
+        when(project.getArtifacts()).thenReturn(new TreeSet<>(Collections.singleton(processorsArtifact)));
+        when(project.getDependencies()).thenReturn(Arrays.asList(dependency("org.apache.nifi", "nifi-api", "2.0.0"), dependency("org.slf4j", "slf4j-api", "2.0.16")));
+        final DependencyManagement dependencyManagement = new DependencyManagement();
+        dependencyManagement.addDependency(dependency("org.apache.nifi", "nifi-framework-api", "2.0.0"));
+        when(project.getDependencyManagement()).thenReturn(dependencyManagement);
+        when(artifactHandlerManager.getArtifactHandler("jar")).thenReturn(mock(ArtifactHandler.class));
+
+        final ExtensionClassLoaderFactory resolvedProjectFactory = ExtensionClassLoaderFactory
+                .builder()
+                .log(log)
+                .project(project)
+                .projectBuilder(projectBuilder)
+                .dependencyGraphBuilder(dependencyGraphBuilder)
+                .artifactHandlerManager(artifactHandlerManager)
+                .repositorySystem(repositorySystem)
+                .remoteProjectRepositories(Collections.singletonList(REMOTE_PROJECT_REPOSITORY))
+                .localRepository(localRepository)
+                .remoteRepositories(Collections.singletonList(remoteRepository))
+                .repositorySession(repositorySession)
+                .useResolvedProject(true)
+                .build();
+
+        final ExtensionClassLoader classLoader = resolvedProjectFactory.createExtensionClassLoader();
+
+        assertEquals("/path/to/processors", classLoader.getURLs()[0].getFile());
+        assertEquals("2.0.0", classLoader.getNiFiApiVersion());
+        final ExtensionClassLoader providedClassLoader = (ExtensionClassLoader) classLoader.getParent();
+        assertEquals(3, providedClassLoader.getURLs().length);
+        verifyNoInteractions(projectBuilder, dependencyGraphBuilder);
+    }
+
+    @Test
+    void createExtensionClassLoaderWithProvidedVersionsFromDependencyGraphsTest() throws Exception {
+        final Artifact firstArtifact = jarArtifact("first", "1.0.0");
+        final Artifact secondArtifact = jarArtifact("second", "1.0.0");
+        when(project.getArtifact()).thenReturn(artifact1);
+        when(project.getArtifacts()).thenReturn(new TreeSet<>(Arrays.asList(firstArtifact, secondArtifact)));
+        when(artifactHandlerManager.getArtifactHandler("jar")).thenReturn(mock(ArtifactHandler.class));
+
+        // Both graphs contain the provided entities, and the versions of the first artifact in order take precedence
+        final Map<String, List<Artifact>> graphs = new HashMap<>();
+        graphs.put("first", Arrays.asList(firstArtifact, jarArtifact("org.apache.nifi", "nifi-api", "2.1.0"), jarArtifact("org.slf4j", "slf4j-api", "2.0.16")));
+        graphs.put("second", Arrays.asList(secondArtifact, jarArtifact("org.apache.nifi", "nifi-api", "2.0.0"), jarArtifact("org.apache.nifi", "nifi-framework-api", "2.0.0")));
+        when(projectBuilder.build(any(Artifact.class), any(ProjectBuildingRequest.class))).thenAnswer(invocation -> {
+            final MavenProject dependencyProject = new MavenProject();
+            dependencyProject.setArtifactId(invocation.getArgument(0, Artifact.class).getArtifactId());
+            final ProjectBuildingResult result = mock(ProjectBuildingResult.class);
+            when(result.getProject()).thenReturn(dependencyProject);
+            return result;
+        });
+        when(dependencyGraphBuilder.buildDependencyGraph(any(ProjectBuildingRequest.class), any(ArtifactFilter.class))).thenAnswer(invocation -> {
+            final String artifactId = invocation.getArgument(0, ProjectBuildingRequest.class).getProject().getArtifactId();
+            final DependencyNode node = mock(DependencyNode.class);
+            when(node.accept(any(DependencyNodeVisitor.class))).thenAnswer(accept -> {
+                final DependencyNodeVisitor visitor = accept.getArgument(0, DependencyNodeVisitor.class);
+                for (final Artifact graphArtifact : graphs.get(artifactId)) {
+                    final DependencyNode child = mock(DependencyNode.class);
+                    when(child.getArtifact()).thenReturn(graphArtifact);
+                    visitor.visit(child);
+                }
+                return true;
+            });
+            return node;
+        });
+
+        final ExtensionClassLoaderFactory resolvedProjectFactory = ExtensionClassLoaderFactory
+                .builder()
+                .log(log)
+                .project(project)
+                .projectBuilder(projectBuilder)
+                .dependencyGraphBuilder(dependencyGraphBuilder)
+                .artifactHandlerManager(artifactHandlerManager)
+                .repositorySystem(repositorySystem)
+                .remoteProjectRepositories(Collections.singletonList(REMOTE_PROJECT_REPOSITORY))
+                .localRepository(localRepository)
+                .remoteRepositories(Collections.singletonList(remoteRepository))
+                .repositorySession(repositorySession)
+                .useResolvedProject(true)
+                .resolutionThreads(2)
+                .build();
+
+        final ExtensionClassLoader classLoader = resolvedProjectFactory.createExtensionClassLoader();
+
+        final ExtensionClassLoader providedClassLoader = (ExtensionClassLoader) classLoader.getParent();
+        final Set<String> providedArtifacts = providedClassLoader.getAllArtifacts().stream()
+                .map(artifact -> artifact.getArtifactId() + ":" + artifact.getVersion())
+                .collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("nifi-api:2.1.0", "nifi-framework-api:2.0.0", "slf4j-api:2.0.16")), providedArtifacts);
+    }
+
+    @Test
+    void createExtensionClassLoaderWithParallelChainConstructionTest(@TempDir final Path tempDir) throws Exception {
+        final Artifact processorsArtifact = jarArtifact("processors", "1.0.0");
+        final Artifact serviceApiNarArtifact = narArtifact("service-api-nar");
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Nar-Dependency-Group", "org.apache.nifi");
+        manifest.getMainAttributes().putValue("Nar-Dependency-Id", "standard-api-nar");
+        manifest.getMainAttributes().putValue("Nar-Dependency-Version", "1.0.0");
+        final File serviceApiNarFile = tempDir.resolve("service-api-nar.nar").toFile();
+        try (final JarOutputStream ignored = new JarOutputStream(Files.newOutputStream(serviceApiNarFile.toPath()), manifest)) {
+            serviceApiNarArtifact.setFile(serviceApiNarFile);
+        }
+
+        when(project.getArtifact()).thenReturn(artifact1);
+        when(project.getArtifacts()).thenReturn(new TreeSet<>(Arrays.asList(processorsArtifact, serviceApiNarArtifact)));
+        when(artifactHandlerManager.getArtifactHandler("nar")).thenReturn(mock(ArtifactHandler.class));
+        when(artifactHandlerManager.getArtifactHandler("jar")).thenReturn(mock(ArtifactHandler.class));
+
+        final Map<String, List<Artifact>> graphs = new HashMap<>();
+        graphs.put("service-api-nar", Arrays.asList(narArtifact("service-api-nar"), narArtifact("standard-api-nar"), jarArtifact("service-api", "1.0.0")));
+        graphs.put("standard-api-nar", Arrays.asList(narArtifact("standard-api-nar"), jarArtifact("standard-api", "1.0.0"),
+                jarArtifact("org.apache.nifi", "nifi-api", "2.0.0"), jarArtifact("org.apache.nifi", "nifi-framework-api", "2.0.0"), jarArtifact("org.slf4j", "slf4j-api", "2.0.16")));
+        when(projectBuilder.build(any(Artifact.class), any(ProjectBuildingRequest.class))).thenAnswer(invocation -> {
+            final MavenProject dependencyProject = new MavenProject();
+            dependencyProject.setArtifactId(invocation.getArgument(0, Artifact.class).getArtifactId());
+            final ProjectBuildingResult result = mock(ProjectBuildingResult.class);
+            when(result.getProject()).thenReturn(dependencyProject);
+            return result;
+        });
+        when(dependencyGraphBuilder.buildDependencyGraph(any(ProjectBuildingRequest.class), any(ArtifactFilter.class))).thenAnswer(invocation -> {
+            final String artifactId = invocation.getArgument(0, ProjectBuildingRequest.class).getProject().getArtifactId();
+            final DependencyNode node = mock(DependencyNode.class);
+            when(node.accept(any(DependencyNodeVisitor.class))).thenAnswer(accept -> {
+                final DependencyNodeVisitor visitor = accept.getArgument(0, DependencyNodeVisitor.class);
+                for (final Artifact graphArtifact : graphs.get(artifactId)) {
+                    final DependencyNode child = mock(DependencyNode.class);
+                    when(child.getArtifact()).thenReturn(graphArtifact);
+                    visitor.visit(child);
+                }
+                return true;
+            });
+            return node;
+        });
+
+        final ExtensionClassLoaderFactory parallelChainFactory = ExtensionClassLoaderFactory
+                .builder()
+                .log(log)
+                .project(project)
+                .projectBuilder(projectBuilder)
+                .dependencyGraphBuilder(dependencyGraphBuilder)
+                .artifactHandlerManager(artifactHandlerManager)
+                .repositorySystem(repositorySystem)
+                .remoteProjectRepositories(Collections.singletonList(REMOTE_PROJECT_REPOSITORY))
+                .localRepository(localRepository)
+                .remoteRepositories(Collections.singletonList(remoteRepository))
+                .repositorySession(repositorySession)
+                .useResolvedProject(true)
+                .parallelChainConstruction(true)
+                .build();
+
+        final ExtensionClassLoader classLoader = parallelChainFactory.createExtensionClassLoader();
+
+        final ExtensionClassLoader serviceApiClassLoader = (ExtensionClassLoader) classLoader.getParent();
+        assertEquals("service-api-nar", serviceApiClassLoader.getNarArtifact().getArtifactId());
+        final ExtensionClassLoader standardApiClassLoader = (ExtensionClassLoader) serviceApiClassLoader.getParent();
+        assertEquals("standard-api-nar", standardApiClassLoader.getNarArtifact().getArtifactId());
+        final ExtensionClassLoader providedClassLoader = (ExtensionClassLoader) standardApiClassLoader.getParent();
+        assertEquals(3, providedClassLoader.getURLs().length);
+
+        // The dependencies of each level are resolved once, ahead of assembling the chain
+        verify(projectBuilder, times(2)).build(any(Artifact.class), any(ProjectBuildingRequest.class));
+    }
+
+    @Test
+    void createExtensionClassLoaderFromDependenciesDescriptorTest(@TempDir final Path tempDir) throws Exception {
+        final Artifact processorsArtifact = jarArtifact("processors", "1.0.0");
+        final Artifact serviceApiNarArtifact = narArtifact("service-api-nar");
+        final Set<Artifact> serviceApiGraph = new TreeSet<>(Arrays.asList(jarArtifact("service-api", "1.0.0"), jarArtifact("org.apache.nifi", "nifi-api", "2.0.0"),
+                jarArtifact("org.apache.nifi", "nifi-framework-api", "2.0.0"), jarArtifact("org.slf4j", "slf4j-api", "2.0.16")));
+        final File descriptorFile = tempDir.resolve("service-api-nar-1.0.0-nar-dependencies.txt").toFile();
+        NarDependenciesDescriptor.create(serviceApiNarArtifact, serviceApiGraph).store(descriptorFile);
+
+        when(project.getArtifact()).thenReturn(artifact1);
+        when(project.getArtifacts()).thenReturn(new TreeSet<>(Arrays.asList(processorsArtifact, serviceApiNarArtifact)));
+        when(artifactHandlerManager.getArtifactHandler("jar")).thenReturn(mock(ArtifactHandler.class));
+        when(repositorySystem.resolveArtifacts(any(RepositorySystemSession.class), anyList())).thenAnswer(invocation -> {
+            final List<ArtifactResult> results = resolved(invocation.getArgument(1));
+            for (final ArtifactResult result : results) {
+                if (NarDependenciesDescriptor.CLASSIFIER.equals(result.getArtifact().getClassifier())) {
+                    result.setArtifact(result.getArtifact().setFile(descriptorFile));
+                }
+            }
+            return results;
+        });
+
+        final ExtensionClassLoaderFactory descriptorFactory = ExtensionClassLoaderFactory
+                .builder()
+                .log(log)
+                .project(project)
+                .projectBuilder(projectBuilder)
+                .dependencyGraphBuilder(dependencyGraphBuilder)
+                .artifactHandlerManager(artifactHandlerManager)
+                .repositorySystem(repositorySystem)
+                .remoteProjectRepositories(Collections.singletonList(REMOTE_PROJECT_REPOSITORY))
+                .localRepository(localRepository)
+                .remoteRepositories(Collections.singletonList(remoteRepository))
+                .repositorySession(repositorySession)
+                .useResolvedProject(true)
+                .useDependenciesDescriptors(true)
+                .build();
+
+        final ExtensionClassLoader classLoader = descriptorFactory.createExtensionClassLoader();
+
+        final ExtensionClassLoader serviceApiClassLoader = (ExtensionClassLoader) classLoader.getParent();
+        assertEquals("service-api-nar", serviceApiClassLoader.getNarArtifact().getArtifactId());
+        assertEquals("/path/to/service-api", serviceApiClassLoader.getURLs()[0].getFile());
+        assertEquals("2.0.0", serviceApiClassLoader.getNiFiApiVersion());
+        verifyNoInteractions(projectBuilder, dependencyGraphBuilder);
+    }
+
+    @Test
+    void createExtensionClassLoaderFromDependenciesDescriptorParentTest(@TempDir final Path tempDir) throws Exception {
+        final Artifact processorsArtifact = jarArtifact("processors", "1.0.0");
+        final Artifact serviceApiNarArtifact = narArtifact("service-api-nar");
+        // The descriptor records the NiFi API version and the parent NAR, but not the graph artifacts that would provide them
+        final File serviceApiDescriptorFile = tempDir.resolve("service-api-nar-1.0.0-nar-dependencies.txt").toFile();
+        Files.writeString(serviceApiDescriptorFile.toPath(), String.join("\n",
+                "nar\torg.apache.nifi:service-api-nar:1.0.0",
+                "parent\torg.apache.nifi:standard-api-nar:1.0.0",
+                "nifiApiVersion\t2.0.0",
+                "artifact\torg.apache.nifi.test\tservice-api\t1.0.0\tcompile\tjar\t\tfalse",
+                "artifact\torg.apache.nifi\tnifi-framework-api\t2.0.0\tprovided\tjar\t\tfalse",
+                "artifact\torg.slf4j\tslf4j-api\t2.0.16\tprovided\tjar\t\tfalse",
+                ""));
+        final File standardApiDescriptorFile = tempDir.resolve("standard-api-nar-1.0.0-nar-dependencies.txt").toFile();
+        Files.writeString(standardApiDescriptorFile.toPath(), "nar\torg.apache.nifi:standard-api-nar:1.0.0\n");
+
+        final List<ArtifactRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        when(project.getArtifact()).thenReturn(artifact1);
+        when(project.getArtifacts()).thenReturn(new TreeSet<>(Arrays.asList(processorsArtifact, serviceApiNarArtifact)));
+        when(artifactHandlerManager.getArtifactHandler("jar")).thenReturn(mock(ArtifactHandler.class));
+        when(artifactHandlerManager.getArtifactHandler("nar")).thenReturn(mock(ArtifactHandler.class));
+        when(repositorySystem.resolveArtifacts(any(RepositorySystemSession.class), anyList())).thenAnswer(invocation -> {
+            requests.addAll(invocation.getArgument(1));
+            final List<ArtifactResult> results = resolved(invocation.getArgument(1));
+            for (final ArtifactResult result : results) {
+                if (NarDependenciesDescriptor.CLASSIFIER.equals(result.getArtifact().getClassifier())) {
+                    final File descriptorFile = "service-api-nar".equals(result.getArtifact().getArtifactId()) ? serviceApiDescriptorFile : standardApiDescriptorFile;
+                    result.setArtifact(result.getArtifact().setFile(descriptorFile));
+                }
+            }
+            return results;
+        });
+
+        final ExtensionClassLoaderFactory descriptorFactory = ExtensionClassLoaderFactory
+                .builder()
+                .log(log)
+                .project(project)
+                .projectBuilder(projectBuilder)
+                .dependencyGraphBuilder(dependencyGraphBuilder)
+                .artifactHandlerManager(artifactHandlerManager)
+                .repositorySystem(repositorySystem)
+                .remoteProjectRepositories(Collections.singletonList(REMOTE_PROJECT_REPOSITORY))
+                .localRepository(localRepository)
+                .remoteRepositories(Collections.singletonList(remoteRepository))
+                .repositorySession(repositorySession)
+                .useResolvedProject(true)
+                .useDependenciesDescriptors(true)
+                .parallelChainConstruction(true)
+                .build();
+
+        final ExtensionClassLoader classLoader = descriptorFactory.createExtensionClassLoader();
+
+        final ExtensionClassLoader serviceApiClassLoader = (ExtensionClassLoader) classLoader.getParent();
+        assertEquals("service-api-nar", serviceApiClassLoader.getNarArtifact().getArtifactId());
+        assertEquals("2.0.0", serviceApiClassLoader.getNiFiApiVersion());
+        verifyNoInteractions(projectBuilder, dependencyGraphBuilder);
+
+        // The chain was discovered from the descriptors, without resolving the NAR to read its manifest
+        final Set<String> requestedArtifacts = new TreeSet<>();
+        for (final ArtifactRequest request : requests) {
+            requestedArtifacts.add(request.getArtifact().getArtifactId() + ":" + request.getArtifact().getClassifier());
         }
-        verifyNoMoreInteractions(artifactResolver);
+        assertTrue(requestedArtifacts.contains("standard-api-nar:" + NarDependenciesDescriptor.CLASSIFIER));
+        assertFalse(requestedArtifacts.contains("service-api-nar:"));
     }
 
-    private List<ArtifactResolutionRequest> getExpectedArtifactResolutionRequests() {
-        ArtifactResolutionRequest request1 = new ArtifactResolutionRequest();
-        request1.setArtifact(artifact2);
-        request1.setLocalRepository(localRepository);
-        request1.setRemoteRepositories(Collections.singletonList(remoteRepository));
+    private Artifact jarArtifact(final String artifactId, final String version) {
+        return jarArtifact("org.apache.nifi.test", artifactId, version);
+    }
 
-        ArtifactResolutionRequest request2 = new ArtifactResolutionRequest();
-        request2.setArtifact(artifact3);
-        request2.setLocalRepository(localRepository);
-        request2.setRemoteRepositories(Collections.singletonList(remoteRepository));
+    private Artifact jarArtifact(final String groupId, final String artifactId, final String version) {
+        final Artifact artifact = new DefaultArtifact(groupId, artifactId, version, "compile", "jar", null, mock(ArtifactHandler.class));
+        artifact.setFile(new File("/path/to/" + artifactId));
+        return artifact;
+    }
+
+    private Artifact narArtifact(final String artifactId) {
+        return new DefaultArtifact("org.apache.nifi", artifactId, "1.0.0", "compile", "nar", null, mock(ArtifactHandler.class));
+    }
 
-        List<ArtifactResolutionRequest> resolutionRequests = new ArrayList<>();
-        resolutionRequests.add(request1);
-        resolutionRequests.add(request2);
-        return resolutionRequests;
+    private Dependency dependency(final String groupId, final String artifactId, final String version) {
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId(groupId);
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(version);
+        dependency.setScope("provided");
+        return dependency;
     }
 
     private Artifact projectArtifact() {
@@ -186,19 +540,13 @@ class ExtensionClassLoaderFactoryTest {
         return artifact;
     }
 
-    private ArtifactResolutionResult resolved(Artifact artifact) {
-        Artifact resolvedArtifact = new DefaultArtifact(
-                artifact.getGroupId(),
-                artifact.getArtifactId(),
-                artifact.getVersion(),
-                artifact.getScope(),
-                artifact.getType(),
-                artifact.getClassifier(),
-                artifact.getArtifactHandler()
-        );
-        resolvedArtifact.setFile(new File("/path/to/" + artifact.getArtifactId()));
-        ArtifactResolutionResult result = new ArtifactResolutionResult();
-        result.setArtifacts(Collections.singleton(resolvedArtifact));
-        return result;
+    private List<ArtifactResult> resolved(List<ArtifactRequest> requests) {
+        List<ArtifactResult> results = new ArrayList<>();
+        for (ArtifactRequest request : requests) {
+            ArtifactResult result = new ArtifactResult(request);
+            result.setArtifact(request.getArtifact().setFile(new File("/path/to/" + request.getArtifact().getArtifactId())));
+            results.add(result);
+        }
+        return results;
     }
 }
\ No newline at end of file
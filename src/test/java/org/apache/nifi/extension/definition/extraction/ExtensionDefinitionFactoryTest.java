@@ -19,15 +19,29 @@ package org.apache.nifi.extension.definition.extraction;
 import org.apache.nifi.extension.definition.ExtensionDefinition;
 import org.apache.nifi.extension.definition.ExtensionType;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ExtensionDefinitionFactoryTest {
 
+    @TempDir
+    private Path tempDir;
+
     @Test
     void testDiscoverExtensionsWithNoExtensions() throws IOException {
         // Use the current class loader which won't have any NiFi extensions
@@ -62,5 +76,51 @@ class ExtensionDefinitionFactoryTest {
         // With a standard classloader, there should be no Connector implementations
         assertTrue(definitions.isEmpty());
     }
-}
 
+    @Test
+    void testDiscoverAllExtensionsWithNoExtensions() throws IOException {
+        final ExtensionDefinitionFactory factory = new ExtensionDefinitionFactory(getClass().getClassLoader());
+
+        final Map<ExtensionType, Set<ExtensionDefinition>> definitions = factory.discoverExtensions();
+        for (final ExtensionType extensionType : ExtensionType.values()) {
+            assertTrue(definitions.get(extensionType).isEmpty(), "Definitions should be empty for " + extensionType);
+        }
+    }
+
+    @Test
+    void testDiscoverAllExtensionsExcludesParentServices() throws IOException {
+        final String parentProcessor = ParentProcessor.class.getName();
+        final String childProcessor = ChildProcessor.class.getName();
+        final URL parentJar = createServicesJar("parent.jar", parentProcessor);
+        final URL childJar = createServicesJar("child.jar", childProcessor);
+
+        try (final ExtensionClassLoader parent = new ExtensionClassLoader(new URL[] {parentJar}, null, Collections.emptyList());
+             final ExtensionClassLoader child = new ExtensionClassLoader(new URL[] {parentJar, childJar}, parent, null, Collections.emptyList())) {
+            final ExtensionDefinitionFactory factory = new ExtensionDefinitionFactory(child);
+
+            final Map<ExtensionType, Set<ExtensionDefinition>> definitions = factory.discoverExtensions();
+            final Set<ExtensionDefinition> processors = definitions.get(ExtensionType.PROCESSOR);
+            assertEquals(1, processors.size());
+            assertEquals(childProcessor, processors.iterator().next().getExtensionName());
+            assertEquals(childProcessor, factory.discoverExtensions(ExtensionType.PROCESSOR).iterator().next().getExtensionName());
+            assertTrue(definitions.get(ExtensionType.CONTROLLER_SERVICE).isEmpty());
+        }
+    }
+
+    private URL createServicesJar(final String name, final String processorClassName) throws IOException {
+        final Path jar = tempDir.resolve(name);
+        try (final OutputStream out = Files.newOutputStream(jar);
+             final JarOutputStream jarOut = new JarOutputStream(out)) {
+            jarOut.putNextEntry(new JarEntry("META-INF/services/org.apache.nifi.processor.Processor"));
+            jarOut.write(("# Processors" + System.lineSeparator() + processorClassName + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            jarOut.closeEntry();
+        }
+        return jar.toUri().toURL();
+    }
+
+    public static class ParentProcessor {
+    }
+
+    public static class ChildProcessor {
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class ExtensionDocumentationBindingTest {
+
+    private static final String DOCUMENTATION_WRITER_CLASS_NAME = "org.apache.nifi.documentation.xml.XmlDocumentationWriter";
+    private static final String PROCESSOR_CLASS_NAME = "org.apache.nifi.processors.TestProcessor";
+    private static final String FAILING_PROCESSOR_CLASS_NAME = "org.apache.nifi.processors.FailingProcessor";
+    private static final String LINKAGE_ERROR_PROCESSOR_CLASS_NAME = "org.apache.nifi.processors.LinkageErrorProcessor";
+    private static final String CONNECTOR_CLASS_NAME = "org.apache.nifi.connectors.TestConnector";
+
+    // The classes of the NiFi API that every supported version provides
+    private static final Map<String, String> API_SOURCES = Map.of(
+            "org/apache/nifi/components/ConfigurableComponent.java", """
+                    package org.apache.nifi.components;
+                    public interface ConfigurableComponent {
+                        java.util.List<PropertyDescriptor> getPropertyDescriptors();
+                    }
+                    """,
+            "org/apache/nifi/components/PropertyDescriptor.java", """
+                    package org.apache.nifi.components;
+                    public class PropertyDescriptor {
+                        private final String name;
+                        private final Class<?> controllerServiceDefinition;
+                        public PropertyDescriptor(final String name, final Class<?> controllerServiceDefinition) {
+                            this.name = name;
+                            this.controllerServiceDefinition = controllerServiceDefinition;
+                        }
+                        public String getName() {
+                            return name;
+                        }
+                        public Class<?> getControllerServiceDefinition() {
+                            return controllerServiceDefinition;
+                        }
+                    }
+                    """,
+            "org/apache/nifi/documentation/xml/XmlDocumentationWriter.java", """
+                    package org.apache.nifi.documentation.xml;
+                    import java.io.IOException;
+                    import java.util.Collection;
+                    import java.util.Collections;
+                    import java.util.Map;
+                    import javax.xml.stream.XMLStreamException;
+                    import javax.xml.stream.XMLStreamWriter;
+                    import org.apache.nifi.components.ConfigurableComponent;
+                    public class XmlDocumentationWriter {
+                        private final XMLStreamWriter writer;
+                        private ConfigurableComponent initialized;
+                        public XmlDocumentationWriter(final XMLStreamWriter writer) {
+                            this.writer = writer;
+                        }
+                        public void initialize(final ConfigurableComponent component) {
+                            initialized = component;
+                        }
+                        public void write(final ConfigurableComponent component) throws IOException {
+                            write(component, Collections.emptyList(), Collections.emptyMap());
+                        }
+                        public void write(final ConfigurableComponent component, final Collection<?> providedServices, final Map<String, ?> propertyServices)
+                                throws IOException {
+                            if (initialized != component) {
+                                throw new IllegalStateException("Component not initialized");
+                            }
+                            try {
+                                writer.writeStartElement("extension");
+                                writer.writeAttribute("properties", String.valueOf(component.getPropertyDescriptors().size()));
+                                writer.writeAttribute("providedServices", String.valueOf(providedServices));
+                                writer.writeAttribute("propertyServices", String.valueOf(propertyServices));
+                                writer.writeCharacters(component.getClass().getName());
+                                writer.writeEndElement();
+                            } catch (final XMLStreamException e) {
+                                throw new IOException(e);
+                            }
+                        }
+                    }
+                    """,
+            "org/apache/nifi/processors/TestService.java", """
+                    package org.apache.nifi.processors;
+                    public interface TestService {
+                    }
+                    """,
+            "org/apache/nifi/processors/TestProcessor.java", """
+                    package org.apache.nifi.processors;
+                    import java.util.List;
+                    import org.apache.nifi.components.ConfigurableComponent;
+                    import org.apache.nifi.components.PropertyDescriptor;
+                    public class TestProcessor implements ConfigurableComponent {
+                        public List<PropertyDescriptor> getPropertyDescriptors() {
+                            return List.of(new PropertyDescriptor("Directory", null), new PropertyDescriptor("Test Service", TestService.class));
+                        }
+                    }
+                    """,
+            "org/apache/nifi/processors/FailingProcessor.java", """
+                    package org.apache.nifi.processors;
+                    import java.util.List;
+                    import org.apache.nifi.components.ConfigurableComponent;
+                    import org.apache.nifi.components.PropertyDescriptor;
+                    public class FailingProcessor implements ConfigurableComponent {
+                        public List<PropertyDescriptor> getPropertyDescriptors() {
+                            throw new IllegalStateException("Properties not available");
+                        }
+                    }
+                    """,
+            "org/apache/nifi/processors/LinkageErrorProcessor.java", """
+                    package org.apache.nifi.processors;
+                    import java.util.List;
+                    import org.apache.nifi.components.ConfigurableComponent;
+                    import org.apache.nifi.components.PropertyDescriptor;
+                    public class LinkageErrorProcessor implements ConfigurableComponent {
+                        public List<PropertyDescriptor> getPropertyDescriptors() {
+                            throw new LinkageError("Property class not available");
+                        }
+                    }
+                    """
+    );
+
+    // The classes that only newer versions of the NiFi API provide
+    private static final Map<String, String> OPTIONAL_API_SOURCES = Map.of(
+            "org/apache/nifi/documentation/StandardServiceAPI.java", """
+                    package org.apache.nifi.documentation;
+                    public class StandardServiceAPI {
+                        private final String coordinates;
+                        public StandardServiceAPI(final String className, final String groupId, final String artifactId, final String version) {
+                            this.coordinates = className + "@" + groupId + ":" + artifactId + ":" + version;
+                        }
+                        public String toString() {
+                            return coordinates;
+                        }
+                    }
+                    """,
+            "org/apache/nifi/components/connector/Connector.java", """
+                    package org.apache.nifi.components.connector;
+                    public interface Connector {
+                    }
+                    """,
+            "org/apache/nifi/documentation/xml/XmlConnectorDocumentationWriter.java", """
+                    package org.apache.nifi.documentation.xml;
+                    import javax.xml.stream.XMLStreamException;
+                    import javax.xml.stream.XMLStreamWriter;
+                    import org.apache.nifi.components.connector.Connector;
+                    public class XmlConnectorDocumentationWriter {
+                        private final XMLStreamWriter writer;
+                        private Connector initialized;
+                        public XmlConnectorDocumentationWriter(final XMLStreamWriter writer) {
+                            this.writer = writer;
+                        }
+                        public void initialize(final Connector connector) {
+                            initialized = connector;
+                        }
+                        public void write(final Connector connector) throws XMLStreamException {
+                            if (initialized != connector) {
+                                throw new IllegalStateException("Connector not initialized");
+                            }
+                            writer.writeStartElement("connector");
+                            writer.writeCharacters(connector.getClass().getName());
+                            writer.writeEndElement();
+                        }
+                    }
+                    """,
+            "org/apache/nifi/connectors/TestConnector.java", """
+                    package org.apache.nifi.connectors;
+                    import org.apache.nifi.components.connector.Connector;
+                    public class TestConnector implements Connector {
+                    }
+                    """
+    );
+
+    @TempDir
+    private static Path tempDir;
+
+    private static URL apiClasses;
+    private static URL optionalApiClasses;
+
+    @BeforeAll
+    static void compileApi() throws IOException {
+        final Path apiDirectory = compile(tempDir.resolve("api"), API_SOURCES, null);
+        final Path optionalApiDirectory = compile(tempDir.resolve("optional-api"), OPTIONAL_API_SOURCES, apiDirectory);
+        apiClasses = apiDirectory.toUri().toURL();
+        optionalApiClasses = optionalApiDirectory.toUri().toURL();
+    }
+
+    @Test
+    void testWriteDocumentationWithoutOptionalApis() throws Exception {
+        try (final URLClassLoader classLoader = createClassLoader(apiClasses)) {
+            final ExtensionDocumentationBinding binding = createBinding(classLoader);
+            assertFalse(binding.isConnectorDocumentationSupported());
+
+            final Object processor = newInstance(classLoader, PROCESSOR_CLASS_NAME);
+            assertEquals("<extension properties=\"2\" providedServices=\"[]\" propertyServices=\"{}\">" + PROCESSOR_CLASS_NAME + "</extension>",
+                    write(xmlWriter -> binding.writeDocumentation(xmlWriter, processor)));
+
+            final List<?> propertyDescriptors = binding.getPropertyDescriptors(processor);
+            assertEquals(2, propertyDescriptors.size());
+            assertEquals("Directory", binding.getPropertyName(propertyDescriptors.get(0)));
+            assertNull(binding.getControllerServiceDefinition(propertyDescriptors.get(0)));
+            assertEquals("org.apache.nifi.processors.TestService", binding.getControllerServiceDefinition(propertyDescriptors.get(1)).getName());
+
+            assertThrows(ClassNotFoundException.class, () -> binding.createServiceAPI("org.apache.nifi.processors.TestService", "org.apache.nifi", "test-api", "2.0.0"));
+            assertThrows(ClassNotFoundException.class, () -> binding.writeDocumentation(createXmlWriter(new StringWriter()), processor, Collections.emptyList(), Collections.emptyMap()));
+            assertThrows(ClassNotFoundException.class, () -> binding.writeConnectorDocumentation(createXmlWriter(new StringWriter()), new Object()));
+        }
+    }
+
+    @Test
+    void testWriteDocumentationWithOptionalApis() throws Exception {
+        try (final URLClassLoader classLoader = createClassLoader(apiClasses, optionalApiClasses)) {
+            final ExtensionDocumentationBinding binding = createBinding(classLoader);
+            assertTrue(binding.isConnectorDocumentationSupported());
+
+            final Object serviceApi = binding.createServiceAPI("org.apache.nifi.processors.TestService", "org.apache.nifi", "test-api", "2.0.0");
+            assertEquals("org.apache.nifi.documentation.StandardServiceAPI", serviceApi.getClass().getName());
+            assertEquals("org.apache.nifi.processors.TestService@org.apache.nifi:test-api:2.0.0", serviceApi.toString());
+
+            final Object processor = newInstance(classLoader, PROCESSOR_CLASS_NAME);
+            final List<Object> providedServices = new ArrayList<>(List.of(serviceApi));
+            final Map<String, Object> propertyServices = Map.of("Test Service", serviceApi);
+            assertEquals("<extension properties=\"2\" providedServices=\"[" + serviceApi + "]\" propertyServices=\"{Test Service=" + serviceApi + "}\">"
+                    + PROCESSOR_CLASS_NAME + "</extension>", write(xmlWriter -> binding.writeDocumentation(xmlWriter, processor, providedServices, propertyServices)));
+
+            final Object connector = newInstance(classLoader, CONNECTOR_CLASS_NAME);
+            assertEquals("<connector>" + CONNECTOR_CLASS_NAME + "</connector>", write(xmlWriter -> binding.writeConnectorDocumentation(xmlWriter, connector)));
+        }
+    }
+
+    @Test
+    void testExceptionsPropagated() throws Exception {
+        try (final URLClassLoader classLoader = createClassLoader(apiClasses)) {
+            final ExtensionDocumentationBinding binding = createBinding(classLoader);
+
+            final Object failingProcessor = newInstance(classLoader, FAILING_PROCESSOR_CLASS_NAME);
+            assertEquals("Properties not available", assertThrows(IllegalStateException.class, () -> binding.getPropertyDescriptors(failingProcessor)).getMessage());
+            assertThrows(IllegalStateException.class, () -> binding.writeDocumentation(createXmlWriter(new StringWriter()), failingProcessor));
+
+            final Object linkageErrorProcessor = newInstance(classLoader, LINKAGE_ERROR_PROCESSOR_CLASS_NAME);
+            assertThrows(LinkageError.class, () -> binding.getPropertyDescriptors(linkageErrorProcessor));
+
+            final XMLStreamWriter closedWriter = mock(XMLStreamWriter.class);
+            doThrow(new XMLStreamException("Writer closed")).when(closedWriter).writeStartElement(anyString());
+            final Object processor = newInstance(classLoader, PROCESSOR_CLASS_NAME);
+            final IOException exception = assertThrows(IOException.class, () -> binding.writeDocumentation(closedWriter, processor));
+            assertTrue(exception.getCause() instanceof XMLStreamException);
+        }
+    }
+
+    @Test
+    void testMissingApiNotBound() throws Exception {
+        try (final URLClassLoader classLoader = createClassLoader()) {
+            assertThrows(ClassNotFoundException.class, () -> new ExtensionDocumentationBinding(classLoader, Object.class));
+        }
+    }
+
+    private static Path compile(final Path directory, final Map<String, String> sources, final Path classpath) throws IOException {
+        final Path sourceDirectory = directory.resolve("src");
+        final Path classesDirectory = Files.createDirectories(directory.resolve("classes"));
+
+        final List<String> arguments = new ArrayList<>(List.of("-d", classesDirectory.toString(), "-proc:none"));
+        if (classpath != null) {
+            arguments.add("-classpath");
+            arguments.add(classpath.toString());
+        }
+        for (final Map.Entry<String, String> source : sources.entrySet()) {
+            final Path sourceFile = sourceDirectory.resolve(source.getKey());
+            Files.createDirectories(sourceFile.getParent());
+            Files.writeString(sourceFile, source.getValue(), StandardCharsets.UTF_8);
+            arguments.add(sourceFile.toString());
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])), "Failed to compile " + sources.keySet());
+        return classesDirectory;
+    }
+
+    private URLClassLoader createClassLoader(final URL... urls) {
+        return new URLClassLoader(urls, ClassLoader.getPlatformClassLoader());
+    }
+
+    private ExtensionDocumentationBinding createBinding(final ClassLoader classLoader) throws ReflectiveOperationException {
+        return new ExtensionDocumentationBinding(classLoader, Class.forName(DOCUMENTATION_WRITER_CLASS_NAME, false, classLoader));
+    }
+
+    private Object newInstance(final ClassLoader classLoader, final String className) throws ReflectiveOperationException {
+        return Class.forName(className, false, classLoader).getDeclaredConstructor().newInstance();
+    }
+
+    private String write(final DocumentationWrite documentationWrite) throws Exception {
+        final StringWriter out = new StringWriter();
+        final XMLStreamWriter xmlWriter = createXmlWriter(out);
+        documentationWrite.write(xmlWriter);
+        xmlWriter.close();
+        return out.toString();
+    }
+
+    private XMLStreamWriter createXmlWriter(final StringWriter out) throws XMLStreamException {
+        return XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+    }
+
+    private interface DocumentationWrite {
+        void write(XMLStreamWriter xmlWriter) throws Exception;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.apache.nifi.extension.definition.ExtensionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtensionDocumentationCacheTest {
+
+    private static final String EXTENSION_NAME = StandardExtensionDefinition.class.getName();
+    private static final String EXTENSION_ENTRY = "org/apache/nifi/extension/definition/extraction/StandardExtensionDefinition.class";
+    private static final String REFERENCED_ENTRY = "org/apache/nifi/extension/definition/ExtensionType.class";
+    private static final String UNREFERENCED_ENTRY = "org/apache/nifi/extension/definition/extraction/ClassFileInfo.class";
+    private static final String SERVICES_ENTRY = "META-INF/services/org.apache.nifi.processor.Processor";
+    private static final byte[] FRAGMENT = "<extension><name>Test</name></extension>".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    private Path tempDir;
+
+    private File cacheDirectory;
+    private File jar;
+    private Map<String, byte[]> entries;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheDirectory = tempDir.resolve("cache").toFile();
+        jar = tempDir.resolve("processors.jar").toFile();
+
+        entries = new LinkedHashMap<>();
+        entries.put(SERVICES_ENTRY, EXTENSION_NAME.getBytes(StandardCharsets.UTF_8));
+        entries.put(EXTENSION_ENTRY, ClassFileInfoTest.getClassFile(StandardExtensionDefinition.class));
+        entries.put(REFERENCED_ENTRY, ClassFileInfoTest.getClassFile(ExtensionType.class));
+        entries.put(UNREFERENCED_ENTRY, ClassFileInfoTest.getClassFile(ClassFileInfo.class));
+        writeJar();
+
+        final ExtensionDocumentationCache cache = createCache("dependency:1.0.0");
+        final String digest = cache.digest(List.of(EXTENSION_NAME), Set.of(jar)).get(EXTENSION_NAME);
+        final ExtensionDocumentationCache.CachedExtension extension = new ExtensionDocumentationCache.CachedExtension(ExtensionType.PROCESSOR, EXTENSION_NAME, digest);
+        cache.store("2.0.0", Set.of(jar), List.of(extension), List.of(FRAGMENT));
+    }
+
+    @Test
+    void testAllFragmentsCached() throws IOException {
+        final ExtensionDocumentationCache cache = createCache("dependency:1.0.0");
+        cache.load();
+
+        final List<byte[]> fragments = cache.getAllFragments();
+        assertNotNull(fragments);
+        assertEquals(1, fragments.size());
+        assertArrayEquals(FRAGMENT, fragments.get(0));
+        assertEquals("2.0.0", cache.getSystemApiVersion());
+    }
+
+    @Test
+    void testUnreferencedClassChanged() throws IOException {
+        entries.put(UNREFERENCED_ENTRY, ClassFileInfoTest.getClassFile(ExtensionDocumentationIndex.class));
+        writeJar();
+
+        final ExtensionDocumentationCache cache = createCache("dependency:1.0.0");
+        cache.load();
+
+        assertNotNull(cache.getAllFragments());
+    }
+
+    @Test
+    void testReferencedClassChanged() throws IOException {
+        entries.put(REFERENCED_ENTRY, ClassFileInfoTest.getClassFile(ExtensionDocumentationIndex.class));
+        writeJar();
+
+        final ExtensionDocumentationCache cache = createCache("dependency:1.0.0");
+        cache.load();
+
+        assertNull(cache.getAllFragments());
+        assertTrue(cache.isFingerprintMatch(Set.of(jar)));
+
+        final String digest = cache.digest(List.of(EXTENSION_NAME), Set.of(jar)).get(EXTENSION_NAME);
+        assertNull(cache.getFragment(ExtensionType.PROCESSOR, EXTENSION_NAME, digest));
+    }
+
+    @Test
+    void testResourceChanged() throws IOException {
+        entries.put(SERVICES_ENTRY, "org.apache.nifi.processors.Other".getBytes(StandardCharsets.UTF_8));
+        writeJar();
+
+        final ExtensionDocumentationCache cache = createCache("dependency:1.0.0");
+        cache.load();
+
+        assertNull(cache.getAllFragments());
+    }
+
+    @Test
+    void testClasspathDescriptionChanged() throws IOException {
+        final ExtensionDocumentationCache cache = createCache("dependency:1.1.0");
+        cache.load();
+
+        assertNull(cache.getAllFragments());
+    }
+
+    private ExtensionDocumentationCache createCache(final String description) {
+        return new ExtensionDocumentationCache(cacheDirectory, List.of(description), List.of(jar));
+    }
+
+    private void writeJar() throws IOException {
+        try (final OutputStream out = Files.newOutputStream(jar.toPath());
+             final JarOutputStream jarOut = new JarOutputStream(out)) {
+            for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                jarOut.putNextEntry(new JarEntry(entry.getKey()));
+                jarOut.write(entry.getValue());
+                jarOut.closeEntry();
+            }
+        }
+    }
+}
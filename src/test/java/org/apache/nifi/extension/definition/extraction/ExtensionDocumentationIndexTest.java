@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtensionDocumentationIndexTest {
+
+    private static final String PROCESSOR_NAME = "org.apache.nifi.processors.TestProcessor";
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testGetEntries() throws IOException {
+        final File jar = createJar("processors.jar",
+                "docs/" + PROCESSOR_NAME + "/additionalDetails.md",
+                "docs/" + PROCESSOR_NAME + "/steps/Configure.md",
+                "docs/README.md",
+                "org/apache/nifi/processors/TestProcessor.class");
+
+        try (final ExtensionDocumentationIndex index = ExtensionDocumentationIndex.create(List.of(jar))) {
+            final List<ExtensionDocumentationIndex.DocumentationEntry> entries = index.getEntries(PROCESSOR_NAME);
+            assertEquals(2, entries.size());
+            assertEquals("additionalDetails.md", entries.get(0).getRelativePath());
+            assertEquals("steps/Configure.md", entries.get(1).getRelativePath());
+            assertEquals(jar, entries.get(0).getFile());
+
+            try (final InputStream in = entries.get(0).open()) {
+                assertEquals("docs/" + PROCESSOR_NAME + "/additionalDetails.md", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void testGetEntriesOrderedByJar() throws IOException {
+        final File first = createJar("first.jar", "docs/" + PROCESSOR_NAME + "/additionalDetails.md");
+        final File second = createJar("second.jar", "docs/" + PROCESSOR_NAME + "/additionalDetails.md");
+
+        try (final ExtensionDocumentationIndex index = ExtensionDocumentationIndex.create(List.of(first, second))) {
+            final List<ExtensionDocumentationIndex.DocumentationEntry> entries = index.getEntries(PROCESSOR_NAME);
+            assertEquals(2, entries.size());
+            assertEquals(first, entries.get(0).getFile());
+            assertEquals(second, entries.get(1).getFile());
+            assertTrue(index.getEntries("org.apache.nifi.processors.Undocumented").isEmpty());
+        }
+    }
+
+    private File createJar(final String name, final String... entryNames) throws IOException {
+        final Path jar = tempDir.resolve(name);
+        try (final OutputStream out = Files.newOutputStream(jar);
+             final JarOutputStream jarOut = new JarOutputStream(out)) {
+            for (final String entryName : entryNames) {
+                jarOut.putNextEntry(new JarEntry(entryName));
+                jarOut.write(entryName.getBytes(StandardCharsets.UTF_8));
+                jarOut.closeEntry();
+            }
+        }
+        return jar.toFile();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexedExtensionClassLoaderTest {
+
+    private static final String SAMPLE_CLASS_NAME = Sample.class.getName();
+    private static final String SAMPLE_CLASS_PATH = SAMPLE_CLASS_NAME.replace('.', '/') + ".class";
+    private static final String RESOURCE_NAME = "META-INF/nifi/sample.txt";
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testLoadClassFromJar() throws Exception {
+        final URL jar = createJar("sample.jar");
+
+        try (final IndexedExtensionClassLoader classLoader = createClassLoader(null, jar)) {
+            assertTrue(classLoader.containsPackage(Sample.class.getPackageName()));
+            assertFalse(classLoader.containsPackage("org.apache.nifi.missing"));
+
+            final Class<?> sampleClass = classLoader.loadClass(SAMPLE_CLASS_NAME);
+            assertSame(classLoader, sampleClass.getClassLoader());
+            assertEquals(Sample.class.getPackageName(), sampleClass.getPackage().getName());
+            assertEquals(jar, sampleClass.getProtectionDomain().getCodeSource().getLocation());
+            assertSame(sampleClass, classLoader.loadClass(SAMPLE_CLASS_NAME));
+        }
+    }
+
+    @Test
+    void testLoadClassFromDirectory() throws Exception {
+        final URL classesDirectory = Sample.class.getProtectionDomain().getCodeSource().getLocation();
+
+        try (final IndexedExtensionClassLoader classLoader = createClassLoader(null, classesDirectory)) {
+            final Class<?> sampleClass = classLoader.loadClass(SAMPLE_CLASS_NAME);
+            assertSame(classLoader, sampleClass.getClassLoader());
+        }
+    }
+
+    @Test
+    void testLoadClassFromMemoryMappedJar() throws Exception {
+        final URL jar = createJar("sample.jar");
+
+        try (final IndexedExtensionClassLoader classLoader = new IndexedExtensionClassLoader(new URL[] {jar}, ClassLoader.getPlatformClassLoader(), null,
+                Collections.emptyList(), true)) {
+            final Class<?> sampleClass = classLoader.loadClass(SAMPLE_CLASS_NAME);
+            assertSame(classLoader, sampleClass.getClassLoader());
+            assertEquals(jar, sampleClass.getProtectionDomain().getCodeSource().getLocation());
+
+            try (final InputStream in = classLoader.getResourceAsStream(RESOURCE_NAME)) {
+                assertEquals("sample", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            assertNull(classLoader.getResourceAsStream("META-INF/nifi/missing.txt"));
+
+            // Resource URLs keep the usual form but are opened over the mapping rather than through a JarURLConnection
+            final URL resource = classLoader.getResource(RESOURCE_NAME);
+            assertEquals("jar:" + jar + "!/" + RESOURCE_NAME, resource.toString());
+            assertFalse(resource.openConnection() instanceof JarURLConnection);
+            try (final InputStream in = resource.openStream()) {
+                assertEquals("sample", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            assertEquals(Collections.singletonList(resource), Collections.list(classLoader.getResources(RESOURCE_NAME)));
+        }
+    }
+
+    @Test
+    void testFindResourceFromJarAndDirectory() throws Exception {
+        final URL jar = createJar("sample.jar");
+        final URL classesDirectory = Sample.class.getProtectionDomain().getCodeSource().getLocation();
+
+        try (final IndexedExtensionClassLoader classLoader = new IndexedExtensionClassLoader(new URL[] {jar, classesDirectory},
+                ClassLoader.getPlatformClassLoader(), null, Collections.emptyList())) {
+            assertEquals("jar:" + jar + "!/" + RESOURCE_NAME, classLoader.findResource(RESOURCE_NAME).toString());
+            assertEquals(2, Collections.list(classLoader.findResources(SAMPLE_CLASS_PATH)).size());
+            try (final InputStream in = classLoader.findResource(SAMPLE_CLASS_PATH).openStream()) {
+                assertTrue(in.readAllBytes().length > 0);
+            }
+            assertNull(classLoader.findResource("META-INF/nifi/missing.txt"));
+        }
+    }
+
+    @Test
+    void testMissingClassesAndResources() throws Exception {
+        try (final IndexedExtensionClassLoader classLoader = createClassLoader(null, createJar("sample.jar"))) {
+            assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass("org.apache.nifi.missing.Missing"));
+            assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass("org.apache.nifi.missing.Missing"));
+            assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass(SAMPLE_CLASS_NAME + "Missing"));
+
+            assertNotNull(classLoader.getResource(RESOURCE_NAME));
+            assertEquals(1, Collections.list(classLoader.getResources(RESOURCE_NAME)).size());
+            assertNull(classLoader.getResource("META-INF/nifi/missing.txt"));
+            assertNull(classLoader.getResource("missing/missing.txt"));
+            assertFalse(classLoader.getResources("missing/missing.txt").hasMoreElements());
+        }
+    }
+
+    @Test
+    void testLoadClassDefinedAfterMiss() throws Exception {
+        final String generatedClassName = Generated.class.getName();
+        final byte[] generatedClassBytes;
+        try (final InputStream in = getClass().getClassLoader().getResourceAsStream(generatedClassName.replace('.', '/') + ".class")) {
+            generatedClassBytes = in.readAllBytes();
+        }
+
+        try (final IndexedExtensionClassLoader classLoader = createClassLoader(null, createJar("sample.jar"))) {
+            assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass(generatedClassName));
+
+            // Define the missing class into the ClassLoader the way bytecode generators do
+            final Class<?> sampleClass = classLoader.loadClass(SAMPLE_CLASS_NAME);
+            final Class<?> generatedClass = MethodHandles.privateLookupIn(sampleClass, MethodHandles.lookup()).defineClass(generatedClassBytes);
+            assertSame(classLoader, generatedClass.getClassLoader());
+
+            assertSame(generatedClass, classLoader.loadClass(generatedClassName));
+        }
+    }
+
+    @Test
+    void testLoadClassFromRootClassLoader() throws Exception {
+        final URL jar = createJar("sample.jar");
+
+        try (final IndexedExtensionClassLoader root = createClassLoader(null, jar);
+             final IndexedExtensionClassLoader parent = createClassLoader(root, createJar("parent.jar"));
+             final IndexedExtensionClassLoader child = createClassLoader(parent, jar)) {
+            assertSame(root, child.loadClass(SAMPLE_CLASS_NAME).getClassLoader());
+        }
+    }
+
+    @Test
+    void testFootprintCounters() throws Exception {
+        final URL jar = createJar("sample.jar");
+        final int openClassLoaders = ExtensionClassLoader.getOpenClassLoaderCount();
+        final int openJars = ExtensionClassLoader.getOpenJarCount();
+        final long definedClasses = ExtensionClassLoader.getDefinedClassCount();
+
+        final IndexedExtensionClassLoader classLoader = createClassLoader(null, jar);
+        classLoader.loadClass(SAMPLE_CLASS_NAME);
+        assertEquals(openClassLoaders + 1, ExtensionClassLoader.getOpenClassLoaderCount());
+        assertEquals(openJars + 1, ExtensionClassLoader.getOpenJarCount());
+        assertEquals(definedClasses + 1, ExtensionClassLoader.getDefinedClassCount());
+
+        classLoader.close();
+        classLoader.close();
+        assertEquals(openClassLoaders, ExtensionClassLoader.getOpenClassLoaderCount());
+        assertEquals(openJars, ExtensionClassLoader.getOpenJarCount());
+        assertEquals(definedClasses, ExtensionClassLoader.getDefinedClassCount());
+    }
+
+    private IndexedExtensionClassLoader createClassLoader(final ClassLoader parent, final URL url) {
+        return new IndexedExtensionClassLoader(new URL[] {url}, parent == null ? ClassLoader.getPlatformClassLoader() : parent, null, Collections.emptyList());
+    }
+
+    private URL createJar(final String name) throws IOException {
+        final Path jarFile = tempDir.resolve(name);
+        try (final OutputStream out = Files.newOutputStream(jarFile);
+             final JarOutputStream jarOut = new JarOutputStream(out);
+             final InputStream classIn = getClass().getClassLoader().getResourceAsStream(SAMPLE_CLASS_PATH)) {
+            jarOut.putNextEntry(new JarEntry(SAMPLE_CLASS_PATH));
+            classIn.transferTo(jarOut);
+            jarOut.closeEntry();
+
+            jarOut.putNextEntry(new JarEntry(RESOURCE_NAME));
+            jarOut.write("sample".getBytes(StandardCharsets.UTF_8));
+            jarOut.closeEntry();
+        }
+        return jarFile.toUri().toURL();
+    }
+
+    public static class Sample {
+    }
+
+    public static class Generated {
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.extension.definition.extraction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedJarFileTest {
+
+    private static final String DEFLATED_CONTENT = "deflated content ".repeat(100);
+    private static final String STORED_CONTENT = "stored content";
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testGetEntry() throws Exception {
+        final File jar = createJar("sample.jar", createManifest(), Map.of());
+
+        final MappedJarFile mappedJarFile = MappedJarFile.open(jar);
+        assertNotNull(mappedJarFile);
+        assertEquals("sample", mappedJarFile.getManifest().getMainAttributes().getValue("Nar-Id"));
+        assertTrue(mappedJarFile.getEntryNames().contains("org/apache/nifi/deflated.txt"));
+        assertFalse(mappedJarFile.containsEntry("org/apache/nifi/"));
+
+        assertEquals(DEFLATED_CONTENT, toString(mappedJarFile.getEntry("org/apache/nifi/deflated.txt")));
+        assertEquals(STORED_CONTENT, toString(mappedJarFile.getEntry("org/apache/nifi/stored.txt")));
+        assertNull(mappedJarFile.getEntry("org/apache/nifi/missing.txt"));
+    }
+
+    @Test
+    void testGetEntryIntoBuffer() throws Exception {
+        final MappedJarFile mappedJarFile = MappedJarFile.open(createJar("sample.jar", createManifest(), Map.of()));
+        assertNotNull(mappedJarFile);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(DEFLATED_CONTENT.length() * 2);
+        final ByteBuffer content = mappedJarFile.getEntry("org/apache/nifi/deflated.txt", buffer);
+        assertSame(buffer, content);
+        assertEquals(DEFLATED_CONTENT, toString(content));
+
+        final ByteBuffer smallBuffer = ByteBuffer.allocate(1);
+        assertNotSame(smallBuffer, mappedJarFile.getEntry("org/apache/nifi/deflated.txt", smallBuffer));
+    }
+
+    @Test
+    void testGetInputStream() throws Exception {
+        final MappedJarFile mappedJarFile = MappedJarFile.open(createJar("sample.jar", createManifest(), Map.of()));
+        assertNotNull(mappedJarFile);
+
+        // Each read reuses the inflater released by the previous stream
+        for (int i = 0; i < 3; i++) {
+            try (final InputStream in = mappedJarFile.getInputStream("org/apache/nifi/deflated.txt")) {
+                assertEquals(DEFLATED_CONTENT, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        try (final InputStream in = mappedJarFile.getInputStream("org/apache/nifi/stored.txt")) {
+            assertEquals(STORED_CONTENT, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertNull(mappedJarFile.getInputStream("org/apache/nifi/missing.txt"));
+
+        mappedJarFile.close();
+        try (final InputStream in = mappedJarFile.getInputStream("org/apache/nifi/deflated.txt")) {
+            assertEquals(DEFLATED_CONTENT, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testOpenSignedJar() throws Exception {
+        final File jar = createJar("signed.jar", createManifest(), Map.of("META-INF/SIGNER.SF", "Signature-Version: 1.0"));
+
+        assertNull(MappedJarFile.open(jar));
+    }
+
+    @Test
+    void testOpenMultiReleaseJar() throws Exception {
+        final Manifest manifest = createManifest();
+        manifest.getMainAttributes().put(Attributes.Name.MULTI_RELEASE, "true");
+        final File jar = createJar("multi-release.jar", manifest, Map.of());
+
+        assertNull(MappedJarFile.open(jar));
+    }
+
+    private Manifest createManifest() {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Nar-Id", "sample");
+        return manifest;
+    }
+
+    private File createJar(final String name, final Manifest manifest, final Map<String, String> additionalEntries) throws IOException {
+        final Path jarFile = tempDir.resolve(name);
+        try (final OutputStream out = Files.newOutputStream(jarFile);
+             final JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+            jarOut.putNextEntry(new JarEntry("org/apache/nifi/"));
+            jarOut.closeEntry();
+
+            jarOut.putNextEntry(new JarEntry("org/apache/nifi/deflated.txt"));
+            jarOut.write(DEFLATED_CONTENT.getBytes(StandardCharsets.UTF_8));
+            jarOut.closeEntry();
+
+            final byte[] storedBytes = STORED_CONTENT.getBytes(StandardCharsets.UTF_8);
+            final CRC32 crc = new CRC32();
+            crc.update(storedBytes);
+            final JarEntry storedEntry = new JarEntry("org/apache/nifi/stored.txt");
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(storedBytes.length);
+            storedEntry.setCrc(crc.getValue());
+            jarOut.putNextEntry(storedEntry);
+            jarOut.write(storedBytes);
+            jarOut.closeEntry();
+
+            for (final Map.Entry<String, String> additionalEntry : additionalEntries.entrySet()) {
+                jarOut.putNextEntry(new JarEntry(additionalEntry.getKey()));
+                jarOut.write(additionalEntry.getValue().getBytes(StandardCharsets.UTF_8));
+                jarOut.closeEntry();
+            }
+        }
+        return jarFile.toFile();
+    }
+
+    private String toString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
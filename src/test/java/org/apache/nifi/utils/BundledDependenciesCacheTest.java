@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorBuilderException;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BundledDependenciesCacheTest {
+
+    private static final String KEY = "org.apache.nifi:nifi-standard-services-api-nar:nar:2.0.0";
+
+    @Test
+    void testGetInstanceSharedBySession() {
+        final RepositorySystemSession session = new DefaultRepositorySystemSession();
+
+        final BundledDependenciesCache cache = BundledDependenciesCache.getInstance(session);
+        assertSame(cache, BundledDependenciesCache.getInstance(session));
+        assertNotSame(cache, BundledDependenciesCache.getInstance(new DefaultRepositorySystemSession()));
+    }
+
+    @Test
+    void testGetBundledDependenciesCollectedOnce() throws Exception {
+        final BundledDependenciesCache cache = new BundledDependenciesCache();
+        final AtomicInteger collected = new AtomicInteger();
+
+        final DuplicateDependencyDetector.BundledDependencies bundledDependencies = cache.getBundledDependencies(KEY, () -> {
+            collected.incrementAndGet();
+            return createBundledDependencies();
+        });
+        assertSame(bundledDependencies, cache.getBundledDependencies(KEY, () -> {
+            collected.incrementAndGet();
+            return createBundledDependencies();
+        }));
+        assertEquals(1, collected.get());
+    }
+
+    @Test
+    void testGetBundledDependenciesFailureNotCached() throws Exception {
+        final BundledDependenciesCache cache = new BundledDependenciesCache();
+
+        assertThrows(DependencyCollectorBuilderException.class, () -> cache.getBundledDependencies(KEY, () -> {
+            throw new DependencyCollectorBuilderException("Could not collect");
+        }));
+
+        final DuplicateDependencyDetector.BundledDependencies bundledDependencies = cache.getBundledDependencies(KEY, this::createBundledDependencies);
+        assertSame(bundledDependencies, cache.getBundledDependencies(KEY, this::createBundledDependencies));
+    }
+
+    private DuplicateDependencyDetector.BundledDependencies createBundledDependencies() {
+        final DefaultDependencyNode root = new DefaultDependencyNode(new DefaultArtifact("org.apache.nifi", "nifi-standard-services-api-nar", "2.0.0", null, "nar", null,
+                new DefaultArtifactHandler("nar")));
+        root.setChildren(Collections.emptyList());
+        return DuplicateDependencyDetector.getBundledDependencies(root);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BundledDependenciesManifestTest {
+
+    private static final String COORDINATES = "org.apache.nifi:nifi-utils:jar:2.0.0";
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testStoreAndLoad() throws IOException {
+        final File source = Files.writeString(tempDir.resolve("nifi-utils-2.0.0.jar"), "content", StandardCharsets.UTF_8).toFile();
+        final BundledDependenciesManifest manifest = BundledDependenciesManifest.empty();
+        final BundledDependenciesManifest.Entry entry = BundledDependenciesManifest.createEntry(COORDINATES, source, null);
+        manifest.put(source.getName(), entry);
+
+        final File manifestFile = tempDir.resolve("markers").resolve("bundled-dependencies.sha256").toFile();
+        manifest.store(manifestFile);
+
+        final BundledDependenciesManifest loaded = BundledDependenciesManifest.load(manifestFile);
+        final BundledDependenciesManifest.Entry loadedEntry = loaded.get(source.getName());
+        assertTrue(entry.isSameContent(loadedEntry));
+        assertEquals(entry.getLastModified(), loadedEntry.getLastModified());
+        assertEquals("ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73", loadedEntry.getDigest());
+    }
+
+    @Test
+    void testChangedContentDetected() throws IOException {
+        final Path sourcePath = Files.writeString(tempDir.resolve("nifi-utils-2.0.0.jar"), "content", StandardCharsets.UTF_8);
+        final BundledDependenciesManifest.Entry entry = BundledDependenciesManifest.createEntry(COORDINATES, sourcePath.toFile(), null);
+
+        Files.writeString(sourcePath, "changed", StandardCharsets.UTF_8);
+        assertTrue(sourcePath.toFile().setLastModified(entry.getLastModified() + 1000));
+        final BundledDependenciesManifest.Entry updated = BundledDependenciesManifest.createEntry(COORDINATES, sourcePath.toFile(), entry);
+
+        assertFalse(updated.isSameContent(entry));
+    }
+
+    @Test
+    void testGetRemovedFileNames() throws IOException {
+        final File source = Files.writeString(tempDir.resolve("nifi-utils-2.0.0.jar"), "content", StandardCharsets.UTF_8).toFile();
+        final BundledDependenciesManifest.Entry entry = BundledDependenciesManifest.createEntry(COORDINATES, source, null);
+
+        final BundledDependenciesManifest previous = BundledDependenciesManifest.empty();
+        previous.put("nifi-utils-1.0.0.jar", entry);
+        previous.put(source.getName(), entry);
+        final BundledDependenciesManifest current = BundledDependenciesManifest.empty();
+        current.put(source.getName(), entry);
+        current.put("nifi-api-2.0.0.jar", entry);
+
+        assertEquals(Set.of("nifi-utils-1.0.0.jar"), previous.getRemovedFileNames(current));
+        assertTrue(BundledDependenciesManifest.empty().getRemovedFileNames(current).isEmpty());
+    }
+
+    @Test
+    void testLoadMissingManifest() {
+        final BundledDependenciesManifest manifest = BundledDependenciesManifest.load(tempDir.resolve("missing").toFile());
+
+        assertTrue(manifest.getEntries().isEmpty());
+        assertNull(manifest.get("nifi-utils-2.0.0.jar"));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateClassDetectorTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testDuplicateClassesAndSplitPackages() throws Exception {
+        final Map<String, String> providedClasses = new LinkedHashMap<>();
+        providedClasses.put("org/apache/commons/io/IOUtils.class", "IOUtils");
+        providedClasses.put("org/apache/commons/io/FileUtils.class", "FileUtils");
+        providedClasses.put("org/apache/commons/lang3/StringUtils.class", "StringUtils");
+        final byte[] providedJar = createJar(providedClasses);
+
+        final Map<String, String> nestedClasses = new LinkedHashMap<>();
+        nestedClasses.put("org/apache/nifi/parent/Parent.class", "Parent");
+        final File narFile = tempDir.resolve("parent.nar").toFile();
+        try (final OutputStream out = Files.newOutputStream(narFile.toPath());
+             final JarOutputStream narOut = new JarOutputStream(out)) {
+            addEntry(narOut, "META-INF/bundled-dependencies/commons.jar", providedJar);
+            addEntry(narOut, "META-INF/bundled-dependencies/parent.jar", createJar(nestedClasses));
+            addEntry(narOut, "META-INF/docs/readme.txt", "readme".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // a shaded jar with a copy of IOUtils, a different FileUtils and a class of its own in a provided package
+        final Map<String, String> bundledClasses = new LinkedHashMap<>();
+        bundledClasses.put("org/apache/commons/io/IOUtils.class", "IOUtils");
+        bundledClasses.put("org/apache/commons/io/FileUtils.class", "FileUtils 2");
+        bundledClasses.put("org/apache/commons/io/input/Tailer.class", "Tailer");
+        bundledClasses.put("org/apache/commons/lang3/Shaded.class", "Shaded");
+        bundledClasses.put("org/apache/nifi/processors/Processor.class", "Processor");
+        bundledClasses.put("META-INF/versions/11/org/apache/commons/io/IOUtils.class", "IOUtils 11");
+        final File bundledJar = tempDir.resolve("shaded.jar").toFile();
+        Files.write(bundledJar.toPath(), createJar(bundledClasses));
+
+        final List<DuplicateClassDetector.JarClasses> narJars = DuplicateClassDetector.scanNar("parent-nar", narFile);
+        assertEquals(2, narJars.size());
+        assertEquals("parent-nar!/commons.jar", narJars.get(0).getName());
+
+        final DuplicateClassDetector detector = new DuplicateClassDetector();
+        narJars.forEach(detector::addProvided);
+
+        final DuplicateClassDetector.JarClasses bundledClassesOfJar = DuplicateClassDetector.scanJar("shaded.jar", bundledJar);
+        assertEquals(5, bundledClassesOfJar.getClassCount());
+        final DuplicateClassDetector.Report report = detector.check(Collections.singletonList(bundledClassesOfJar));
+
+        assertEquals(1, report.getDuplicateClasses().size());
+        final DuplicateClassDetector.DuplicateClasses duplicates = report.getDuplicateClasses().get(0);
+        assertEquals("shaded.jar", duplicates.getBundledJar());
+        assertEquals("parent-nar!/commons.jar", duplicates.getProvidedJar());
+        assertEquals(Arrays.asList("org.apache.commons.io.IOUtils", "org.apache.commons.io.FileUtils"), duplicates.getClassNames());
+        assertEquals(1, duplicates.getIdenticalClassCount());
+        assertEquals("IOUtils".length() + "FileUtils 2".length(), duplicates.getWastedBytes());
+        assertEquals(2, report.getDuplicateClassCount());
+
+        assertEquals(1, report.getSplitPackages().size());
+        final DuplicateClassDetector.SplitPackage splitPackage = report.getSplitPackages().get(0);
+        assertEquals("org.apache.commons.lang3", splitPackage.getPackageName());
+        assertEquals(Set.of("shaded.jar"), splitPackage.getBundledJars());
+        assertEquals(Set.of("parent-nar!/commons.jar"), splitPackage.getProvidedJars());
+    }
+
+    @Test
+    void testNoDuplicates() throws Exception {
+        final DuplicateClassDetector detector = new DuplicateClassDetector();
+        final File providedJar = tempDir.resolve("provided.jar").toFile();
+        Files.write(providedJar.toPath(), createJar(Map.of("org/apache/nifi/api/Api.class", "Api")));
+        detector.addProvided(DuplicateClassDetector.scanJar("provided.jar", providedJar));
+
+        final File bundledJar = tempDir.resolve("bundled.jar").toFile();
+        Files.write(bundledJar.toPath(), createJar(Map.of("org/apache/nifi/processors/Processor.class", "Processor")));
+
+        assertTrue(detector.check(Collections.singletonList(DuplicateClassDetector.scanJar("bundled.jar", bundledJar))).isEmpty());
+    }
+
+    @Test
+    void testClassIndexCollisions() {
+        final ClassIndex index = new ClassIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.add(i % 100, "class" + i, i, i % 7);
+        }
+
+        int entries = 0;
+        for (int entry = index.first(42); entry >= 0; entry = index.next(entry)) {
+            assertEquals(42, Integer.parseInt(index.getName(entry).substring("class".length())) % 100);
+            entries++;
+        }
+        assertEquals(50, entries);
+        assertTrue(index.first(4242) < 0);
+    }
+
+    private byte[] createJar(final Map<String, String> classes) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final JarOutputStream jarOut = new JarOutputStream(out)) {
+            for (final Map.Entry<String, String> entry : classes.entrySet()) {
+                addEntry(jarOut, entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void addEntry(final JarOutputStream jarOut, final String name, final byte[] content) throws IOException {
+        jarOut.putNextEntry(new JarEntry(name));
+        jarOut.write(content);
+        jarOut.closeEntry();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateDependencyDetectorTest {
+
+    @Test
+    void testDuplicates() {
+        final Artifact commonsIo = createArtifact("commons-io", "compile", "jar");
+        final Artifact commonsLang = createArtifact("commons-lang3", "compile", "jar");
+        final Artifact processors = createArtifact("processors", "compile", "jar");
+        final Artifact parentNar = createArtifact("parent-nar", "compile", "nar");
+
+        final DefaultDependencyNode root = createNode(null, createArtifact("processors-nar", null, "nar"));
+        final DefaultDependencyNode processorsNode = createNode(root, processors);
+        final DefaultDependencyNode commonsIoNode = createNode(processorsNode, commonsIo);
+        final DefaultDependencyNode commonsLangNode = createNode(root, commonsLang);
+        setChildren(root, processorsNode, commonsLangNode, createNode(root, parentNar));
+        setChildren(processorsNode, commonsIoNode);
+
+        final DefaultDependencyNode parentRoot = createNode(null, createArtifact("parent-nar", null, "nar"));
+        setChildren(parentRoot, createNode(parentRoot, createArtifact("commons-io", "compile", "jar")), createNode(parentRoot, createArtifact("commons-lang3", "provided", "jar")));
+
+        final DuplicateDependencyDetector detector = new DuplicateDependencyDetector(root);
+        detector.check(DuplicateDependencyDetector.getBundledDependencies(parentRoot));
+
+        final Map<Artifact, List<DuplicateDependencyDetector.Duplicate>> duplicates = detector.getDuplicates();
+        assertEquals(1, duplicates.size());
+        final List<DuplicateDependencyDetector.Duplicate> commonsIoDuplicates = duplicates.get(commonsIo);
+        assertEquals(1, commonsIoDuplicates.size());
+        assertEquals(Arrays.asList(processors, commonsIo), commonsIoDuplicates.get(0).getBundledPath());
+        assertEquals(Arrays.asList(parentRoot.getArtifact(), commonsIo), commonsIoDuplicates.get(0).getProvidedPath());
+    }
+
+    @Test
+    void testDuplicatesAcrossNarChain() {
+        final Artifact commonsIo = createArtifact("commons-io", "compile", "jar");
+        final Artifact parentNar = createArtifact("parent-nar", "compile", "nar");
+        final Artifact grandparentNar = createArtifact("grandparent-nar", "compile", "nar");
+
+        final DefaultDependencyNode root = createNode(null, createArtifact("processors-nar", null, "nar"));
+        final DefaultDependencyNode parentNarNode = createNode(root, parentNar);
+        setChildren(root, createNode(root, commonsIo), parentNarNode);
+        // the dependencies of nar dependencies are bundled by those nars
+        setChildren(parentNarNode, createNode(parentNarNode, createArtifact("commons-lang3", "compile", "jar")));
+
+        final DefaultDependencyNode parentRoot = createNode(null, createArtifact("parent-nar", null, "nar"));
+        setChildren(parentRoot, createNode(parentRoot, grandparentNar));
+        final DuplicateDependencyDetector.BundledDependencies parentDependencies = DuplicateDependencyDetector.getBundledDependencies(parentRoot);
+        assertEquals(grandparentNar, parentDependencies.getNarDependency());
+        assertEquals(0, parentDependencies.size());
+
+        final DefaultDependencyNode grandparentRoot = createNode(null, createArtifact("grandparent-nar", null, "nar"));
+        setChildren(grandparentRoot, createNode(grandparentRoot, commonsIo));
+        final DuplicateDependencyDetector.BundledDependencies grandparentDependencies = DuplicateDependencyDetector.getBundledDependencies(grandparentRoot);
+        assertNull(grandparentDependencies.getNarDependency());
+
+        final DuplicateDependencyDetector detector = new DuplicateDependencyDetector(root);
+        detector.check(parentDependencies);
+        assertTrue(detector.getDuplicates().isEmpty());
+
+        detector.check(grandparentDependencies);
+        final List<DuplicateDependencyDetector.Duplicate> commonsIoDuplicates = detector.getDuplicates().get(commonsIo);
+        assertEquals(1, commonsIoDuplicates.size());
+        assertEquals(Arrays.asList(commonsIo), commonsIoDuplicates.get(0).getBundledPath());
+        assertEquals(Arrays.asList(grandparentRoot.getArtifact(), commonsIo), commonsIoDuplicates.get(0).getProvidedPath());
+    }
+
+    private DefaultDependencyNode createNode(final DependencyNode parent, final Artifact artifact) {
+        final DefaultDependencyNode node = new DefaultDependencyNode(parent, artifact, null, null, null);
+        node.setChildren(Collections.emptyList());
+        return node;
+    }
+
+    private void setChildren(final DefaultDependencyNode node, final DependencyNode... children) {
+        node.setChildren(Arrays.asList(children));
+    }
+
+    private Artifact createArtifact(final String artifactId, final String scope, final String type) {
+        return new DefaultArtifact("org.apache.nifi", artifactId, "2.0.0", scope, type, null, new DefaultArtifactHandler(type));
+    }
+}
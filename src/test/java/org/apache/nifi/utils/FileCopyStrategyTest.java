@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileCopyStrategyTest {
+
+    private static final byte[] CONTENT = "bundled-dependency".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    private Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(FileCopyStrategy.class)
+    void testCopyCreatesTargetWithSourceContent(final FileCopyStrategy strategy) throws IOException {
+        final Path source = Files.write(tempDir.resolve("source.jar"), CONTENT);
+        final Path target = tempDir.resolve("bundled-dependencies").resolve("target.jar");
+
+        strategy.copy(source.toFile(), target.toFile());
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    void testCopyReplacesLinkWithoutModifyingSource() throws IOException {
+        final Path source = Files.write(tempDir.resolve("source.jar"), CONTENT);
+        final File target = tempDir.resolve("target.jar").toFile();
+
+        final FileCopyStrategy linkResult = FileCopyStrategy.LINK.copy(source.toFile(), target);
+        FileCopyStrategy.TRANSFER.copy(source.toFile(), target);
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(source));
+        assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+        if (linkResult == FileCopyStrategy.LINK) {
+            assertFalse(Files.isSameFile(source, target.toPath()));
+        }
+    }
+
+    @Test
+    void testTransferPreservesLastModifiedTime() throws IOException {
+        final Path source = Files.write(tempDir.resolve("source.jar"), CONTENT);
+        final File target = tempDir.resolve("target.jar").toFile();
+        final long lastModified = 1_600_000_000_000L;
+        assertTrue(source.toFile().setLastModified(lastModified));
+
+        FileCopyStrategy.TRANSFER.copy(source.toFile(), target);
+
+        assertEquals(lastModified, target.lastModified());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NarDependenciesDescriptorTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testStoreAndLoad() throws Exception {
+        final Artifact narArtifact = createArtifact("org.apache.nifi", "nifi-standard-nar", "2.1.0-SNAPSHOT", null, "nar");
+        final Set<Artifact> graphArtifacts = new TreeSet<>();
+        graphArtifacts.add(narArtifact);
+        graphArtifacts.add(createArtifact("org.apache.nifi", "nifi-standard-services-api-nar", "2.1.0-SNAPSHOT", "compile", "nar"));
+        graphArtifacts.add(createArtifact("org.apache.nifi", "nifi-api", "2.0.0", "provided", "jar"));
+        graphArtifacts.add(createArtifact("org.apache.nifi", "nifi-standard-processors", "2.1.0-SNAPSHOT", "compile", "jar"));
+
+        final File descriptorFile = tempDir.resolve("nar-dependencies.txt").toFile();
+        NarDependenciesDescriptor.create(narArtifact, graphArtifacts).store(descriptorFile);
+
+        final NarDependenciesDescriptor descriptor = NarDependenciesDescriptor.load(descriptorFile, createArtifactHandlerManager());
+        assertEquals("org.apache.nifi:nifi-standard-nar:2.1.0-SNAPSHOT", descriptor.getCoordinates());
+        assertEquals("org.apache.nifi:nifi-standard-services-api-nar:2.1.0-SNAPSHOT", descriptor.getParentCoordinates());
+        assertEquals("2.0.0", descriptor.getNifiApiVersion());
+        final Artifact parentArtifact = descriptor.getParentArtifact(new DefaultArtifactHandler("nar"));
+        assertEquals("org.apache.nifi:nifi-standard-services-api-nar:nar:2.1.0-SNAPSHOT", parentArtifact.getId());
+        assertEquals("compile", parentArtifact.getScope());
+        assertTrue(descriptor.describes(narArtifact));
+        assertFalse(descriptor.describes(createArtifact("org.apache.nifi", "nifi-standard-nar", "2.0.0", null, "nar")));
+
+        final Set<Artifact> expectedArtifacts = new TreeSet<>(graphArtifacts);
+        expectedArtifacts.remove(narArtifact);
+        assertEquals(expectedArtifacts, descriptor.getArtifacts());
+        assertEquals("provided", descriptor.getArtifacts().stream().filter(artifact -> "nifi-api".equals(artifact.getArtifactId())).findFirst().orElseThrow().getScope());
+    }
+
+    @Test
+    void testStoreAndLoadWithoutParent() throws Exception {
+        final Artifact narArtifact = createArtifact("org.apache.nifi", "nifi-standard-services-api-nar", "2.0.0", null, "nar");
+
+        final File descriptorFile = tempDir.resolve("nar-dependencies.txt").toFile();
+        NarDependenciesDescriptor.create(narArtifact, new TreeSet<>()).store(descriptorFile);
+
+        final NarDependenciesDescriptor descriptor = NarDependenciesDescriptor.load(descriptorFile, createArtifactHandlerManager());
+        assertNull(descriptor.getParentCoordinates());
+        assertNull(descriptor.getParentArtifact(new DefaultArtifactHandler("nar")));
+        assertNull(descriptor.getNifiApiVersion());
+        assertTrue(descriptor.getArtifacts().isEmpty());
+    }
+
+    @Test
+    void testLoadInvalid() throws Exception {
+        final File descriptorFile = tempDir.resolve("nar-dependencies.txt").toFile();
+        Files.writeString(descriptorFile.toPath(), "artifact\torg.apache.nifi\n");
+
+        assertThrows(IOException.class, () -> NarDependenciesDescriptor.load(descriptorFile, createArtifactHandlerManager()));
+
+        Files.writeString(descriptorFile.toPath(), "nar\torg.apache.nifi:nifi-standard-nar:2.0.0\nparent\tnifi-standard-services-api-nar\n");
+        assertThrows(IOException.class, () -> NarDependenciesDescriptor.load(descriptorFile, createArtifactHandlerManager()));
+    }
+
+    private ArtifactHandlerManager createArtifactHandlerManager() {
+        final ArtifactHandlerManager artifactHandlerManager = mock(ArtifactHandlerManager.class);
+        when(artifactHandlerManager.getArtifactHandler(anyString())).thenAnswer(invocation -> new DefaultArtifactHandler(invocation.getArgument(0)));
+        return artifactHandlerManager;
+    }
+
+    private Artifact createArtifact(final String groupId, final String artifactId, final String version, final String scope, final String type) {
+        return new DefaultArtifact(groupId, artifactId, version, scope, type, null, new DefaultArtifactHandler(type));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.utils;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class SessionMemoizerTest {
+
+    private static final String KEY = "org.apache.nifi:nifi-standard-services-api-nar:nar:2.0.0";
+
+    @Test
+    void testGetSessionInstance() {
+        final RepositorySystemSession session = new DefaultRepositorySystemSession();
+
+        final SessionInstance instance = SessionMemoizer.getSessionInstance(session, SessionInstance.class, SessionInstance::new);
+        assertSame(instance, SessionMemoizer.getSessionInstance(session, SessionInstance.class, SessionInstance::new));
+        assertNotSame(instance, SessionMemoizer.getSessionInstance(new DefaultRepositorySystemSession(), SessionInstance.class, SessionInstance::new));
+        assertNull(SessionMemoizer.getSessionInstance(mock(RepositorySystemSession.class), SessionInstance.class, SessionInstance::new));
+
+        // an instance registered under the same name by another version of the plugin is not shared
+        final RepositorySystemSession otherSession = new DefaultRepositorySystemSession();
+        otherSession.getData().set(SessionInstance.class.getName(), new Object());
+        assertNull(SessionMemoizer.getSessionInstance(otherSession, SessionInstance.class, SessionInstance::new));
+    }
+
+    @Test
+    void testFailureNotCached() throws Exception {
+        final SessionMemoizer<String> memoizer = new SessionMemoizer<>();
+
+        assertThrows(IOException.class, () -> memoizer.get(KEY, () -> {
+            throw new IOException("Could not read");
+        }));
+        assertTrue(memoizer.getComputedValues().isEmpty());
+
+        assertEquals("value", memoizer.get(KEY, () -> "value"));
+        assertEquals("value", memoizer.get(KEY, () -> "other value"));
+        assertEquals(List.of("value"), memoizer.getComputedValues());
+
+        memoizer.clear();
+        assertEquals("other value", memoizer.get(KEY, () -> "other value"));
+    }
+
+    @Test
+    void testErrorReleasesWaitingRequests() throws Exception {
+        final SessionMemoizer<String> memoizer = new SessionMemoizer<>();
+        final CountDownLatch computing = new CountDownLatch(1);
+        final CompletableFuture<Void> fail = new CompletableFuture<>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> failing = executor.submit(() -> memoizer.get(KEY, () -> {
+                computing.countDown();
+                fail.join();
+                throw new OutOfMemoryError("Java heap space");
+            }));
+            computing.await();
+
+            final Thread[] waitingThread = new Thread[1];
+            final Future<String> waiting = executor.submit(() -> {
+                waitingThread[0] = Thread.currentThread();
+                return memoizer.get(KEY, () -> "value");
+            });
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (waitingThread[0] == null || waitingThread[0].getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < deadline, "Request did not wait for the value being computed");
+                Thread.sleep(10);
+            }
+            fail.complete(null);
+
+            final ExecutionException failure = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, failure.getCause());
+            final ExecutionException waitingFailure = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+            assertSame(failure.getCause(), waitingFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("value", memoizer.get(KEY, () -> "value"));
+    }
+
+    private static class SessionInstance {
+    }
+}